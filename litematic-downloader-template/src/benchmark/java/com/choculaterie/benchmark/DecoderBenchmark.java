@@ -0,0 +1,107 @@
+package com.choculaterie.benchmark;
+
+import com.choculaterie.util.LitematicAnalysis;
+import com.choculaterie.util.PackedBlockStateDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Times the word-at-a-time BlockStates decoder against the per-entry loop it replaced, on synthetic
+// regions. Any .litematic paths given as arguments are also analyzed sequentially and with fork-join.
+// Run with: ./gradlew benchmark [-PbenchmarkArgs="path/to/a.litematic ..."]
+public class DecoderBenchmark {
+    private static final int PALETTE_SIZE = 40;
+    private static final int[] REGION_BLOCKS = {1 << 20, 1 << 24, 1 << 26};
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 7;
+
+    public static void main(String[] args) throws IOException {
+        boolean[] paletteAir = new boolean[PALETTE_SIZE];
+        paletteAir[0] = true;
+        int bitsPerBlock = PackedBlockStateDecoder.bitsPerBlock(PALETTE_SIZE);
+
+        for (int totalBlocks : REGION_BLOCKS) {
+            long[] words = randomBlockStates(totalBlocks, bitsPerBlock, new Random(totalBlocks));
+
+            int[] expected = perEntry(words, paletteAir, totalBlocks, bitsPerBlock);
+            int[] actual = wordAtATime(words, paletteAir, totalBlocks);
+            if (!Arrays.equals(expected, actual)) {
+                throw new IllegalStateException("Decoders disagree on " + totalBlocks + " blocks");
+            }
+
+            double perEntryMillis = bestOf(() -> perEntry(words, paletteAir, totalBlocks, bitsPerBlock));
+            double wordMillis = bestOf(() -> wordAtATime(words, paletteAir, totalBlocks));
+            System.out.printf("%,d blocks: per-entry %.1f ms, word-at-a-time %.1f ms (%.1fx)%n",
+                    totalBlocks, perEntryMillis, wordMillis, perEntryMillis / wordMillis);
+        }
+
+        for (String path : args) {
+            File file = new File(path);
+            double sequential = bestOf(() -> LitematicAnalysis.analyze(file, false));
+            double parallel = bestOf(() -> LitematicAnalysis.analyze(file, true));
+            System.out.printf("%s: sequential %.0f ms, fork-join %.0f ms (%d cores)%n",
+                    file.getName(), sequential, parallel, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private interface Run {
+        Object run() throws IOException;
+    }
+
+    private static double bestOf(Run run) throws IOException {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static long[] randomBlockStates(int totalBlocks, int bitsPerBlock, Random random) {
+        long[] words = new long[(int) (((long) totalBlocks * bitsPerBlock + 63) >>> 6)];
+        for (long i = 0; i < totalBlocks; i++) {
+            // About a third air, like a typical build's bounding box
+            long value = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(PALETTE_SIZE - 1);
+            long bitIndex = i * bitsPerBlock;
+            int word = (int) (bitIndex >>> 6);
+            int offset = (int) (bitIndex & 63);
+            words[word] |= value << offset;
+            if (offset + bitsPerBlock > 64) {
+                words[word + 1] |= value >>> (64 - offset);
+            }
+        }
+        return words;
+    }
+
+    private static int[] wordAtATime(long[] words, boolean[] paletteAir, int totalBlocks) {
+        PackedBlockStateDecoder decoder = new PackedBlockStateDecoder(paletteAir, totalBlocks, null);
+        decoder.decode(words, 0, words.length);
+        return decoder.getPaletteCounts();
+    }
+
+    // The loop LitematicAnalysis used before PackedBlockStateDecoder: one bit-index computation per entry
+    private static int[] perEntry(long[] words, boolean[] paletteAir, int totalBlocks, int bitsPerBlock) {
+        int[] histogram = new int[paletteAir.length];
+        long maxEntryValue = (1L << bitsPerBlock) - 1L;
+        for (long i = 0; i < totalBlocks; i++) {
+            long bitIndex = i * bitsPerBlock;
+            int arrayIndex = (int) (bitIndex >>> 6);
+            int bitOffset = (int) (bitIndex & 63);
+
+            long value = words[arrayIndex] >>> bitOffset;
+            if (bitOffset + bitsPerBlock > 64) {
+                value |= words[arrayIndex + 1] << (64 - bitOffset);
+            }
+            int paletteIndex = (int) (value & maxEntryValue);
+            if (paletteIndex >= paletteAir.length || paletteAir[paletteIndex]) continue;
+            histogram[paletteIndex]++;
+        }
+        return histogram;
+    }
+}
@@ -13,6 +13,7 @@ import java.nio.file.Path;
 
 public class DownloadSettings {
 	private static final String CONFIG_FILE = "litematic-downloader-settings.json";
+	private static final String CACHE_DIR = "litematic-downloader";
 	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 	private static DownloadSettings INSTANCE;
 
@@ -57,6 +58,14 @@ public class DownloadSettings {
 		setDefault("dismissedModMessageId", -1);
 		setDefault("useChoculaterieAPI", false);
 		setDefault("dismissedQuickShareLinks", "");
+		setDefault("analysisCacheMaxMB", 64);
+		setDefault("analysisCacheVerifyHash", false);
+		setDefault("responseDiskCacheEnabled", true);
+		setDefault("responseDiskCacheMaxMB", 16);
+		setDefault("imageCacheMaxMB", 256);
+		setDefault("imageCacheStoreDecoded", true);
+		setDefault("thumbnailCacheMaxMB", 32);
+		setDefault("localGridView", false);
 	}
 
 	private void setDefault(String key, Object value) {
@@ -201,6 +210,74 @@ public class DownloadSettings {
 		}
 	}
 
+	public int getAnalysisCacheMaxMB() {
+		return config.get("analysisCacheMaxMB").getAsInt();
+	}
+
+	public void setAnalysisCacheMaxMB(int megabytes) {
+		set("analysisCacheMaxMB", Math.max(0, megabytes));
+	}
+
+	public boolean isAnalysisCacheVerifyHash() {
+		return config.get("analysisCacheVerifyHash").getAsBoolean();
+	}
+
+	public void setAnalysisCacheVerifyHash(boolean enabled) {
+		set("analysisCacheVerifyHash", enabled);
+	}
+
+	public boolean isResponseDiskCacheEnabled() {
+		return config.get("responseDiskCacheEnabled").getAsBoolean();
+	}
+
+	public void setResponseDiskCacheEnabled(boolean enabled) {
+		set("responseDiskCacheEnabled", enabled);
+	}
+
+	public int getResponseDiskCacheMaxMB() {
+		return config.get("responseDiskCacheMaxMB").getAsInt();
+	}
+
+	public void setResponseDiskCacheMaxMB(int megabytes) {
+		set("responseDiskCacheMaxMB", Math.max(0, megabytes));
+	}
+
+	public int getImageCacheMaxMB() {
+		return config.get("imageCacheMaxMB").getAsInt();
+	}
+
+	public void setImageCacheMaxMB(int megabytes) {
+		set("imageCacheMaxMB", Math.max(0, megabytes));
+	}
+
+	public boolean isImageCacheStoreDecoded() {
+		return config.get("imageCacheStoreDecoded").getAsBoolean();
+	}
+
+	public void setImageCacheStoreDecoded(boolean enabled) {
+		set("imageCacheStoreDecoded", enabled);
+	}
+
+	public int getThumbnailCacheMaxMB() {
+		return config.get("thumbnailCacheMaxMB").getAsInt();
+	}
+
+	public void setThumbnailCacheMaxMB(int megabytes) {
+		set("thumbnailCacheMaxMB", Math.max(0, megabytes));
+	}
+
+	public boolean isLocalGridView() {
+		return config.get("localGridView").getAsBoolean();
+	}
+
+	public void setLocalGridView(boolean enabled) {
+		set("localGridView", enabled);
+	}
+
+	public Path getCacheDirectory(String name) {
+		return FabricLoader.getInstance().getConfigDir().resolve(CACHE_DIR).resolve(name);
+	}
+
 	private File getConfigFile() {
 		Path configDir = FabricLoader.getInstance().getConfigDir();
 		return configDir.resolve(CONFIG_FILE).toFile();
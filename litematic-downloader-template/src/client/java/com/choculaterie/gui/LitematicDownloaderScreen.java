@@ -22,9 +22,9 @@ import net.minecraft.network.chat.Component;
 import org.lwjgl.glfw.GLFW;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,6 +55,10 @@ public class LitematicDownloaderScreen extends Screen {
     private int totalPages = 1;
     private int totalItems = 0;
     private boolean isLoading = false;
+    private int searchGeneration = 0;
+    private CompletableFuture<MinemevSearchResponse> searchRequest = null;
+    private long searchDebounceDeadline = 0;
+    private final SearchResultCache searchCache = new SearchResultCache();
     private String currentSearchQuery = "";
     private boolean noResultsFound = false;
     private boolean showFilterPanel = false;
@@ -65,11 +69,39 @@ public class LitematicDownloaderScreen extends Screen {
     private String bannerSuccessFilename = null;
     private long bannerSuccessTime = 0;
     private static final long BANNER_SUCCESS_DURATION_MS = 2500;
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final long SEARCH_CACHE_TTL_MS = 60_000;
+    private static final int SEARCH_CACHE_SIZE = 32;
 
     private enum BannerState {
         NONE, DETECTED, DOWNLOADING, SUCCESS
     }
 
+    private record CachedSearch(MinemevSearchResponse response, long storedAt) {
+    }
+
+    // Recent result pages by query and filters, so backspacing to an earlier query is answered without a request
+    private static class SearchResultCache extends LinkedHashMap<String, CachedSearch> {
+        SearchResultCache() {
+            super(16, 0.75f, true);
+        }
+
+        MinemevSearchResponse getFresh(String key) {
+            CachedSearch cached = get(key);
+            if (cached == null) return null;
+            if (System.currentTimeMillis() - cached.storedAt() > SEARCH_CACHE_TTL_MS) {
+                remove(key);
+                return null;
+            }
+            return cached.response();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSearch> eldest) {
+            return size() > SEARCH_CACHE_SIZE;
+        }
+    }
+
     public LitematicDownloaderScreen() {
         super(Component.literal("Litematic Downloader"));
     }
@@ -112,6 +144,7 @@ public class LitematicDownloaderScreen extends Screen {
             searchField.setPlaceholder(Component.literal(isCompact ? "Search..." : "Search schematics..."));
             searchField.setOnEnterPressed(this::performSearch);
             searchField.setOnClearPressed(this::performSearch);
+            searchField.setOnChanged(this::onSearchTextChanged);
             if (!previousSearchText.isEmpty()) {
                 searchField.setValue(previousSearchText);
             }
@@ -302,8 +335,9 @@ public class LitematicDownloaderScreen extends Screen {
     }
 
     private void performSearch() {
-        if (isLoading) return;
+        if (isLoading && searchRequest == null) return;
 
+        searchDebounceDeadline = 0;
         searchField.setFocused(false);
 
         currentSearchQuery = searchField.getValue().trim();
@@ -334,29 +368,7 @@ public class LitematicDownloaderScreen extends Screen {
                     if (this.minecraft != null) {
                         this.minecraft.execute(() -> {
                             try {
-                                Path schematicsPath = Paths.get(DownloadSettings.getInstance().getAbsoluteDownloadPath());
-                                File schematicsDir = schematicsPath.toFile();
-                                if (!schematicsDir.exists()) {
-                                    schematicsDir.mkdirs();
-                                }
-
-                                String fileName = result.filename();
-                                if (!fileName.endsWith(".litematic")) {
-                                    fileName += ".litematic";
-                                }
-
-                                File outputFile = new File(schematicsDir, fileName);
-
-                                int counter = 1;
-                                while (outputFile.exists()) {
-                                    String baseName = fileName.substring(0, fileName.lastIndexOf(".litematic"));
-                                    outputFile = new File(schematicsDir, baseName + "_" + counter + ".litematic");
-                                    counter++;
-                                }
-
-                                try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                                    fos.write(result.data());
-                                }
+                                File outputFile = result.file();
 
                                 String savedName = outputFile.getName();
                                 System.out.println("[QuickShare] Saved to: " + outputFile.getAbsolutePath());
@@ -409,29 +421,7 @@ public class LitematicDownloaderScreen extends Screen {
                     if (this.minecraft != null) {
                         this.minecraft.execute(() -> {
                             try {
-                                Path schematicsPath = Paths.get(DownloadSettings.getInstance().getAbsoluteDownloadPath());
-                                File schematicsDir = schematicsPath.toFile();
-                                if (!schematicsDir.exists()) {
-                                    schematicsDir.mkdirs();
-                                }
-
-                                String fileName = result.filename();
-                                if (!fileName.endsWith(".litematic")) {
-                                    fileName += ".litematic";
-                                }
-
-                                File outputFile = new File(schematicsDir, fileName);
-
-                                int counter = 1;
-                                while (outputFile.exists()) {
-                                    String baseName = fileName.substring(0, fileName.lastIndexOf(".litematic"));
-                                    outputFile = new File(schematicsDir, baseName + "_" + counter + ".litematic");
-                                    counter++;
-                                }
-
-                                try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                                    fos.write(result.data());
-                                }
+                                File outputFile = result.file();
 
                                 bannerSuccessFilename = outputFile.getName();
                                 bannerSuccessTime = System.currentTimeMillis();
@@ -471,10 +461,52 @@ public class LitematicDownloaderScreen extends Screen {
                 });
     }
 
+    private void onSearchTextChanged() {
+        String query = searchField.getValue().trim();
+        if (query.equals(currentSearchQuery) || QUICK_SHARE_PATTERN.matcher(query).find()) {
+            searchDebounceDeadline = 0;
+            return;
+        }
+
+        if (isLoading && searchRequest == null) return;
+        cancelSearchRequest();
+        if (searchCache.getFresh(buildSearchKey(query, 1)) != null) {
+            runLiveSearch();
+        } else {
+            searchDebounceDeadline = System.currentTimeMillis() + SEARCH_DEBOUNCE_MS;
+        }
+    }
+
+    private void runLiveSearch() {
+        searchDebounceDeadline = 0;
+        currentSearchQuery = searchField.getValue().trim();
+        currentPage = 1;
+        loadPage();
+    }
+
+    private void cancelSearchRequest() {
+        // Bumping the generation turns any callback still queued for the old request into a no-op
+        searchGeneration++;
+        if (searchRequest != null) {
+            searchRequest.cancel(true);
+            searchRequest = null;
+            isLoading = false;
+            searchButton.active = true;
+        }
+    }
+
+    private String buildSearchKey(String query, int page) {
+        String sort = sortFilterPanel != null ? sortFilterPanel.getSelectedSort() : "newest";
+        String tag = sortFilterPanel != null ? sortFilterPanel.getTagFilter() : null;
+        String excludeVendor = sortFilterPanel != null ? sortFilterPanel.getExcludedVendorsParam() : null;
+        return query + "\n" + sort + "\n" + tag + "\n" + excludeVendor + "\n" + page;
+    }
+
     private void loadPage() {
-        if (isLoading) {
+        if (isLoading && searchRequest == null) {
             return;
         }
+        cancelSearchRequest();
 
         isLoading = true;
         searchButton.active = false;
@@ -482,15 +514,27 @@ public class LitematicDownloaderScreen extends Screen {
         nextPageButton.active = false;
         postList.clear();
 
+        String searchKey = buildSearchKey(currentSearchQuery, currentPage);
+        MinemevSearchResponse cached = searchCache.getFresh(searchKey);
+        if (cached != null) {
+            applySearchResponse(cached);
+            return;
+        }
+
         String sort = sortFilterPanel != null ? sortFilterPanel.getSelectedSort() : "newest";
         String tag = sortFilterPanel != null ? sortFilterPanel.getTagFilter() : null;
         String excludeVendor = sortFilterPanel != null ? sortFilterPanel.getExcludedVendorsParam() : null;
 
-        MinemevNetworkManager.searchPostsAdvanced(currentSearchQuery, sort, 1, currentPage, tag, null, excludeVendor)
-                .thenAccept(this::handleSearchResponse)
+        int generation = searchGeneration;
+        searchRequest = MinemevNetworkManager.searchPostsAdvanced(currentSearchQuery, sort, 1, currentPage, tag, null,
+                excludeVendor, post -> onPostDecoded(generation, post));
+        searchRequest
+                .thenAccept(response -> handleSearchResponse(generation, searchKey, response))
                 .exceptionally(throwable -> {
                     if (this.minecraft != null) {
                         this.minecraft.execute(() -> {
+                            if (generation != searchGeneration) return;
+                            searchRequest = null;
                             isLoading = false;
                             searchButton.active = true;
                             updatePaginationButtons();
@@ -544,22 +588,43 @@ public class LitematicDownloaderScreen extends Screen {
                 });
     }
 
-    private void handleSearchResponse(MinemevSearchResponse response) {
+    private void onPostDecoded(int generation, MinemevPostInfo post) {
         if (this.minecraft != null) {
             this.minecraft.execute(() -> {
-                totalPages = response.totalPages();
-                totalItems = response.totalItems();
+                if (generation == searchGeneration && isLoading) {
+                    postList.appendPosts(new MinemevPostInfo[]{post});
+                }
+            });
+        }
+    }
 
-                MinemevPostInfo[] posts = response.posts();
-                postList.setPosts(posts);
+    private void handleSearchResponse(int generation, String searchKey, MinemevSearchResponse response) {
+        if (this.minecraft != null) {
+            this.minecraft.execute(() -> {
+                // Latest wins: a response for a superseded query is dropped even if it arrives last
+                if (generation != searchGeneration) return;
+                searchRequest = null;
+                searchCache.put(searchKey, new CachedSearch(response, System.currentTimeMillis()));
+                applySearchResponse(response);
+            });
+        }
+    }
 
-                isLoading = false;
-                searchButton.active = true;
-                updatePaginationButtons();
+    private void applySearchResponse(MinemevSearchResponse response) {
+        totalPages = response.totalPages();
+        totalItems = response.totalItems();
 
-                noResultsFound = (totalItems == 0);
-            });
+        // Rows were already appended while decoding; only rebuild if a retry or fallback duplicated some
+        MinemevPostInfo[] posts = response.posts();
+        if (postList.getPostCount() != posts.length) {
+            postList.setPosts(posts);
         }
+
+        isLoading = false;
+        searchButton.active = true;
+        updatePaginationButtons();
+
+        noResultsFound = (totalItems == 0);
     }
 
     private void updatePaginationButtons() {
@@ -602,6 +667,7 @@ public class LitematicDownloaderScreen extends Screen {
     }
 
     public void refreshPostList() {
+        searchCache.clear();
         currentPage = 1;
         loadPage();
     }
@@ -678,7 +744,11 @@ public class LitematicDownloaderScreen extends Screen {
             }
         }
 
-        if (isLoading) {
+        if (searchDebounceDeadline != 0 && System.currentTimeMillis() >= searchDebounceDeadline) {
+            runLiveSearch();
+        }
+
+        if (isLoading && postList.getPostCount() == 0) {
             loadingSpinner.extractRenderState(context, listMouseX, listMouseY, delta);
         }
 
@@ -908,6 +978,7 @@ public class LitematicDownloaderScreen extends Screen {
 
     @Override
     public void onClose() {
+        cancelSearchRequest();
         CustomTextField.restoreMinecraftCharCallback();
         super.onClose();
     }
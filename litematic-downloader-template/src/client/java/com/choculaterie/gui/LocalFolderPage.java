@@ -3,17 +3,23 @@ package com.choculaterie.gui;
 import org.lwjgl.glfw.GLFW;
 import com.choculaterie.config.DownloadSettings;
 import com.choculaterie.gui.localfolder.FileOperationsManager;
+import com.choculaterie.gui.localfolder.FileTaskRunner;
+import com.choculaterie.gui.localfolder.LocalDirectoryModel;
+import com.choculaterie.gui.localfolder.LocalMetadataLoader;
 import com.choculaterie.gui.localfolder.LocalFolderSearchManager;
 import com.choculaterie.gui.localfolder.LocalFolderSelectionManager;
 import com.choculaterie.gui.theme.UITheme;
 import com.choculaterie.gui.widget.ConfirmPopup;
 import com.choculaterie.gui.widget.CustomButton;
 import com.choculaterie.gui.widget.CustomTextField;
+import com.choculaterie.gui.widget.ImagePipeline;
 import com.choculaterie.gui.widget.LitematicDetailPanel;
 import com.choculaterie.gui.widget.ScrollBar;
 import com.choculaterie.gui.widget.TextInputPopup;
 import com.choculaterie.gui.widget.ToastManager;
 import com.choculaterie.network.ChoculaterieNetworkManager;
+import com.choculaterie.util.LitematicMetadata;
+import com.choculaterie.util.LocalSchematicIndex;
 import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.Component;
@@ -22,9 +28,12 @@ import net.minecraft.util.Util;
 import java.awt.Toolkit;
 import java.awt.datatransfer.StringSelection;
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class LocalFolderPage extends Screen {
     private static final int PADDING = 10;
@@ -34,10 +43,34 @@ public class LocalFolderPage extends Screen {
     private static final int SCROLLBAR_PADDING = 2;
     private static final long COPIED_DISPLAY_DURATION = 2000;
     private static final int MAX_UNDO_HISTORY = 50;
+    private static final long INDEX_REFRESH_INTERVAL_MS = 500;
+    private static final long METADATA_SORT_INTERVAL_MS = 500;
+    private static final int DIMENSIONS_COLUMN_WIDTH = 70;
+    private static final int BLOCKS_COLUMN_WIDTH = 50;
+    private static final int AUTHOR_COLUMN_WIDTH = 80;
+    private static final int MIN_COLUMNS_LIST_WIDTH = 520;
+    private static final int GRID_CELL_WIDTH = 96;
+    private static final int GRID_CELL_HEIGHT = 100;
 
     private final Screen parentScreen;
     private final LocalFolderSelectionManager selectionManager = new LocalFolderSelectionManager();
     private final LocalFolderSearchManager searchManager = new LocalFolderSearchManager();
+    private final LocalSchematicIndex schematicIndex = LocalSchematicIndex.getInstance();
+    private final LocalDirectoryModel directoryModel = new LocalDirectoryModel();
+    private final FileTaskRunner fileTasks = new FileTaskRunner();
+    private DeletePreview deletePreview;
+    private final LocalMetadataLoader metadataLoader = LocalMetadataLoader.getInstance();
+    private long metadataVersionSeen = -1;
+    private long lastMetadataSort = 0;
+    private SortColumn sortColumn = SortColumn.NAME;
+    private boolean sortAscending = true;
+    private final List<ColumnHeader> columnHeaders = new ArrayList<>();
+    private boolean gridView = DownloadSettings.getInstance().isLocalGridView();
+    // Litematics in grid cells drawn last frame, read by thumbnail decode threads
+    private volatile Set<File> visiblePreviews = Set.of();
+    private long directoryVersionSeen = -1;
+    private long indexVersionSeen = -1;
+    private long lastIndexRefresh = 0;
 
     private FileOperationsManager fileOpsManager;
     private CustomButton renameButton;
@@ -128,6 +161,42 @@ public class LocalFolderPage extends Screen {
         }
     }
 
+    private enum SortColumn {
+        NAME, DIMENSIONS, BLOCKS, AUTHOR
+    }
+
+    private static class ColumnHeader {
+        final int x;
+        final int width;
+        final SortColumn column;
+
+        ColumnHeader(int x, int width, SortColumn column) {
+            this.x = x;
+            this.width = width;
+            this.column = column;
+        }
+    }
+
+    private static class DeletePreview {
+        // Partial trees are republished at most this often while the walk runs
+        static final long PUBLISH_INTERVAL_NANOS = 100_000_000L;
+
+        final String header;
+        final FileTaskRunner.TreeCounts counts = new FileTaskRunner.TreeCounts();
+        final StringBuilder builder = new StringBuilder();
+        volatile String tree;
+        long publishedAt;
+        FileTaskRunner.Task task;
+        String shownTree;
+        boolean shownDone = false;
+        int shownFolders = -1;
+        int shownFiles = -1;
+
+        DeletePreview(String header) {
+            this.header = header;
+        }
+    }
+
     private static class BreadcrumbSegment {
         final int x;
         final int width;
@@ -164,6 +233,9 @@ public class LocalFolderPage extends Screen {
         final File file;
         final boolean isDirectory;
         String relativePath;
+        long size = -1;
+        long lastModified = -1;
+        LitematicMetadata metadata;
 
         FileEntry(File file) {
             this.file = file;
@@ -176,6 +248,22 @@ public class LocalFolderPage extends Screen {
             this.isDirectory = file.isDirectory();
             this.relativePath = relativePath;
         }
+
+        FileEntry(File file, boolean isDirectory, String relativePath) {
+            this.file = file;
+            this.isDirectory = isDirectory;
+            this.relativePath = relativePath;
+        }
+
+        FileEntry(File file, boolean isDirectory, String relativePath, long size, long lastModified) {
+            this(file, isDirectory, relativePath);
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        boolean isLitematic() {
+            return !isDirectory && size >= 0 && file.getName().toLowerCase().endsWith(".litematic");
+        }
     }
 
     public LocalFolderPage(Screen parentScreen) {
@@ -224,6 +312,9 @@ public class LocalFolderPage extends Screen {
             scrollOffset = 0;
         }
 
+        // Every (re)init is also the point where files may have changed on disk
+        schematicIndex.open(this.baseDirectory.toPath());
+        directoryModel.setChangeListener(schematicIndex::requestScan);
         loadEntries();
 
         int savedScrollOffset = scrollOffset;
@@ -285,7 +376,12 @@ public class LocalFolderPage extends Screen {
                     settingsX, PADDING, BUTTON_HEIGHT, BUTTON_HEIGHT,
                     Component.literal("⚙"), button -> openSettings()));
 
-            int searchWidth = settingsX - currentX - PADDING;
+            int viewToggleX = settingsX - PADDING - BUTTON_HEIGHT;
+            this.addRenderableWidget(new CustomButton(
+                    viewToggleX, PADDING, BUTTON_HEIGHT, BUTTON_HEIGHT,
+                    Component.literal(gridView ? "☰" : "▦"), button -> toggleGridView()));
+
+            int searchWidth = viewToggleX - currentX - PADDING;
             if (this.minecraft != null && searchWidth > 30) {
                 searchField = new CustomTextField(this.minecraft, currentX, PADDING, searchWidth, BUTTON_HEIGHT,
                         Component.literal("Search"));
@@ -332,7 +428,7 @@ public class LocalFolderPage extends Screen {
             }
         }
 
-        int contentHeight = entries.size() * ITEM_HEIGHT;
+        int contentHeight = getContentHeight();
         int maxScroll = getMaxScroll();
         scrollBar.setScrollData(contentHeight, listHeight);
         scrollOffset = Math.max(0, Math.min(maxScroll, savedScrollOffset));
@@ -537,7 +633,7 @@ public class LocalFolderPage extends Screen {
                 toastManager.showSuccess("Created folder \"" + folderName + "\"");
             }
             closePopup();
-            loadEntries();
+            reloadAfterFileChange();
         } else {
             if (activePopup != null) {
                 activePopup.setErrorMessage("Failed to create folder - check folder permissions");
@@ -548,6 +644,10 @@ public class LocalFolderPage extends Screen {
     private void closePopup() {
         activePopup = null;
         confirmPopup = null;
+        if (deletePreview != null) {
+            deletePreview.task.cancel();
+            deletePreview = null;
+        }
     }
 
     private void openRenamePopup() {
@@ -611,7 +711,7 @@ public class LocalFolderPage extends Screen {
                 toastManager.showSuccess("Renamed to \"" + newName + "\"");
             }
             closePopup();
-            loadEntries();
+            reloadAfterFileChange();
         } else {
             if (activePopup != null) {
                 activePopup.setErrorMessage("Failed to rename - file may be in use or protected");
@@ -640,78 +740,35 @@ public class LocalFolderPage extends Screen {
         if (shiftHeld) {
             deleteSelectedFiles();
         } else {
-            String message;
             String title;
-            List<Integer> selected = selectionManager.getSelectedIndices();
+            String header;
+            List<FileEntry> selectedEntries = new ArrayList<>();
+            for (int idx : selectionManager.getSelectedIndices()) {
+                if (idx >= 0 && idx < entries.size()) {
+                    selectedEntries.add(entries.get(idx));
+                }
+            }
+            if (selectedEntries.isEmpty()) {
+                return;
+            }
+            selectedEntries.sort((a, b) -> {
+                if (a.isDirectory && !b.isDirectory)
+                    return -1;
+                if (!a.isDirectory && b.isDirectory)
+                    return 1;
+                return a.file.getName().compareToIgnoreCase(b.file.getName());
+            });
+            boolean hasFolders = selectedEntries.getFirst().isDirectory;
 
             if (selectionManager.getSelectionCount() == 1) {
-                FileEntry entry = entries.get(selected.getFirst());
+                FileEntry entry = selectedEntries.getFirst();
                 String itemType = entry.isDirectory ? "folder" : "file";
                 title = "Delete " + itemType + "?";
-
-                if (entry.isDirectory) {
-                    StringBuilder messageBuilder = new StringBuilder();
-                    messageBuilder.append("Are you sure you want to delete \"").append(entry.file.getName())
-                            .append("\"?\n\n");
-                    messageBuilder.append("Contents:\n");
-                    buildDeleteTree(entry.file, messageBuilder, "", true);
-                    message = messageBuilder.toString();
-                } else {
-                    message = "Are you sure you want to delete \"" + entry.file.getName() + "\"?";
-                }
+                header = "Are you sure you want to delete \"" + entry.file.getName() + "\"?";
             } else {
                 title = "Delete " + selectionManager.getSelectionCount() + " items?";
-
-                boolean hasFolders = false;
-                for (int idx : selected) {
-                    if (idx >= 0 && idx < entries.size() && entries.get(idx).isDirectory) {
-                        hasFolders = true;
-                        break;
-                    }
-                }
-
-                if (hasFolders) {
-                    StringBuilder messageBuilder = new StringBuilder();
-                    messageBuilder.append("Are you sure you want to delete ")
-                            .append(selectionManager.getSelectionCount()).append(" selected items?\n\n");
-                    messageBuilder.append("Items to delete:\n");
-
-                    List<FileEntry> selectedEntries = new ArrayList<>();
-                    for (int idx : selected) {
-                        if (idx >= 0 && idx < entries.size()) {
-                            selectedEntries.add(entries.get(idx));
-                        }
-                    }
-                    selectedEntries.sort((a, b) -> {
-                        if (a.isDirectory && !b.isDirectory)
-                            return -1;
-                        if (!a.isDirectory && b.isDirectory)
-                            return 1;
-                        return a.file.getName().compareToIgnoreCase(b.file.getName());
-                    });
-
-                    for (int i = 0; i < selectedEntries.size(); i++) {
-                        FileEntry entry = selectedEntries.get(i);
-                        boolean isLast = (i == selectedEntries.size() - 1);
-                        String connector = isLast ? "└── " : "├── ";
-
-                        if (entry.isDirectory) {
-                            File[] subFiles = entry.file.listFiles();
-                            boolean isEmpty = subFiles == null || subFiles.length == 0;
-                            messageBuilder.append(connector).append("📁 ").append(entry.file.getName()).append("/\n");
-                            if (!isEmpty) {
-                                String newIndent = isLast ? "    " : "│   ";
-                                buildDeleteTree(entry.file, messageBuilder, newIndent, false);
-                            }
-                        } else {
-                            messageBuilder.append(connector).append("📄 ").append(entry.file.getName()).append("\n");
-                        }
-                    }
-                    message = messageBuilder.toString();
-                } else {
-                    message = "Are you sure you want to delete " + selectionManager.getSelectionCount()
-                            + " selected items?";
-                }
+                header = "Are you sure you want to delete " + selectionManager.getSelectionCount()
+                        + " selected items?";
             }
 
             if (searchField != null) {
@@ -720,53 +777,135 @@ public class LocalFolderPage extends Screen {
             confirmPopup = new ConfirmPopup(
                     this,
                     title,
-                    message,
+                    header,
                     () -> {
                         deleteSelectedFiles();
                         closePopup();
                     },
                     this::closePopup);
+            if (hasFolders) {
+                startDeletePreview(header, selectedEntries);
+            }
         }
     }
 
-    private void deleteSelectedFiles() {
-        if (!selectionManager.hasSelection()) {
+    // Lists and counts the folders in one background walk, the open popup fills in as results arrive
+    private void startDeletePreview(String header, List<FileEntry> targets) {
+        DeletePreview preview = new DeletePreview(header);
+        preview.task = fileTasks.scan(task -> {
+            StringBuilder builder = preview.builder;
+            preview.publishedAt = System.nanoTime();
+            if (targets.size() == 1) {
+                builder.append("Contents:\n");
+                walkDeleteTree(FileTaskRunner.list(targets.getFirst().file.toPath(), task), preview, "", true, task);
+            } else {
+                builder.append("Items to delete:\n");
+                for (int i = 0; i < targets.size() && !task.isCancelled(); i++) {
+                    FileEntry entry = targets.get(i);
+                    boolean isLast = (i == targets.size() - 1);
+                    String connector = isLast ? "└── " : "├── ";
+
+                    if (entry.isDirectory) {
+                        List<FileTaskRunner.Child> children = FileTaskRunner.list(entry.file.toPath(), task);
+                        builder.append(connector).append("📁 ").append(entry.file.getName()).append("/\n");
+                        String newIndent = isLast ? "    " : "│   ";
+                        walkDeleteTree(children, preview, newIndent, !children.isEmpty(), task);
+                    } else {
+                        builder.append(connector).append("📄 ").append(entry.file.getName()).append("\n");
+                    }
+                }
+            }
+            preview.tree = builder.toString();
+        });
+        deletePreview = preview;
+        updateDeletePreview();
+    }
+
+    private void updateDeletePreview() {
+        DeletePreview preview = deletePreview;
+        if (preview == null || confirmPopup == null) {
             return;
         }
 
-        if (!trashFolder.exists()) {
-            trashFolder.mkdirs();
+        boolean done = preview.task.isDone();
+        String tree = preview.tree;
+        int totalFolders = preview.counts.folders.get();
+        int totalFiles = preview.counts.files.get();
+        if (tree == preview.shownTree && done == preview.shownDone
+                && totalFolders == preview.shownFolders && totalFiles == preview.shownFiles) {
+            return;
+        }
+        preview.shownTree = tree;
+        preview.shownDone = done;
+        preview.shownFolders = totalFolders;
+        preview.shownFiles = totalFiles;
+
+        StringBuilder message = new StringBuilder(preview.header).append("\n\n");
+        message.append(tree != null ? tree : "Scanning...\n");
+        if (done && totalFolders + totalFiles > 0) {
+            message.append("\n");
+            if (totalFolders > 0) {
+                message.append("Total: ").append(totalFolders).append(" folder(s), ").append(totalFiles)
+                        .append(" file(s)");
+            } else {
+                message.append("Total: ").append(totalFiles).append(" file(s)");
+            }
+        }
+        confirmPopup.setMessage(message.toString());
+        confirmPopup.setProgress(done ? null
+                : "Counting... " + totalFiles + " file(s), " + totalFolders + " folder(s)");
+    }
+
+    private void deleteSelectedFiles() {
+        if (!selectionManager.hasSelection()) {
+            return;
         }
 
         List<Integer> sortedIndices = new ArrayList<>(selectionManager.getSelectedIndices());
         sortedIndices.sort((a, b) -> b - a);
 
-        int successCount = 0;
-        int failCount = 0;
-        List<String> failedNames = new ArrayList<>();
-        List<FileOperation> successfulOperations = new ArrayList<>();
-
+        List<FileEntry> targets = new ArrayList<>();
         for (int index : sortedIndices) {
             if (index >= 0 && index < entries.size()) {
-                FileEntry entry = entries.get(index);
+                targets.add(entries.get(index));
+            }
+        }
+        selectionManager.clearSelection();
+        updateSelectionButtons();
+
+        File trash = trashFolder;
+        fileTasks.write(() -> {
+            if (!trash.exists()) {
+                trash.mkdirs();
+            }
+
+            List<String> failedNames = new ArrayList<>();
+            List<FileOperation> successfulOperations = new ArrayList<>();
+
+            for (FileEntry entry : targets) {
                 File sourceFile = entry.file;
 
                 String trashName = System.currentTimeMillis() + "_" + sourceFile.getName();
-                File trashFile = new File(trashFolder, trashName);
+                File trashFile = new File(trash, trashName);
 
                 boolean success = sourceFile.renameTo(trashFile);
 
                 if (success) {
-                    successCount++;
                     successfulOperations.add(new FileOperation(sourceFile, trashFile, entry.isDirectory));
                     System.out.println("Moved to trash: " + sourceFile.getName());
                 } else {
-                    failCount++;
                     failedNames.add(sourceFile.getName());
                     System.err.println("Failed to delete: " + sourceFile.getAbsolutePath());
                 }
             }
-        }
+
+            runOnRenderThread(() -> finishDelete(failedNames, successfulOperations));
+        });
+    }
+
+    private void finishDelete(List<String> failedNames, List<FileOperation> successfulOperations) {
+        int successCount = successfulOperations.size();
+        int failCount = failedNames.size();
 
         if (!successfulOperations.isEmpty()) {
             addUndoAction(new FileAction(FileAction.Type.DELETE, successfulOperations));
@@ -801,32 +940,38 @@ public class LocalFolderPage extends Screen {
             }
         }
 
-        loadEntries();
+        reloadAfterFileChange();
     }
 
     private void performMove(File targetFolder) {
-        if (!selectionManager.hasSelection() || targetFolder == null || !targetFolder.isDirectory()) {
+        if (!selectionManager.hasSelection() || targetFolder == null) {
             return;
         }
 
-        int successCount = 0;
-        int conflictCount = 0;
-        int otherFailCount = 0;
-        List<String> conflictNames = new ArrayList<>();
-        List<String> otherFailNames = new ArrayList<>();
-        List<FileOperation> successfulOperations = new ArrayList<>();
-
         List<Integer> sortedIndices = new ArrayList<>(selectionManager.getSelectedIndices());
         sortedIndices.sort((a, b) -> b - a);
 
+        List<FileEntry> targets = new ArrayList<>();
         for (int index : sortedIndices) {
             if (index >= 0 && index < entries.size()) {
-                FileEntry entry = entries.get(index);
+                targets.add(entries.get(index));
+            }
+        }
+
+        fileTasks.write(() -> {
+            if (!targetFolder.isDirectory()) {
+                return;
+            }
+
+            List<String> conflictNames = new ArrayList<>();
+            List<String> otherFailNames = new ArrayList<>();
+            List<FileOperation> successfulOperations = new ArrayList<>();
+
+            for (FileEntry entry : targets) {
                 File sourceFile = entry.file;
                 File destFile = new File(targetFolder, sourceFile.getName());
 
                 if (destFile.exists()) {
-                    conflictCount++;
                     conflictNames.add(sourceFile.getName());
                     System.err.println("Cannot move: destination already exists: " + destFile.getAbsolutePath());
                     continue;
@@ -835,16 +980,23 @@ public class LocalFolderPage extends Screen {
                 boolean success = sourceFile.renameTo(destFile);
 
                 if (success) {
-                    successCount++;
                     successfulOperations.add(new FileOperation(sourceFile, destFile, entry.isDirectory));
                     System.out.println("Moved: " + sourceFile.getName() + " -> " + targetFolder.getName());
                 } else {
-                    otherFailCount++;
                     otherFailNames.add(sourceFile.getName());
                     System.err.println("Failed to move: " + sourceFile.getAbsolutePath());
                 }
             }
-        }
+
+            runOnRenderThread(() -> finishMove(targetFolder, conflictNames, otherFailNames, successfulOperations));
+        });
+    }
+
+    private void finishMove(File targetFolder, List<String> conflictNames, List<String> otherFailNames,
+            List<FileOperation> successfulOperations) {
+        int successCount = successfulOperations.size();
+        int conflictCount = conflictNames.size();
+        int otherFailCount = otherFailNames.size();
 
         if (!successfulOperations.isEmpty()) {
             addUndoAction(new FileAction(FileAction.Type.MOVE, successfulOperations));
@@ -894,109 +1046,66 @@ public class LocalFolderPage extends Screen {
             }
         }
 
-        loadEntries();
-    }
-
-    private int[] countFilesRecursively(File directory) {
-        int[] counts = new int[2];
-
-        if (!directory.isDirectory()) {
-            return counts;
-        }
-
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return counts;
-        }
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                counts[0]++;
-                int[] subCounts = countFilesRecursively(file);
-                counts[0] += subCounts[0];
-                counts[1] += subCounts[1];
-            } else {
-                counts[1]++;
-            }
-        }
-
-        return counts;
+        reloadAfterFileChange();
     }
 
-    private void buildDeleteTree(File directory, StringBuilder builder, String indent, boolean showCount) {
-        if (!directory.isDirectory())
-            return;
-
-        File[] files = directory.listFiles();
-        if (files == null || files.length == 0) {
+    // Counts every descendant, but only lists the first levels and items of each folder in the tree text
+    private void walkDeleteTree(List<FileTaskRunner.Child> children, DeletePreview preview, String indent,
+            boolean display, FileTaskRunner.Task task) {
+        StringBuilder builder = preview.builder;
+        if (display && children.isEmpty()) {
             builder.append(indent).append("(empty)\n");
             return;
         }
 
-        Arrays.sort(files, (a, b) -> {
-            if (a.isDirectory() && !b.isDirectory())
-                return -1;
-            if (!a.isDirectory() && b.isDirectory())
-                return 1;
-            return a.getName().compareToIgnoreCase(b.getName());
-        });
-
         int maxItems = 20;
 
-        int shown = 0;
-        for (int i = 0; i < files.length; i++) {
-            File file = files[i];
-            if (shown >= maxItems) {
-                int remaining = files.length - shown;
+        for (int i = 0; i < children.size() && !task.isCancelled(); i++) {
+            FileTaskRunner.Child child = children.get(i);
+            if (display && i == maxItems) {
+                int remaining = children.size() - i;
                 builder.append(indent).append("└── ... and ").append(remaining).append(" more item(s)\n");
-                break;
             }
+            boolean shown = display && i < maxItems;
 
-            boolean isLast = (i == files.length - 1) || (shown == maxItems - 1 && files.length > maxItems);
+            boolean isLast = (i == children.size() - 1) || (i == maxItems - 1 && children.size() > maxItems);
             String connector = isLast ? "└── " : "├── ";
 
-            if (file.isDirectory()) {
-                File[] subFiles = file.listFiles();
-                boolean isEmpty = subFiles == null || subFiles.length == 0;
-                builder.append(indent).append(connector).append("📁 ").append(file.getName()).append("/\n");
+            if (child.isDirectory()) {
+                if (shown) {
+                    builder.append(indent).append(connector).append("📁 ").append(child.file().getName()).append("/\n");
+                }
 
-                if (!isEmpty && indent.length() < 12) {
-                    String newIndent = indent + (isLast ? "    " : "│   ");
-                    buildDeleteTree(file, builder, newIndent, false);
+                // Linked folders are not followed, so a link cycle can't keep the walk going
+                Path path = child.file().toPath();
+                if (Files.isSymbolicLink(path)) {
+                    preview.counts.files.incrementAndGet();
+                    continue;
                 }
+                preview.counts.folders.incrementAndGet();
+                List<FileTaskRunner.Child> grandchildren = FileTaskRunner.list(path, task);
+                String newIndent = indent + (isLast ? "    " : "│   ");
+                walkDeleteTree(grandchildren, preview, newIndent,
+                        shown && indent.length() < 12 && !grandchildren.isEmpty(), task);
             } else {
-                builder.append(indent).append(connector).append("📄 ").append(file.getName()).append("\n");
+                if (shown) {
+                    builder.append(indent).append(connector).append("📄 ").append(child.file().getName()).append("\n");
+                }
+                preview.counts.files.incrementAndGet();
             }
-            shown++;
         }
 
-        if (showCount && files.length > 0) {
-            int[] counts = countFilesRecursively(directory);
-            int totalFolders = counts[0];
-            int totalFiles = counts[1];
-
-            builder.append("\n");
-            if (totalFolders > 0) {
-                builder.append("Total: ").append(totalFolders).append(" folder(s), ").append(totalFiles)
-                        .append(" file(s)");
-            } else {
-                builder.append("Total: ").append(totalFiles).append(" file(s)");
-            }
+        long now = System.nanoTime();
+        if (now - preview.publishedAt >= DeletePreview.PUBLISH_INTERVAL_NANOS) {
+            preview.publishedAt = now;
+            preview.tree = builder.toString();
         }
     }
 
-    private boolean deleteDirectoryRecursively(File directory) {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteDirectoryRecursively(file);
-                } else {
-                    file.delete();
-                }
-            }
+    private void runOnRenderThread(Runnable action) {
+        if (this.minecraft != null) {
+            this.minecraft.execute(action);
         }
-        return directory.delete();
     }
 
     private void updateSelectionButtons() {
@@ -1042,70 +1151,34 @@ public class LocalFolderPage extends Screen {
         selectionManager.clearSelection();
         scrollOffset = 0;
 
-        searchRecursively(baseDirectory, "");
-
-        entries.sort((a, b) -> {
-            if (a.isDirectory && !b.isDirectory)
-                return -1;
-            if (!a.isDirectory && b.isDirectory)
-                return 1;
-            return a.file.getName().compareToIgnoreCase(b.file.getName());
-        });
+        collectSearchResults();
+        sortEntries();
 
         updateScrollBar();
         updateSelectionButtons();
     }
 
-    private void searchRecursively(File directory, String pathPrefix) {
-        if (directory == null || !directory.exists() || !directory.isDirectory()) {
-            return;
-        }
-
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return;
-        }
-
-        for (File file : files) {
-            if (file.getName().equals(".trash")) {
-                continue;
-            }
-
-            String fileName = file.getName().toLowerCase();
-            String currentPath = pathPrefix.isEmpty() ? file.getName() : pathPrefix + "/" + file.getName();
-
-            if (fileName.contains(searchManager.getSearchQuery())) {
-                String relativePath = getRelativePath(file);
-                entries.add(new FileEntry(file, relativePath));
-            }
+    private void collectSearchResults() {
+        indexVersionSeen = schematicIndex.getVersion();
+        lastIndexRefresh = System.currentTimeMillis();
 
-            if (file.isDirectory()) {
-                searchRecursively(file, currentPath);
-            }
+        for (LocalSchematicIndex.Entry match : schematicIndex.search(searchManager.getSearchQuery())) {
+            int lastSlash = match.relativePath.lastIndexOf('/');
+            String parentPath = lastSlash > 0 ? match.relativePath.substring(0, lastSlash).replace('/', File.separatorChar) : "";
+            entries.add(new FileEntry(schematicIndex.resolve(match), match.directory, parentPath, match.size,
+                    match.lastModified));
         }
     }
 
-    private String getRelativePath(File file) {
-        if (baseDirectory == null || file == null) {
-            return "";
-        }
-        try {
-            String basePath = baseDirectory.getCanonicalPath();
-            String filePath = file.getCanonicalPath();
-            if (filePath.startsWith(basePath)) {
-                String relative = filePath.substring(basePath.length());
-                if (relative.startsWith(File.separator)) {
-                    relative = relative.substring(1);
-                }
-                int lastSep = relative.lastIndexOf(File.separator);
-                if (lastSep > 0) {
-                    return relative.substring(0, lastSep);
-                }
-                return "";
-            }
-        } catch (Exception e) {
-        }
-        return "";
+    // Picks up files the background indexer finished since the last query without resetting the view
+    private void refreshSearchResults() {
+        if (!searchManager.isActive() || isDragging || selectionManager.hasSelection()) return;
+        if (schematicIndex.getVersion() == indexVersionSeen) return;
+        if (System.currentTimeMillis() - lastIndexRefresh < INDEX_REFRESH_INTERVAL_MS) return;
+
+        int previousScroll = scrollOffset;
+        performSearch();
+        scrollOffset = Math.min(previousScroll, getMaxScroll());
     }
 
     private String truncateText(String text, int maxWidth) {
@@ -1129,6 +1202,12 @@ public class LocalFolderPage extends Screen {
         return truncated + ellipsis;
     }
 
+    // The index doesn't watch the library, so whatever changes files here asks it for a rescan
+    private void reloadAfterFileChange() {
+        schematicIndex.requestScan();
+        loadEntries();
+    }
+
     private void loadEntries() {
         entries.clear();
         selectionManager.clearSelection();
@@ -1138,42 +1217,271 @@ public class LocalFolderPage extends Screen {
             return;
         }
 
-        if (currentDirectory != null && currentDirectory.exists()) {
-            File[] files = currentDirectory.listFiles();
-            if (files != null) {
-                Arrays.sort(files, (a, b) -> {
-                    if (a.isDirectory() && !b.isDirectory())
-                        return -1;
-                    if (!a.isDirectory() && b.isDirectory())
-                        return 1;
-                    return a.getName().compareToIgnoreCase(b.getName());
-                });
+        if (currentDirectory != null) {
+            directoryModel.open(currentDirectory);
+            collectDirectoryEntries();
+        }
+
+        updateScrollBar();
+        updateSelectionButtons();
+    }
 
-                for (File file : files) {
-                    if (file.getName().equals(".trash")) {
-                        continue;
+    private void collectDirectoryEntries() {
+        directoryVersionSeen = directoryModel.getVersion();
+        for (LocalDirectoryModel.Item item : directoryModel.getItems()) {
+            entries.add(new FileEntry(item.file(), item.isDirectory(), null, item.size(), item.lastModified()));
+        }
+        // The model already lists directories first by name
+        if (sortColumn != SortColumn.NAME || !sortAscending) {
+            sortEntries();
+        }
+    }
+
+    // Applies listing changes from the directory model while keeping the selection and scroll position
+    private void syncDirectoryEntries() {
+        if (searchManager.isActive() || isDragging || directoryModel.getVersion() == directoryVersionSeen) return;
+
+        Set<File> selectedFiles = getSelectedFiles();
+        entries.clear();
+        collectDirectoryEntries();
+        restoreSelection(selectedFiles);
+
+        int maxScroll = getMaxScroll();
+        scrollOffset = Math.max(0, Math.min(maxScroll, scrollOffset));
+        if (scrollBar != null) {
+            int listY = PADDING * 3 + BUTTON_HEIGHT + 18;
+            scrollBar.setScrollData(getContentHeight(), this.height - listY - PADDING);
+            if (maxScroll > 0) {
+                scrollBar.setScrollPercentage((double) scrollOffset / maxScroll);
+            }
+        }
+        updateSelectionButtons();
+    }
+
+    private Set<File> getSelectedFiles() {
+        Set<File> selectedFiles = new HashSet<>();
+        for (int index : selectionManager.getSelectedIndices()) {
+            if (index >= 0 && index < entries.size()) {
+                selectedFiles.add(entries.get(index).file);
+            }
+        }
+        return selectedFiles;
+    }
+
+    private void restoreSelection(Set<File> selectedFiles) {
+        selectionManager.clearSelection();
+        for (int i = 0; i < entries.size() && !selectedFiles.isEmpty(); i++) {
+            if (selectedFiles.contains(entries.get(i).file)) {
+                selectionManager.toggleSelection(i);
+            }
+        }
+    }
+
+    // Directories stay on top; files without a readable header sort after the rest in either direction
+    private void sortEntries() {
+        metadataVersionSeen = metadataLoader.getVersion();
+        lastMetadataSort = System.currentTimeMillis();
+
+        if (sortColumn != SortColumn.NAME) {
+            for (FileEntry entry : entries) {
+                if (entry.isLitematic()) {
+                    entry.metadata = metadataLoader.peek(entry.file, entry.size, entry.lastModified);
+                    if (entry.metadata == null) {
+                        metadataLoader.prefetch(entry.file, entry.size, entry.lastModified);
                     }
-                    entries.add(new FileEntry(file));
                 }
             }
         }
 
-        updateScrollBar();
-        updateSelectionButtons();
+        entries.sort((a, b) -> {
+            if (a.isDirectory && !b.isDirectory)
+                return -1;
+            if (!a.isDirectory && b.isDirectory)
+                return 1;
+
+            int result = 0;
+            if (sortColumn != SortColumn.NAME) {
+                if (a.metadata == null || b.metadata == null) {
+                    if (a.metadata != b.metadata) {
+                        return a.metadata == null ? 1 : -1;
+                    }
+                } else {
+                    result = switch (sortColumn) {
+                        case DIMENSIONS -> Long.compare(getVolume(a.metadata), getVolume(b.metadata));
+                        case BLOCKS -> Long.compare(a.metadata.totalBlocks, b.metadata.totalBlocks);
+                        case AUTHOR -> compareText(a.metadata.author, b.metadata.author);
+                        default -> 0;
+                    };
+                }
+            }
+            if (result == 0) {
+                result = a.file.getName().compareToIgnoreCase(b.file.getName());
+            }
+            return sortAscending ? result : -result;
+        });
+    }
+
+    // Re-sorts as headers finish loading while a metadata column is the sort key
+    private void refreshMetadataSort() {
+        if (sortColumn == SortColumn.NAME || isDragging || metadataLoader.getVersion() == metadataVersionSeen) return;
+        if (System.currentTimeMillis() - lastMetadataSort < METADATA_SORT_INTERVAL_MS) return;
+
+        Set<File> selectedFiles = getSelectedFiles();
+        sortEntries();
+        restoreSelection(selectedFiles);
     }
 
+    // First click sorts by the column, the second reverses it and the third goes back to name order
+    private void onColumnHeaderClicked(SortColumn column) {
+        if (sortColumn != column) {
+            sortColumn = column;
+            sortAscending = column == SortColumn.AUTHOR;
+        } else if (sortAscending == (column == SortColumn.AUTHOR)) {
+            sortAscending = !sortAscending;
+        } else {
+            sortColumn = SortColumn.NAME;
+            sortAscending = true;
+        }
+
+        Set<File> selectedFiles = getSelectedFiles();
+        if (sortColumn == SortColumn.NAME) {
+            metadataLoader.cancelPending();
+        }
+        sortEntries();
+        restoreSelection(selectedFiles);
+    }
+
+    private static long getVolume(LitematicMetadata metadata) {
+        return (long) Math.abs(metadata.enclosingSize[0]) * Math.abs(metadata.enclosingSize[1])
+                * Math.abs(metadata.enclosingSize[2]);
+    }
+
+    private static int compareText(String a, String b) {
+        return (a != null ? a : "").compareToIgnoreCase(b != null ? b : "");
+    }
+
+    private static String formatDimensions(LitematicMetadata metadata) {
+        return Math.abs(metadata.enclosingSize[0]) + "x" + Math.abs(metadata.enclosingSize[1]) + "x"
+                + Math.abs(metadata.enclosingSize[2]);
+    }
+
+    private static String formatBlockCount(long blocks) {
+        if (blocks >= 1_000_000) {
+            return String.format("%.1fM", blocks / 1_000_000.0);
+        }
+        if (blocks >= 10_000) {
+            return String.format("%.1fk", blocks / 1000.0);
+        }
+        return Long.toString(blocks);
+    }
+
+    private boolean showMetadataColumns(int listRightEdge) {
+        return !showDetailPanel && listRightEdge - PADDING >= MIN_COLUMNS_LIST_WIDTH;
+    }
+
+    // Columns sit left of the share button, right to left: author, blocks, dimensions
+    private int getColumnX(SortColumn column, int listRightEdge) {
+        int authorX = listRightEdge - 90 - AUTHOR_COLUMN_WIDTH;
+        return switch (column) {
+            case AUTHOR -> authorX;
+            case BLOCKS -> authorX - BLOCKS_COLUMN_WIDTH;
+            default -> authorX - BLOCKS_COLUMN_WIDTH - DIMENSIONS_COLUMN_WIDTH;
+        };
+    }
+
+    private void renderColumnHeaders(GuiGraphicsExtractor context, int listRightEdge, int mouseX, int mouseY) {
+        columnHeaders.clear();
+        int headerY = PADDING * 3 + BUTTON_HEIGHT + 18 - 14;
+        int dimensionsX = getColumnX(SortColumn.DIMENSIONS, listRightEdge);
+        context.fill(dimensionsX - 5, headerY - 2, listRightEdge, headerY + 10, 0xFF202020);
+
+        renderColumnHeader(context, "Size", SortColumn.DIMENSIONS, dimensionsX, DIMENSIONS_COLUMN_WIDTH, headerY, mouseX, mouseY);
+        renderColumnHeader(context, "Blocks", SortColumn.BLOCKS, getColumnX(SortColumn.BLOCKS, listRightEdge),
+                BLOCKS_COLUMN_WIDTH, headerY, mouseX, mouseY);
+        renderColumnHeader(context, "Author", SortColumn.AUTHOR, getColumnX(SortColumn.AUTHOR, listRightEdge),
+                AUTHOR_COLUMN_WIDTH, headerY, mouseX, mouseY);
+    }
+
+    private void renderColumnHeader(GuiGraphicsExtractor context, String label, SortColumn column, int x, int width,
+            int y, int mouseX, int mouseY) {
+        String text = sortColumn == column ? label + (sortAscending ? " ▲" : " ▼") : label;
+        boolean hovered = mouseX >= x && mouseX < x + width && mouseY >= y - 2 && mouseY < y + 10;
+        int color = sortColumn == column ? 0xFFFFFFFF : (hovered ? 0xFFDDDDDD : 0xFFAAAAAA);
+        context.text(this.font, text, x, y, color);
+        columnHeaders.add(new ColumnHeader(x, width, column));
+    }
+
+    private void renderMetadataColumns(GuiGraphicsExtractor context, FileEntry entry, int listRightEdge, int textY) {
+        LitematicMetadata metadata = metadataLoader.get(entry.file, entry.size, entry.lastModified);
+        int dimensionsX = getColumnX(SortColumn.DIMENSIONS, listRightEdge);
+        if (metadata == null) {
+            if (!metadataLoader.isLoaded(entry.file, entry.size, entry.lastModified)) {
+                context.text(this.font, "...", dimensionsX, textY, 0xFF666666);
+            }
+            return;
+        }
+
+        context.text(this.font, truncateText(formatDimensions(metadata), DIMENSIONS_COLUMN_WIDTH - 5), dimensionsX, textY,
+                0xFFAAAAAA);
+        context.text(this.font, formatBlockCount(metadata.totalBlocks), getColumnX(SortColumn.BLOCKS, listRightEdge),
+                textY, 0xFFAAAAAA);
+        if (metadata.author != null && !metadata.author.isEmpty()) {
+            context.text(this.font, truncateText(metadata.author, AUTHOR_COLUMN_WIDTH - 5),
+                    getColumnX(SortColumn.AUTHOR, listRightEdge), textY, 0xFFAAAAAA);
+        }
+    }
+
+    // In grid view the scroll offset counts rows of cells rather than entries
     private int getMaxScroll() {
         int listY = PADDING * 3 + BUTTON_HEIGHT + 18;
         int listHeight = this.height - listY - PADDING;
-        int contentHeight = entries.size() * ITEM_HEIGHT;
-        return contentHeight <= listHeight ? 0 : entries.size() - listHeight / ITEM_HEIGHT;
+        int contentHeight = getContentHeight();
+        return contentHeight <= listHeight ? 0 : getRowCount() - listHeight / getRowHeight();
+    }
+
+    private int getItemsPerRow() {
+        if (!gridView) return 1;
+        int leftPanelWidth = showDetailPanel ? this.width / 2 : this.width;
+        int listRightEdge = leftPanelWidth - PADDING - SCROLLBAR_WIDTH - SCROLLBAR_PADDING;
+        return Math.max(1, (listRightEdge - PADDING) / GRID_CELL_WIDTH);
+    }
+
+    private int getRowHeight() {
+        return gridView ? GRID_CELL_HEIGHT : ITEM_HEIGHT;
+    }
+
+    private int getRowCount() {
+        int perRow = getItemsPerRow();
+        return (entries.size() + perRow - 1) / perRow;
+    }
+
+    private int getContentHeight() {
+        return getRowCount() * getRowHeight();
+    }
+
+    // Entry under a point inside the list area, or an out-of-range index past the last row
+    private int getEntryIndexAt(double mouseX, double mouseY, int listY, int listRightEdge) {
+        int row = scrollOffset + (int) ((mouseY - listY) / getRowHeight());
+        if (!gridView) return row;
+
+        int perRow = getItemsPerRow();
+        int column = (int) ((mouseX - PADDING) / ((listRightEdge - PADDING) / perRow));
+        return column >= perRow ? -1 : row * perRow + column;
+    }
+
+    private void toggleGridView() {
+        gridView = !gridView;
+        DownloadSettings.getInstance().setLocalGridView(gridView);
+        visiblePreviews = Set.of();
+        scrollOffset = 0;
+        pendingReload = true;
     }
 
     private void updateScrollBar() {
         if (scrollBar != null) {
             int listY = PADDING * 3 + BUTTON_HEIGHT + 18;
             int listHeight = this.height - listY - PADDING;
-            int contentHeight = entries.size() * ITEM_HEIGHT;
+            int contentHeight = getContentHeight();
 
             scrollBar.setScrollData(contentHeight, listHeight);
 
@@ -1276,6 +1584,10 @@ public class LocalFolderPage extends Screen {
             pendingReload = false;
             init();
         }
+        refreshSearchResults();
+        syncDirectoryEntries();
+        refreshMetadataSort();
+        updateDeletePreview();
 
         context.fill(0, 0, this.width, this.height, 0xFF202020);
 
@@ -1367,7 +1679,7 @@ public class LocalFolderPage extends Screen {
                             mouseX >= PADDING && mouseX < listRightEdge &&
                             mouseY >= listY && mouseY < listY + listHeight) {
 
-                        int hoveredIndex = scrollOffset + (int) ((mouseY - listY) / ITEM_HEIGHT);
+                        int hoveredIndex = getEntryIndexAt(mouseX, mouseY, listY, listRightEdge);
 
                         if (hoveredIndex >= 0 && hoveredIndex < entries.size()) {
                             FileEntry hoveredEntry = entries.get(hoveredIndex);
@@ -1419,15 +1731,24 @@ public class LocalFolderPage extends Screen {
             int breadcrumbY = PADDING * 3 + BUTTON_HEIGHT + 18 - 14;
             String searchInfo = "Found " + entries.size() + " result" + (entries.size() != 1 ? "s" : "") + " for \""
                     + searchManager.getSearchQuery() + "\"";
+            if (schematicIndex.isScanning()) {
+                int pending = schematicIndex.getPendingCount();
+                searchInfo += pending > 0 ? " (indexing, " + pending + " left)" : " (indexing...)";
+            }
             context.text(this.font, searchInfo, PADDING, breadcrumbY, 0xFFAAAAFF);
         }
 
         int listY = PADDING * 3 + BUTTON_HEIGHT + 18;
         int listHeight = this.height - listY - PADDING;
-        int maxVisibleItems = (listHeight / ITEM_HEIGHT) + 1;
 
         int leftPanelWidth = showDetailPanel ? this.width / 2 : this.width;
         int listRightEdge = leftPanelWidth - PADDING - SCROLLBAR_WIDTH - SCROLLBAR_PADDING;
+        boolean showColumns = !gridView && showMetadataColumns(listRightEdge);
+        if (showColumns) {
+            renderColumnHeaders(context, listRightEdge, renderMouseX, renderMouseY);
+        } else {
+            columnHeaders.clear();
+        }
 
         context.fill(PADDING, listY, listRightEdge, listY + listHeight, 0xFF151515);
 
@@ -1435,6 +1756,66 @@ public class LocalFolderPage extends Screen {
 
         quickShareButtons.clear();
 
+        if (gridView) {
+            renderGridEntries(context, mouseX, mouseY, listY, listHeight, listRightEdge, listBlocked);
+        } else {
+            renderListEntries(context, mouseX, mouseY, listY, listHeight, listRightEdge, showColumns, listBlocked);
+        }
+
+        context.disableScissor();
+
+        if (scrollBar != null && scrollBar.isVisible() && this.minecraft != null) {
+            boolean scrollChanged = scrollBar.updateAndRender(context, mouseX, mouseY, delta,
+                    GLFW.glfwGetCurrentContext());
+
+            if (scrollChanged) {
+                int maxScroll = getMaxScroll();
+                scrollOffset = (int) (scrollBar.getScrollPercentage() * maxScroll);
+            }
+        }
+
+        if (showDetailPanel && detailPanel != null) {
+            int detailMouseX = overlayPopupActive ? -1 : mouseX;
+            int detailMouseY = overlayPopupActive ? -1 : mouseY;
+            detailPanel.extractRenderState(context, detailMouseX, detailMouseY, delta);
+        }
+
+        if (activePopup != null) {
+            activePopup.extractRenderState(context, mouseX, mouseY, delta);
+        }
+
+        if (confirmPopup != null) {
+            confirmPopup.extractRenderState(context, mouseX, mouseY, delta);
+        }
+
+        if (isDragging && selectionManager.hasSelection()) {
+            String dragText = selectionManager.getSelectionCount() + " item"
+                    + (selectionManager.getSelectionCount() > 1 ? "s" : "");
+            int textWidth = this.font.width(dragText);
+            int cursorX = mouseX + 10;
+            int cursorY = mouseY + 10;
+
+            context.fill(cursorX - 2, cursorY - 2, cursorX + textWidth + 2, cursorY + this.font.lineHeight + 2,
+                    0xCC000000);
+
+            context.fill(cursorX - 2, cursorY - 2, cursorX + textWidth + 2, cursorY - 1, 0xFF888888);
+            context.fill(cursorX - 2, cursorY + this.font.lineHeight + 1, cursorX + textWidth + 2,
+                    cursorY + this.font.lineHeight + 2, 0xFF888888);
+            context.fill(cursorX - 2, cursorY - 2, cursorX - 1, cursorY + this.font.lineHeight + 2, 0xFF888888);
+            context.fill(cursorX + textWidth + 1, cursorY - 2, cursorX + textWidth + 2,
+                    cursorY + this.font.lineHeight + 2, 0xFF888888);
+
+            context.text(this.font, dragText, cursorX, cursorY, 0xFFFFFFFF);
+        }
+
+        if (toastManager != null) {
+            toastManager.render(context, delta, mouseX, mouseY);
+        }
+    }
+
+    private void renderListEntries(GuiGraphicsExtractor context, int mouseX, int mouseY, int listY, int listHeight,
+            int listRightEdge, boolean showColumns, boolean listBlocked) {
+        int maxVisibleItems = (listHeight / ITEM_HEIGHT) + 1;
         for (int i = scrollOffset; i < Math.min(entries.size(), scrollOffset + maxVisibleItems); i++) {
             FileEntry entry = entries.get(i);
             int itemY = listY + (i - scrollOffset) * ITEM_HEIGHT;
@@ -1442,23 +1823,7 @@ public class LocalFolderPage extends Screen {
             boolean isHovered = !listBlocked &&
                     mouseX >= PADDING && mouseX < listRightEdge &&
                     mouseY >= itemY && mouseY < itemY + ITEM_HEIGHT;
-            boolean isSelected = selectionManager.isSelected(i);
-            boolean isDropTarget = isDragging && entry.isDirectory && i == dropTargetIndex
-                    && !selectionManager.isSelected(i);
-            boolean isBeingDragged = isDragging && selectionManager.isSelected(i);
-
-            int bgColor;
-            if (isDropTarget) {
-                bgColor = 0xFF336633;
-            } else if (isBeingDragged) {
-                bgColor = 0xFF505050;
-            } else if (isSelected) {
-                bgColor = 0xFF404040;
-            } else if (isHovered) {
-                bgColor = 0xFF2A2A2A;
-            } else {
-                bgColor = 0xFF1A1A1A;
-            }
+            int bgColor = getEntryBackground(i, entry, isHovered);
             context.fill(PADDING + 2, itemY + 2, listRightEdge - 2, itemY + ITEM_HEIGHT - 2, bgColor);
 
             String icon = entry.isDirectory ? "📁" : "📄";
@@ -1474,6 +1839,10 @@ public class LocalFolderPage extends Screen {
                     ? (showDetailPanel ? 25 : 80) + 10
                     : 0;
             int maxTextWidth = listRightEdge - textX - buttonAreaWidth - 5;
+            boolean entryColumns = showColumns && entry.isLitematic();
+            if (entryColumns) {
+                maxTextWidth = Math.min(maxTextWidth, getColumnX(SortColumn.DIMENSIONS, listRightEdge) - textX - 5);
+            }
 
             String displayFileName = fileName;
             if (this.font.width(fileName) > maxTextWidth) {
@@ -1534,7 +1903,7 @@ public class LocalFolderPage extends Screen {
             }
 
             if (!entry.isDirectory && !entry.file.getName().toLowerCase().endsWith(".litematic")) {
-                long sizeKB = entry.file.length() / 1024;
+                long sizeKB = (entry.size >= 0 ? entry.size : entry.file.length()) / 1024;
                 String sizeText = " (" + sizeKB + " KB)";
                 int remainingWidth = listRightEdge - textX - 5;
                 if (this.font.width(sizeText) <= remainingWidth) {
@@ -1542,6 +1911,10 @@ public class LocalFolderPage extends Screen {
                 }
             }
 
+            if (entryColumns) {
+                renderMetadataColumns(context, entry, listRightEdge, textY);
+            }
+
             if (searchManager.isActive() && entry.relativePath != null && !entry.relativePath.isEmpty()) {
                 String pathDisplay = "📍 " + entry.relativePath;
                 context.text(this.font, pathDisplay,
@@ -1602,55 +1975,111 @@ public class LocalFolderPage extends Screen {
             }
         }
 
-        context.disableScissor();
+    }
 
-        if (scrollBar != null && scrollBar.isVisible() && this.minecraft != null) {
-            boolean scrollChanged = scrollBar.updateAndRender(context, mouseX, mouseY, delta,
-                    GLFW.glfwGetCurrentContext());
+    private void renderGridEntries(GuiGraphicsExtractor context, int mouseX, int mouseY, int listY, int listHeight,
+            int listRightEdge, boolean listBlocked) {
+        int perRow = getItemsPerRow();
+        int cellWidth = (listRightEdge - PADDING) / perRow;
+        int thumbnailSize = Math.min(cellWidth - 12, GRID_CELL_HEIGHT - 22);
+        int decodeEdge = getThumbnailDecodeEdge(thumbnailSize);
+        int first = scrollOffset * perRow;
+        int last = Math.min(entries.size(), first + (listHeight / GRID_CELL_HEIGHT + 1) * perRow);
+        ImagePipeline pipeline = ImagePipeline.getInstance();
 
-            if (scrollChanged) {
-                int maxScroll = getMaxScroll();
-                scrollOffset = (int) (scrollBar.getScrollPercentage() * maxScroll);
+        Set<File> visible = new HashSet<>();
+        for (int i = first; i < last; i++) {
+            if (entries.get(i).isLitematic()) {
+                visible.add(entries.get(i).file);
             }
         }
+        visiblePreviews = visible;
 
-        if (showDetailPanel && detailPanel != null) {
-            int detailMouseX = overlayPopupActive ? -1 : mouseX;
-            int detailMouseY = overlayPopupActive ? -1 : mouseY;
-            detailPanel.extractRenderState(context, detailMouseX, detailMouseY, delta);
-        }
+        for (int i = first; i < last; i++) {
+            FileEntry entry = entries.get(i);
+            int cellX = PADDING + ((i - first) % perRow) * cellWidth;
+            int cellY = listY + ((i - first) / perRow) * GRID_CELL_HEIGHT;
 
-        if (activePopup != null) {
-            activePopup.extractRenderState(context, mouseX, mouseY, delta);
-        }
+            boolean isHovered = !listBlocked &&
+                    mouseX >= cellX && mouseX < cellX + cellWidth &&
+                    mouseY >= cellY && mouseY < cellY + GRID_CELL_HEIGHT;
+            context.fill(cellX + 2, cellY + 2, cellX + cellWidth - 2, cellY + GRID_CELL_HEIGHT - 2,
+                    getEntryBackground(i, entry, isHovered));
+
+            int thumbX = cellX + (cellWidth - thumbnailSize) / 2;
+            int thumbY = cellY + 5;
+            context.fill(thumbX, thumbY, thumbX + thumbnailSize, thumbY + thumbnailSize, 0xFF101010);
+
+            ImagePipeline.TextureHandle thumbnail = null;
+            boolean noPreview = !entry.isLitematic() || pipeline.hasNoPreview(entry.file, entry.size, entry.lastModified);
+            if (!noPreview) {
+                thumbnail = pipeline.getPreviewIfLoaded(entry.file, entry.size, entry.lastModified, decodeEdge);
+                if (thumbnail == null) {
+                    File file = entry.file;
+                    pipeline.requestPreview(file, entry.size, entry.lastModified, decodeEdge,
+                            () -> visiblePreviews.contains(file));
+                }
+            }
 
-        if (confirmPopup != null) {
-            confirmPopup.extractRenderState(context, mouseX, mouseY, delta);
-        }
+            if (thumbnail != null) {
+                pipeline.touch(thumbnail);
+                context.blit(thumbnail.texture(), thumbX, thumbY, thumbX + thumbnailSize, thumbY + thumbnailSize,
+                        0.0f, 1.0f, 0.0f, 1.0f);
+            } else {
+                String placeholder = noPreview ? (entry.isDirectory ? "📁" : "📄") : "...";
+                context.text(this.font, placeholder, thumbX + (thumbnailSize - this.font.width(placeholder)) / 2,
+                        thumbY + thumbnailSize / 2 - 4, noPreview ? 0xFFFFFFFF : 0xFF666666);
+            }
 
-        if (isDragging && selectionManager.hasSelection()) {
-            String dragText = selectionManager.getSelectionCount() + " item"
-                    + (selectionManager.getSelectionCount() > 1 ? "s" : "");
-            int textWidth = this.font.width(dragText);
-            int cursorX = mouseX + 10;
-            int cursorY = mouseY + 10;
+            String name = truncateText(entry.file.getName(), cellWidth - 8);
+            context.text(this.font, name, cellX + (cellWidth - this.font.width(name)) / 2,
+                    cellY + GRID_CELL_HEIGHT - 15, 0xFFFFFFFF);
 
-            context.fill(cursorX - 2, cursorY - 2, cursorX + textWidth + 2, cursorY + this.font.lineHeight + 2,
-                    0xCC000000);
+            if (entry.isLitematic()) {
+                int buttonSize = 16;
+                int buttonX = thumbX + thumbnailSize - buttonSize - 2;
+                int buttonY = thumbY + 2;
+                quickShareButtons.add(new QuickShareButton(buttonX, buttonY, buttonSize, buttonSize, i));
 
-            context.fill(cursorX - 2, cursorY - 2, cursorX + textWidth + 2, cursorY - 1, 0xFF888888);
-            context.fill(cursorX - 2, cursorY + this.font.lineHeight + 1, cursorX + textWidth + 2,
-                    cursorY + this.font.lineHeight + 2, 0xFF888888);
-            context.fill(cursorX - 2, cursorY - 2, cursorX - 1, cursorY + this.font.lineHeight + 2, 0xFF888888);
-            context.fill(cursorX + textWidth + 1, cursorY - 2, cursorX + textWidth + 2,
-                    cursorY + this.font.lineHeight + 2, 0xFF888888);
+                boolean buttonHovered = !listBlocked &&
+                        mouseX >= buttonX && mouseX < buttonX + buttonSize &&
+                        mouseY >= buttonY && mouseY < buttonY + buttonSize;
+                boolean isCopied = i == copiedIndex &&
+                        (System.currentTimeMillis() - copiedTimestamp) < COPIED_DISPLAY_DURATION;
+                if (!isHovered && !buttonHovered && !isCopied && i != uploadingIndex) continue;
 
-            context.text(this.font, dragText, cursorX, cursorY, 0xFFFFFFFF);
+                String buttonText = i == uploadingIndex ? "..." : (isCopied ? "✓" : "📤");
+                int buttonBgColor = i == uploadingIndex ? 0xFF555555
+                        : (isCopied ? UITheme.Colors.ACCENT_GREEN : (buttonHovered ? 0xFF4488FF : 0xFF3366CC));
+                context.fill(buttonX, buttonY, buttonX + buttonSize, buttonY + buttonSize, buttonBgColor);
+                context.text(this.font, buttonText, buttonX + (buttonSize - this.font.width(buttonText)) / 2,
+                        buttonY + (buttonSize - 8) / 2, 0xFFFFFFFF);
+            }
         }
+    }
 
-        if (toastManager != null) {
-            toastManager.render(context, delta, mouseX, mouseY);
-        }
+    private int getEntryBackground(int index, FileEntry entry, boolean isHovered) {
+        boolean isSelected = selectionManager.isSelected(index);
+        boolean isDropTarget = isDragging && entry.isDirectory && index == dropTargetIndex
+                && !selectionManager.isSelected(index);
+        boolean isBeingDragged = isDragging && selectionManager.isSelected(index);
+
+        if (isDropTarget) {
+            return 0xFF336633;
+        } else if (isBeingDragged) {
+            return 0xFF505050;
+        } else if (isSelected) {
+            return 0xFF404040;
+        } else if (isHovered) {
+            return 0xFF2A2A2A;
+        }
+        return 0xFF1A1A1A;
+    }
+
+    private int getThumbnailDecodeEdge(int thumbnailSize) {
+        int guiScale = this.minecraft != null && this.minecraft.getWindow() != null
+                ? (int) Math.ceil(this.minecraft.getWindow().getGuiScale()) : 2;
+        return ImagePipeline.decodeEdgeFor(thumbnailSize * Math.max(1, guiScale));
     }
 
     @Override
@@ -1699,6 +2128,12 @@ public class LocalFolderPage extends Screen {
 
         int breadcrumbY = PADDING * 3 + BUTTON_HEIGHT + 18 - 14;
         if (mouseY >= breadcrumbY - 2 && mouseY < breadcrumbY + 12) {
+            for (ColumnHeader header : columnHeaders) {
+                if (mouseX >= header.x && mouseX < header.x + header.width) {
+                    onColumnHeaderClicked(header.column);
+                    return true;
+                }
+            }
             for (BreadcrumbSegment segment : breadcrumbSegments) {
                 if (mouseX >= segment.x && mouseX < segment.x + segment.width) {
                     if (isSearchActive) {
@@ -1733,7 +2168,7 @@ public class LocalFolderPage extends Screen {
                 }
             }
 
-            int clickedIndex = scrollOffset + (int) ((mouseY - listY) / ITEM_HEIGHT);
+            int clickedIndex = getEntryIndexAt(mouseX, mouseY, listY, listRightEdge);
 
             if (clickedIndex >= 0 && clickedIndex < entries.size()) {
                 if (button == 0) {
@@ -1882,7 +2317,7 @@ public class LocalFolderPage extends Screen {
             if (toastManager != null) {
                 toastManager.showSuccess("Undid " + actionName);
             }
-            loadEntries();
+            reloadAfterFileChange();
         } else {
             if (toastManager != null) {
                 toastManager.showError("Failed to undo " + actionName);
@@ -1929,7 +2364,7 @@ public class LocalFolderPage extends Screen {
             if (toastManager != null) {
                 toastManager.showSuccess("Redid " + actionName);
             }
-            loadEntries();
+            reloadAfterFileChange();
         } else {
             if (toastManager != null) {
                 toastManager.showError("Failed to redo " + actionName);
@@ -2076,16 +2511,19 @@ public class LocalFolderPage extends Screen {
         if (action.type != FileAction.Type.DELETE)
             return;
 
-        for (FileOperation op : action.operations) {
-            if (op.destination != null && op.destination.exists()) {
-                if (op.wasDirectory) {
-                    deleteDirectoryRecursively(op.destination);
-                } else {
-                    op.destination.delete();
+        List<FileOperation> operations = action.operations;
+        fileTasks.write(() -> {
+            for (FileOperation op : operations) {
+                if (op.destination != null && op.destination.exists()) {
+                    if (op.wasDirectory) {
+                        FileTaskRunner.deleteTree(op.destination.toPath());
+                    } else {
+                        op.destination.delete();
+                    }
+                    System.out.println("Permanently deleted from trash: " + op.destination.getName());
                 }
-                System.out.println("Permanently deleted from trash: " + op.destination.getName());
             }
-        }
+        });
     }
 
     @Override
@@ -2108,7 +2546,7 @@ public class LocalFolderPage extends Screen {
             return false;
         }
         if (confirmPopup != null) {
-            confirmPopup = null;
+            closePopup();
             return false;
         }
         return super.shouldCloseOnEsc();
@@ -2118,4 +2556,16 @@ public class LocalFolderPage extends Screen {
     public void onClose() {
         goBack();
     }
+
+    @Override
+    public void removed() {
+        super.removed();
+        directoryModel.close();
+        fileTasks.cancelScans();
+        // A preview still meshing would otherwise keep pooled builders that nothing uploads any more
+        if (detailPanel != null) {
+            detailPanel.close();
+        }
+        showDetailPanel = false;
+    }
 }
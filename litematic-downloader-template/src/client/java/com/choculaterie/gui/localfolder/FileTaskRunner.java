@@ -0,0 +1,150 @@
+package com.choculaterie.gui.localfolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs local folder filesystem work off the render thread. Scans are cancellable and may run side by
+// side, writes run one at a time in submission order so undo history matches what happened on disk.
+public class FileTaskRunner {
+    private static final int SCAN_THREADS = 2;
+
+    public static class Task {
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+    }
+
+    public interface Body {
+        void run(Task task) throws IOException;
+    }
+
+    public static class TreeCounts {
+        public final AtomicInteger folders = new AtomicInteger();
+        public final AtomicInteger files = new AtomicInteger();
+    }
+
+    public record Child(File file, boolean isDirectory) {
+    }
+
+    private final ExecutorService scanExecutor = newExecutor(SCAN_THREADS, "Litematic-FileScan");
+    private final ExecutorService writeExecutor = newExecutor(1, "Litematic-FileWrite");
+    private final Set<Task> scans = ConcurrentHashMap.newKeySet();
+
+    private static ExecutorService newExecutor(int threads, String name) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public Task scan(Body body) {
+        Task task = new Task();
+        scans.add(task);
+        scanExecutor.execute(() -> {
+            try {
+                if (!task.isCancelled()) body.run(task);
+            } catch (IOException e) {
+                System.err.println("[LocalFolder] Scan failed: " + e.getMessage());
+            } finally {
+                task.done = true;
+                scans.remove(task);
+            }
+        });
+        return task;
+    }
+
+    public void write(Runnable body) {
+        writeExecutor.execute(() -> {
+            try {
+                body.run();
+            } catch (RuntimeException e) {
+                System.err.println("[LocalFolder] File operation failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public void cancelScans() {
+        for (Task task : scans) {
+            task.cancel();
+        }
+    }
+
+    // Directories first, then by name, using the attributes read while listing
+    public static List<Child> list(Path dir, Task task) {
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                if (task != null && task.isCancelled()) break;
+                boolean isDirectory;
+                try {
+                    isDirectory = Files.readAttributes(child, BasicFileAttributes.class).isDirectory();
+                } catch (IOException e) {
+                    isDirectory = false;
+                }
+                children.add(new Child(child.toFile(), isDirectory));
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return children;
+        }
+
+        children.sort((a, b) -> {
+            if (a.isDirectory() && !b.isDirectory())
+                return -1;
+            if (!a.isDirectory() && b.isDirectory())
+                return 1;
+            return a.file().getName().compareToIgnoreCase(b.file().getName());
+        });
+        return children;
+    }
+
+    public static boolean deleteTree(Path root) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            System.err.println("[LocalFolder] Failed to delete " + root + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.choculaterie.gui.localfolder;
+
+import com.choculaterie.network.FileDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Listing of a single directory kept current from WatchService events. All listing and stat calls
+// happen on a background thread so slow or network mounts never block the render thread.
+public class LocalDirectoryModel {
+    private static final Comparator<Item> ORDER = (a, b) -> {
+        if (a.isDirectory() && !b.isDirectory())
+            return -1;
+        if (!a.isDirectory() && b.isDirectory())
+            return 1;
+        return a.file().getName().compareToIgnoreCase(b.file().getName());
+    };
+
+    public record Item(File file, boolean isDirectory, long size, long lastModified) {
+    }
+
+    private final Map<String, Item> items = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean revalidatePending = new AtomicBoolean(false);
+    private ExecutorService executor;
+    private WatchService watchService;
+    private WatchKey watchKey;
+    private Path directory;
+    private long generation = 0;
+    private volatile List<Item> sortedItems = List.of();
+    private volatile boolean loading = false;
+    private volatile Runnable changeListener;
+
+    public synchronized void open(File dir) {
+        Path path = dir.toPath().toAbsolutePath().normalize();
+        ensureStarted();
+        if (path.equals(directory)) {
+            revalidate();
+            return;
+        }
+
+        directory = path;
+        long openGeneration = ++generation;
+        loading = true;
+        sortedItems = List.of();
+        version.incrementAndGet();
+        executor.execute(() -> load(path, openGeneration, true));
+    }
+
+    // Relists in the background and applies whatever differs, for changes the watcher may report late
+    public synchronized void revalidate() {
+        if (directory == null || executor == null || !revalidatePending.compareAndSet(false, true)) return;
+        Path path = directory;
+        long openGeneration = generation;
+        executor.execute(() -> {
+            revalidatePending.set(false);
+            load(path, openGeneration, false);
+        });
+    }
+
+    public synchronized void close() {
+        directory = null;
+        generation++;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        watchKey = null;
+    }
+
+    // Called on the model's thread whenever the folder changed on disk after it was first listed
+    public void setChangeListener(Runnable listener) {
+        changeListener = listener;
+    }
+
+    public List<Item> getItems() {
+        return sortedItems;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void ensureStarted() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Litematic-DirModel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            WatchService service = watchService;
+            Thread watcher = new Thread(() -> watch(service), "Litematic-DirWatcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("[LocalFolder] Directory watching unavailable: " + e.getMessage());
+            watchService = null;
+        }
+    }
+
+    private synchronized boolean isCurrent(long openGeneration) {
+        return openGeneration == generation;
+    }
+
+    private void watch(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            List<WatchEvent<?>> events = key.pollEvents();
+            key.reset();
+
+            synchronized (this) {
+                if (key != watchKey || executor == null) continue;
+                Path path = directory;
+                long openGeneration = generation;
+                executor.execute(() -> applyEvents(path, openGeneration, events));
+            }
+        }
+    }
+
+    private void load(Path path, long openGeneration, boolean register) {
+        if (register) {
+            register(path, openGeneration);
+        }
+
+        Map<String, Item> listing = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path child : stream) {
+                if (!isCurrent(openGeneration)) return;
+                String name = child.getFileName().toString();
+                if (name.equals(".trash") || FileDownloader.isPartFile(name)) continue;
+                Item item = readItem(child);
+                if (item != null) listing.put(name, item);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            System.err.println("[LocalFolder] Failed to list " + path + ": " + e.getMessage());
+        }
+
+        synchronized (items) {
+            if (!isCurrent(openGeneration)) return;
+            boolean changed = !listing.equals(items);
+            if (changed) {
+                items.clear();
+                items.putAll(listing);
+            }
+            loading = false;
+            if (changed || register) publish();
+            if (changed && !register) notifyChanged();
+        }
+    }
+
+    private void register(Path path, long openGeneration) {
+        WatchKey key = null;
+        if (watchService != null) {
+            try {
+                // Registered before listing so nothing created in between is missed
+                key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException | ClosedWatchServiceException e) {
+                System.err.println("[LocalFolder] Cannot watch " + path + ": " + e.getMessage());
+            }
+        }
+
+        synchronized (this) {
+            WatchKey previous = watchKey;
+            if (openGeneration != generation) {
+                if (key != null) key.cancel();
+                return;
+            }
+            watchKey = key;
+            if (previous != null && previous != key) previous.cancel();
+        }
+    }
+
+    private void applyEvents(Path path, long openGeneration, List<WatchEvent<?>> events) {
+        if (!isCurrent(openGeneration)) return;
+
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                load(path, openGeneration, false);
+                return;
+            }
+        }
+
+        synchronized (items) {
+            boolean changed = false;
+            for (WatchEvent<?> event : events) {
+                String name = event.context().toString();
+                if (name.equals(".trash") || FileDownloader.isPartFile(name)) continue;
+                // The event kind only says something happened, a fresh stat says what the entry is now
+                Item item = readItem(path.resolve(name));
+                Item previous = item != null ? items.put(name, item) : items.remove(name);
+                changed |= !Objects.equals(previous, item);
+            }
+            if (changed && isCurrent(openGeneration)) {
+                publish();
+                notifyChanged();
+            }
+        }
+    }
+
+    private void publish() {
+        List<Item> sorted = new ArrayList<>(items.values());
+        sorted.sort(ORDER);
+        sortedItems = Collections.unmodifiableList(sorted);
+        version.incrementAndGet();
+    }
+
+    private void notifyChanged() {
+        Runnable listener = changeListener;
+        if (listener != null) listener.run();
+    }
+
+    private static Item readItem(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Item(path.toFile(), attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.choculaterie.gui.localfolder;
+
+import com.choculaterie.util.LitematicMetadata;
+import com.choculaterie.util.LocalSchematicIndex;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Loads litematic Metadata headers for the file list in the background. Rows on screen jump the
+// queue ahead of the rest of the folder, which is only needed for sorting.
+public class LocalMetadataLoader {
+    private static final int WORKER_THREADS = 2;
+    private static final int MAX_CACHED = 20_000;
+    private static LocalMetadataLoader INSTANCE;
+
+    private record Cached(long size, long lastModified, LitematicMetadata metadata) {
+    }
+
+    private record Request(File file, long size, long lastModified) {
+    }
+
+    private final Map<File, Cached> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Cached> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+    private final LinkedBlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+    // Queued files, mapped to whether they were already moved to the front
+    private final Map<File, Boolean> queued = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private boolean started = false;
+
+    public static synchronized LocalMetadataLoader getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LocalMetadataLoader();
+        }
+        return INSTANCE;
+    }
+
+    // Returns the cached header, or null while it is loading or if the file has no readable Metadata
+    public LitematicMetadata get(File file, long size, long lastModified) {
+        LitematicMetadata metadata = peek(file, size, lastModified);
+        if (metadata == null && !isLoaded(file, size, lastModified)) {
+            enqueue(new Request(file, size, lastModified), true);
+        }
+        return metadata;
+    }
+
+    public LitematicMetadata peek(File file, long size, long lastModified) {
+        synchronized (cache) {
+            Cached cached = cache.get(file);
+            return cached != null && cached.size == size && cached.lastModified == lastModified ? cached.metadata : null;
+        }
+    }
+
+    public boolean isLoaded(File file, long size, long lastModified) {
+        synchronized (cache) {
+            Cached cached = cache.get(file);
+            return cached != null && cached.size == size && cached.lastModified == lastModified;
+        }
+    }
+
+    public void prefetch(File file, long size, long lastModified) {
+        if (!isLoaded(file, size, lastModified)) {
+            enqueue(new Request(file, size, lastModified), false);
+        }
+    }
+
+    // Drops queued folder-wide work, for example after navigating somewhere else
+    public void cancelPending() {
+        queue.clear();
+        queued.clear();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void enqueue(Request request, boolean urgent) {
+        ensureStarted();
+        Boolean queuedUrgent = queued.putIfAbsent(request.file, urgent);
+        if (queuedUrgent == null) {
+            if (urgent) queue.addFirst(request);
+            else queue.addLast(request);
+        } else if (urgent && !queuedUrgent && queue.remove(request)) {
+            queued.put(request.file, true);
+            queue.addFirst(request);
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (started) return;
+        started = true;
+        for (int i = 0; i < WORKER_THREADS; i++) {
+            Thread worker = new Thread(this::runWorker, "Litematic-MetadataReader-" + (i + 1));
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Request request;
+            try {
+                request = queue.takeFirst();
+            } catch (InterruptedException e) {
+                return;
+            }
+            queued.remove(request.file);
+            if (isLoaded(request.file, request.size, request.lastModified)) continue;
+
+            LitematicMetadata metadata = load(request);
+            synchronized (cache) {
+                cache.put(request.file, new Cached(request.size, request.lastModified, metadata));
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private static LitematicMetadata load(Request request) {
+        // The background index may already hold this file's metadata from a full analysis
+        LocalSchematicIndex.Entry indexed = LocalSchematicIndex.getInstance().get(request.file);
+        if (indexed != null && indexed.metadata != null
+                && indexed.size == request.size && indexed.lastModified == request.lastModified) {
+            return indexed.metadata;
+        }
+        try {
+            return LitematicMetadata.read(request.file);
+        } catch (Exception e) {
+            System.err.println("[LocalFolder] Could not read metadata of " + request.file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
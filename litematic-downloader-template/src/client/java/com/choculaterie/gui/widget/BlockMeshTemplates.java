@@ -0,0 +1,219 @@
+package com.choculaterie.gui.widget;
+
+import net.minecraft.client.color.block.BlockColors;
+import net.minecraft.client.color.block.BlockTintSource;
+import net.minecraft.client.renderer.block.BlockStateModelSet;
+import net.minecraft.client.renderer.block.dispatch.BlockStateModel;
+import net.minecraft.client.renderer.block.dispatch.BlockStateModelPart;
+import net.minecraft.client.renderer.chunk.ChunkSectionLayer;
+import net.minecraft.client.resources.model.geometry.BakedQuad;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.Identifier;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.StateDefinition;
+import net.minecraft.world.level.block.state.properties.Property;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resolved state and pre-baked quads for each distinct palette entry, shared by every 3D preview.
+// Emitting a block is then a translated copy of its template, with tint and shading already applied.
+public class BlockMeshTemplates {
+    // Face slot for quads without a cull face, after the six directions
+    public static final int UNCULLED = Direction.values().length;
+    // x, y, z, u, v per vertex
+    public static final int VERTEX_STRIDE = 5;
+    private static final Template MISSING = new Template(null, false, new Face[UNCULLED + 1]);
+    private static BlockMeshTemplates INSTANCE;
+
+    public static class Template {
+        public final BlockState state;
+        public final boolean solid;
+        // Indexed by Direction.ordinal(), UNCULLED last; null when the block has no quads there
+        public final Face[] faces;
+
+        Template(BlockState state, boolean solid, Face[] faces) {
+            this.state = state;
+            this.solid = solid;
+            this.faces = faces;
+        }
+
+        public boolean isRenderable() {
+            return state != null;
+        }
+    }
+
+    public static class Face {
+        public final int[] layers;
+        public final int[] colors;
+        public final float[] vertices;
+
+        Face(int[] layers, int[] colors, float[] vertices) {
+            this.layers = layers;
+            this.colors = colors;
+            this.vertices = vertices;
+        }
+
+        public int quadCount() {
+            return layers.length;
+        }
+    }
+
+    private final Map<Map.Entry<String, Map<String, String>>, Template> templates = new HashMap<>();
+    private BlockStateModelSet modelSet;
+
+    private BlockMeshTemplates() {
+    }
+
+    public static synchronized BlockMeshTemplates getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BlockMeshTemplates();
+        }
+        return INSTANCE;
+    }
+
+    // Baked models and atlas UVs are replaced wholesale on a resource reload, so a different model set
+    // means every cached template is stale
+    public synchronized Template get(BlockStateModelSet modelSet, BlockColors blockColors,
+                                     String blockId, Map<String, String> properties) {
+        if (modelSet != this.modelSet) {
+            templates.clear();
+            this.modelSet = modelSet;
+        }
+        Map.Entry<String, Map<String, String>> key = new AbstractMap.SimpleImmutableEntry<>(blockId, properties);
+        Template template = templates.get(key);
+        if (template == null) {
+            template = build(modelSet, blockColors, blockId, properties);
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    private static Template build(BlockStateModelSet modelSet, BlockColors blockColors,
+                                  String blockId, Map<String, String> properties) {
+        BlockState state;
+        try {
+            state = resolveState(blockId, properties);
+        } catch (Exception e) {
+            return MISSING;
+        }
+        if (state == null) return MISSING;
+
+        Face[] faces = new Face[UNCULLED + 1];
+        try {
+            BlockStateModel model = modelSet.get(state);
+            RandomSource random = RandomSource.create();
+            random.setSeed(state.getSeed(BlockPos.ZERO));
+            List<BlockStateModelPart> parts = new ArrayList<>();
+            model.collectParts(random, parts);
+
+            for (Direction dir : Direction.values()) {
+                faces[dir.ordinal()] = bakeFace(blockColors, state, parts, dir);
+            }
+            faces[UNCULLED] = bakeFace(blockColors, state, parts, null);
+        } catch (Exception e) {
+            return MISSING;
+        }
+        return new Template(state, state.isSolidRender(), faces);
+    }
+
+    private static Face bakeFace(BlockColors blockColors, BlockState state, List<BlockStateModelPart> parts, Direction dir) {
+        List<BakedQuad> quads = new ArrayList<>();
+        for (BlockStateModelPart part : parts) {
+            List<BakedQuad> partQuads = part.getQuads(dir);
+            if (partQuads != null) quads.addAll(partQuads);
+        }
+        if (quads.isEmpty()) return null;
+
+        int[] layers = new int[quads.size()];
+        int[] colors = new int[quads.size()];
+        float[] vertices = new float[quads.size() * 4 * VERTEX_STRIDE];
+        for (int q = 0; q < quads.size(); q++) {
+            BakedQuad quad = quads.get(q);
+            BakedQuad.MaterialInfo info = quad.materialInfo();
+            ChunkSectionLayer layer = info.layer();
+            int layerIdx = layer == null ? 0 : layer.ordinal();
+            if (layerIdx < 0 || layerIdx >= SchematicRenderer.LAYER_COUNT) layerIdx = 0;
+            layers[q] = layerIdx;
+            colors[q] = computeColor(blockColors, state, quad, info);
+
+            for (int v = 0; v < 4; v++) {
+                int offset = (q * 4 + v) * VERTEX_STRIDE;
+                long packedUV = quad.packedUV(v);
+                vertices[offset] = quad.position(v).x();
+                vertices[offset + 1] = quad.position(v).y();
+                vertices[offset + 2] = quad.position(v).z();
+                vertices[offset + 3] = Float.intBitsToFloat((int) (packedUV >> 32));
+                vertices[offset + 4] = Float.intBitsToFloat((int) packedUV);
+            }
+        }
+        return new Face(layers, colors, vertices);
+    }
+
+    private static BlockState resolveState(String blockId, Map<String, String> properties) {
+        Identifier id = Identifier.tryParse(blockId);
+        if (id == null) return null;
+        var ref = BuiltInRegistries.BLOCK.get(id);
+        if (ref.isEmpty()) return null;
+        Block block = ref.get().value();
+        BlockState state = block.defaultBlockState();
+        if (state.is(Blocks.AIR)) return null;
+        return applyProperties(state, block, properties);
+    }
+
+    private static BlockState applyProperties(BlockState state, Block block, Map<String, String> properties) {
+        if (properties == null || properties.isEmpty()) return state;
+        StateDefinition<Block, BlockState> definition = block.getStateDefinition();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            Property<?> property = definition.getProperty(entry.getKey());
+            if (property != null) {
+                state = withProperty(state, property, entry.getValue());
+            }
+        }
+        return state;
+    }
+
+    private static <T extends Comparable<T>> BlockState withProperty(BlockState state, Property<T> property, String value) {
+        return property.getValue(value).map(v -> state.setValue(property, v)).orElse(state);
+    }
+
+    private static int computeColor(BlockColors blockColors, BlockState state, BakedQuad quad, BakedQuad.MaterialInfo info) {
+        int r = 255, g = 255, b = 255;
+        int tintIndex = info.tintIndex();
+        if (tintIndex >= 0) {
+            try {
+                BlockTintSource source = blockColors.getTintSource(state, tintIndex);
+                if (source != null) {
+                    int tint = source.color(state);
+                    r = (tint >> 16) & 0xFF;
+                    g = (tint >> 8) & 0xFF;
+                    b = tint & 0xFF;
+                }
+            } catch (Exception ignored) {
+            }
+        }
+        float shading = info.shade() ? getDirectionShading(quad.direction()) : 1.0f;
+        r = Math.min(255, (int) (r * shading));
+        g = Math.min(255, (int) (g * shading));
+        b = Math.min(255, (int) (b * shading));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static float getDirectionShading(Direction dir) {
+        if (dir == null) return 1.0f;
+        return switch (dir) {
+            case UP -> 1.0f;
+            case DOWN -> 0.5f;
+            case NORTH, SOUTH -> 0.8f;
+            case EAST, WEST -> 0.6f;
+        };
+    }
+}
@@ -18,7 +18,7 @@ public class ConfirmPopup implements Renderable, GuiEventListener {
 
     private final Screen parent;
     private final String title;
-    private final String message;
+    private String message;
     private final Runnable onConfirm;
     private final Runnable onCancel;
 
@@ -28,15 +28,17 @@ public class ConfirmPopup implements Renderable, GuiEventListener {
     private boolean wasEnterPressed = false;
     private boolean wasEscapePressed = false;
 
-    private final int x;
-    private final int y;
-    private final int popupHeight;
-    private final List<String> wrappedMessage;
-    private final int actualMessageHeight;
-    private final int visibleMessageHeight;
+    private int x;
+    private int y;
+    private int popupHeight;
+    private List<String> wrappedMessage;
+    private int actualMessageHeight;
+    private int visibleMessageHeight;
     private ScrollBar scrollBar;
     private double scrollOffset = 0;
     private final String confirmButtonText;
+    private String progressText;
+    private final LoadingSpinner progressSpinner = new LoadingSpinner(0, 0);
 
     public ConfirmPopup(Screen parent, String title, String message, Runnable onConfirm, Runnable onCancel) {
         this(parent, title, message, onConfirm, onCancel, "Delete");
@@ -50,6 +52,29 @@ public class ConfirmPopup implements Renderable, GuiEventListener {
         this.onCancel = onCancel;
         this.confirmButtonText = confirmButtonText;
 
+        layout();
+    }
+
+    public void setMessage(String message) {
+        if (message.equals(this.message)) return;
+        this.message = message;
+        layout();
+    }
+
+    // A non-null progress text shows a spinner row under the message until it is cleared again
+    public void setProgress(String progressText) {
+        boolean rowChanged = (progressText == null) != (this.progressText == null);
+        this.progressText = progressText;
+        if (rowChanged) {
+            layout();
+        }
+    }
+
+    private int getProgressRowHeight() {
+        return progressText != null ? UITheme.Dimensions.PADDING + progressSpinner.getHeight() : 0;
+    }
+
+    private void layout() {
         Minecraft client = Minecraft.getInstance();
 
         this.wrappedMessage = wrapText(message, POPUP_WIDTH - UITheme.Dimensions.PADDING * 2, client);
@@ -58,18 +83,20 @@ public class ConfirmPopup implements Renderable, GuiEventListener {
         int screenWidth = client.getWindow().getGuiScaledWidth();
 
         int verticalMargin = 40;
-        int popupChrome = UITheme.Dimensions.PADDING + UITheme.Typography.LINE_HEIGHT + UITheme.Dimensions.PADDING + UITheme.Dimensions.PADDING + UITheme.Dimensions.BUTTON_HEIGHT + UITheme.Dimensions.PADDING;
+        int popupChrome = UITheme.Dimensions.PADDING + UITheme.Typography.LINE_HEIGHT + UITheme.Dimensions.PADDING + UITheme.Dimensions.PADDING + UITheme.Dimensions.BUTTON_HEIGHT + UITheme.Dimensions.PADDING + getProgressRowHeight();
         int maxAvailableMessageHeight = screenHeight - (verticalMargin * 2) - popupChrome;
 
         int effectiveMaxHeight = Math.min(MAX_MESSAGE_HEIGHT, maxAvailableMessageHeight);
 
         this.actualMessageHeight = wrappedMessage.size() * UITheme.Typography.LINE_HEIGHT;
         this.visibleMessageHeight = Math.min(actualMessageHeight, effectiveMaxHeight);
-        this.popupHeight = UITheme.Dimensions.PADDING + UITheme.Typography.LINE_HEIGHT + UITheme.Dimensions.PADDING + visibleMessageHeight + UITheme.Dimensions.PADDING + UITheme.Dimensions.BUTTON_HEIGHT + UITheme.Dimensions.PADDING;
+        this.popupHeight = UITheme.Dimensions.PADDING + UITheme.Typography.LINE_HEIGHT + UITheme.Dimensions.PADDING + visibleMessageHeight + getProgressRowHeight() + UITheme.Dimensions.PADDING + UITheme.Dimensions.BUTTON_HEIGHT + UITheme.Dimensions.PADDING;
 
         this.x = (screenWidth - POPUP_WIDTH) / 2;
         this.y = (screenHeight - popupHeight) / 2;
 
+        this.scrollBar = null;
+        this.scrollOffset = Math.max(0, Math.min(scrollOffset, actualMessageHeight - visibleMessageHeight));
         if (actualMessageHeight > visibleMessageHeight) {
             int messageAreaY = y + UITheme.Dimensions.PADDING + UITheme.Typography.LINE_HEIGHT + UITheme.Dimensions.PADDING;
             int scrollBarX = x + POPUP_WIDTH - UITheme.Dimensions.PADDING - UITheme.Dimensions.SCROLLBAR_WIDTH;
@@ -201,6 +228,19 @@ public class ConfirmPopup implements Renderable, GuiEventListener {
 
         context.disableScissor();
 
+        if (progressText != null) {
+            int rowY = messageAreaY + messageAreaHeight + UITheme.Dimensions.PADDING;
+            progressSpinner.setPosition(x + UITheme.Dimensions.PADDING, rowY);
+            progressSpinner.extractRenderState(context, mouseX, mouseY, delta);
+            context.text(
+                    client.font,
+                    progressText,
+                    x + UITheme.Dimensions.PADDING + progressSpinner.getWidth() + UITheme.Dimensions.PADDING,
+                    rowY + progressSpinner.getHeight() / 2 - 4,
+                    UITheme.Colors.TEXT_SUBTITLE
+            );
+        }
+
         if (scrollBar != null && client.getWindow() != null) {
             scrollBar.setScrollPercentage(scrollOffset / Math.max(1, actualMessageHeight - visibleMessageHeight));
             boolean scrollChanged = scrollBar.updateAndRender(context, mouseX, mouseY, delta, GLFW.glfwGetCurrentContext());
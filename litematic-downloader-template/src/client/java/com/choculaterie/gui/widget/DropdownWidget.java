@@ -63,6 +63,17 @@ public class DropdownWidget implements Renderable, GuiEventListener {
         updateScrollBounds();
     }
 
+    public void updateItems(List<DropdownItem> items) {
+        this.items.clear();
+        this.items.addAll(items);
+        updateScrollBounds();
+        this.scrollOffset = Math.min(scrollOffset, maxScrollOffset);
+    }
+
+    public List<DropdownItem> getItems() {
+        return items;
+    }
+
     public void open() {
         this.isOpen = true;
     }
@@ -0,0 +1,349 @@
+package com.choculaterie.gui.widget;
+
+import com.choculaterie.network.HttpTransport;
+import com.choculaterie.util.ImageDiskCache;
+import com.choculaterie.util.LitematicMetadata;
+import com.mojang.blaze3d.platform.NativeImage;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.Identifier;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+public class ImagePipeline {
+
+    private static final int DECODE_THREADS = 2;
+    private static final int MAX_SOURCE_EDGE = 16384;
+    private static final long VRAM_BUDGET_BYTES = 96L * 1024 * 1024;
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_MISSING_PREVIEWS = 4096;
+    private static ImagePipeline INSTANCE;
+
+    public record TextureHandle(String key, Identifier texture, int width, int height, int textureWidth, int textureHeight) {
+        long vramBytes() {
+            return (long) textureWidth * textureHeight * 4;
+        }
+    }
+
+    private final Minecraft client;
+    private final ImageDiskCache diskCache = ImageDiskCache.getInstance();
+    private final ImageDiskCache thumbnailCache = ImageDiskCache.getThumbnailInstance();
+    private final ExecutorService decodePool;
+    // Access-ordered so iteration starts at the least recently drawn texture
+    private final LinkedHashMap<String, TextureHandle> textures = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<TextureHandle>> inFlight = new ConcurrentHashMap<>();
+    // Files known to have no readable preview; the least recently checked are forgotten first
+    private final Map<String, Boolean> missingPreviews = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_MISSING_PREVIEWS;
+        }
+    };
+    private final AtomicInteger textureCounter = new AtomicInteger();
+    private long vramBytes = 0;
+
+    private ImagePipeline() {
+        this.client = Minecraft.getInstance();
+        AtomicInteger counter = new AtomicInteger();
+        this.decodePool = Executors.newFixedThreadPool(DECODE_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Litematic-Image-Decode-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public static synchronized ImagePipeline getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ImagePipeline();
+        }
+        return INSTANCE;
+    }
+
+    public static int decodeEdgeFor(int pixels) {
+        int edge = Integer.highestOneBit(Math.max(64, pixels - 1)) << 1;
+        return Math.min(edge, 4096);
+    }
+
+    public TextureHandle getIfLoaded(String url, int maxEdge) {
+        synchronized (textures) {
+            return textures.get(key(url, maxEdge));
+        }
+    }
+
+    public void touch(TextureHandle handle) {
+        if (handle == null) return;
+        synchronized (textures) {
+            textures.get(handle.key());
+        }
+    }
+
+    public CompletableFuture<TextureHandle> request(String url, int maxEdge) {
+        // Pre-scaled pixels skip decoding entirely, cached bytes skip the network
+        return load(url, maxEdge, () -> CompletableFuture.supplyAsync(() -> diskCache.loadPixels(url, maxEdge), decodePool)
+                .thenCompose(pixels -> pixels != null
+                        ? CompletableFuture.completedFuture(pixels)
+                        : fetchBytes(url).thenApplyAsync(bytes -> decode(url, bytes, maxEdge), decodePool)));
+    }
+
+    public TextureHandle getPreviewIfLoaded(File file, long size, long lastModified, int maxEdge) {
+        return getIfLoaded(previewUrl(file, size, lastModified), maxEdge);
+    }
+
+    public boolean hasNoPreview(File file, long size, long lastModified) {
+        return isMissingPreview(previewUrl(file, size, lastModified));
+    }
+
+    // Thumbnail from a local litematic's PreviewImageData. Requests whose cell scrolled out of view
+    // before a decode thread picked them up are dropped rather than read.
+    public CompletableFuture<TextureHandle> requestPreview(File file, long size, long lastModified, int maxEdge,
+            BooleanSupplier wanted) {
+        String url = previewUrl(file, size, lastModified);
+        if (isMissingPreview(url)) {
+            return CompletableFuture.failedFuture(new IOException("No preview image"));
+        }
+        return load(url, maxEdge, () -> CompletableFuture.supplyAsync(() -> {
+            ImageDiskCache.Pixels cached = thumbnailCache.loadPixels(url, maxEdge);
+            if (cached != null) {
+                return cached;
+            }
+            if (!wanted.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return decodePreview(url, file, maxEdge);
+        }, decodePool));
+    }
+
+    private CompletableFuture<TextureHandle> load(String url, int maxEdge,
+            Supplier<CompletableFuture<ImageDiskCache.Pixels>> source) {
+        String key = key(url, maxEdge);
+        TextureHandle loaded = getIfLoaded(url, maxEdge);
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(loaded);
+        }
+
+        CompletableFuture<TextureHandle> created = new CompletableFuture<>();
+        CompletableFuture<TextureHandle> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        source.get()
+                .thenApply(pixels -> new Decoded(toNativeImage(pixels), pixels.sourceWidth(), pixels.sourceHeight()))
+                .whenComplete((decoded, error) -> {
+                    if (error != null) {
+                        inFlight.remove(key, created);
+                        created.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                        return;
+                    }
+                    client.execute(() -> {
+                        try {
+                            created.complete(upload(key, decoded));
+                        } catch (Throwable t) {
+                            decoded.image.close();
+                            created.completeExceptionally(t);
+                        } finally {
+                            inFlight.remove(key, created);
+                        }
+                    });
+                });
+        return created;
+    }
+
+    public void releaseAll() {
+        synchronized (textures) {
+            for (TextureHandle handle : textures.values()) {
+                client.getTextureManager().release(handle.texture());
+            }
+            textures.clear();
+            vramBytes = 0;
+        }
+    }
+
+    private record Decoded(NativeImage image, int width, int height) {
+    }
+
+    private CompletableFuture<byte[]> fetchBytes(String url) {
+        byte[] cached = diskCache.loadBytes(url);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return HttpTransport.getBytesAsync(url, FETCH_TIMEOUT).thenApplyAsync(response -> {
+            if (response.statusCode() != 200) {
+                throw new CompletionException(new IOException("HTTP error: " + response.statusCode()));
+            }
+            diskCache.storeBytes(url, response.body());
+            return response.body();
+        }, decodePool);
+    }
+
+    private ImageDiskCache.Pixels decode(String url, byte[] bytes, int maxEdge) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Could not decode image (unsupported format)");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0) {
+                    throw new IOException("Invalid image dimensions");
+                }
+                if (width > MAX_SOURCE_EDGE || height > MAX_SOURCE_EDGE) {
+                    throw new IOException("Image too large: " + width + "x" + height);
+                }
+
+                double scale = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+                int targetWidth = Math.max(1, (int) Math.round(width * scale));
+                int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+                // Subsample during decode down to at most twice the target, then filter the rest
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, (int) Math.floor(1.0 / scale / 2.0));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+
+                ImageDiskCache.Pixels pixels = new ImageDiskCache.Pixels(targetWidth, targetHeight, width, height,
+                        scale(image, targetWidth, targetHeight));
+                diskCache.storePixels(url, maxEdge, pixels);
+                return pixels;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            System.err.println("[IMG] Failed to decode " + url + ": " + e.getMessage());
+            diskCache.remove(url);
+            throw new CompletionException(e);
+        }
+    }
+
+    private boolean isMissingPreview(String url) {
+        synchronized (missingPreviews) {
+            return missingPreviews.containsKey(url);
+        }
+    }
+
+    private void markMissingPreview(String url) {
+        synchronized (missingPreviews) {
+            missingPreviews.put(url, Boolean.TRUE);
+        }
+    }
+
+    private ImageDiskCache.Pixels decodePreview(String url, File file, int maxEdge) {
+        int[] argb;
+        try {
+            argb = LitematicMetadata.readPreviewImage(file);
+        } catch (IOException e) {
+            System.err.println("[IMG] Failed to read preview of " + file.getName() + ": " + e.getMessage());
+            markMissingPreview(url);
+            throw new CompletionException(e);
+        }
+
+        int edge = argb != null ? (int) Math.sqrt(argb.length) : 0;
+        if (edge == 0 || edge * edge != argb.length || edge > LitematicMetadata.MAX_PREVIEW_EDGE) {
+            markMissingPreview(url);
+            throw new CompletionException(new IOException("No preview image"));
+        }
+
+        // Screenshots are opaque, some writers leave the alpha byte empty
+        BufferedImage image = new BufferedImage(edge, edge, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] |= 0xFF000000;
+        }
+        image.setRGB(0, 0, edge, edge, argb, 0, edge);
+
+        int target = Math.min(edge, maxEdge);
+        ImageDiskCache.Pixels pixels = new ImageDiskCache.Pixels(target, target, edge, edge, scale(image, target, target));
+        thumbnailCache.storePixels(url, maxEdge, pixels);
+        return pixels;
+    }
+
+    private static int[] scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = source;
+        if (source.getWidth() != width || source.getHeight() != height || source.getType() != BufferedImage.TYPE_INT_ARGB) {
+            scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+            g.dispose();
+        }
+
+        return scaled.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    private static NativeImage toNativeImage(ImageDiskCache.Pixels pixels) {
+        int width = pixels.width();
+        int height = pixels.height();
+        int[] argb = pixels.argb();
+        NativeImage image = new NativeImage(width, height, false);
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                image.setPixel(x, y, argb[row + x]);
+            }
+        }
+        return image;
+    }
+
+    private TextureHandle upload(String key, Decoded decoded) {
+        String uniqueId = "img_" + textureCounter.incrementAndGet() + "_" + Integer.toHexString(key.hashCode());
+        Identifier id = Identifier.parse("litematicdownloader:" + uniqueId);
+        DynamicTexture texture = new DynamicTexture(() -> "litematicdownloader:" + uniqueId, decoded.image);
+        client.getTextureManager().register(id, texture);
+        texture.upload();
+
+        TextureHandle handle = new TextureHandle(key, id, decoded.width, decoded.height,
+                decoded.image.getWidth(), decoded.image.getHeight());
+        synchronized (textures) {
+            TextureHandle previous = textures.put(key, handle);
+            if (previous != null) {
+                vramBytes -= previous.vramBytes();
+                client.getTextureManager().release(previous.texture());
+            }
+            vramBytes += handle.vramBytes();
+            evict(handle);
+        }
+        return handle;
+    }
+
+    private void evict(TextureHandle keep) {
+        Iterator<TextureHandle> it = textures.values().iterator();
+        while (vramBytes > VRAM_BUDGET_BYTES && it.hasNext()) {
+            TextureHandle eldest = it.next();
+            if (eldest == keep) continue;
+            it.remove();
+            vramBytes -= eldest.vramBytes();
+            client.getTextureManager().release(eldest.texture());
+        }
+    }
+
+    private static String previewUrl(File file, long size, long lastModified) {
+        return "litematic-preview:" + file.getAbsolutePath() + "|" + size + "|" + lastModified;
+    }
+
+    private static String key(String url, int maxEdge) {
+        return maxEdge + "@" + url;
+    }
+}
@@ -18,7 +18,7 @@ public class ImageViewerWidget {
     private static final int TEXT_VERTICAL_OFFSET = 4;
     private static final int NAV_BG_COLOR = 0xD0000000;
 
-    private final Identifier imageTexture;
+    private Identifier imageTexture;
     private final int originalImageWidth;
     private final int originalImageHeight;
     private final Runnable onClose;
@@ -51,6 +51,10 @@ public class ImageViewerWidget {
         updateLayout(client.getWindow().getGuiScaledWidth(), client.getWindow().getGuiScaledHeight());
     }
 
+    public void setImageTexture(Identifier imageTexture) {
+        this.imageTexture = imageTexture;
+    }
+
     public void updateLayout(int screenWidth, int screenHeight) {
         this.screenWidth = screenWidth;
         this.screenHeight = screenHeight;
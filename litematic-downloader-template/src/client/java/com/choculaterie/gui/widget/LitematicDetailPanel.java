@@ -2,6 +2,7 @@ package com.choculaterie.gui.widget;
 
 import org.lwjgl.glfw.GLFW;
 import com.choculaterie.gui.theme.UITheme;
+import com.choculaterie.util.LitematicAnalysis;
 import com.choculaterie.util.LitematicParser;
 import com.choculaterie.util.LitematicBlockReplacer;
 import net.minecraft.world.level.block.Block;
@@ -20,6 +21,7 @@ import net.minecraft.resources.Identifier;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class LitematicDetailPanel implements Renderable, GuiEventListener {
 
@@ -48,11 +50,15 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
     private volatile boolean isParsingPositions = false;
     private volatile boolean positionParseFailed = false;
     private volatile boolean positionsParsed = false;
+    private volatile CompletableFuture<LitematicAnalysis> currentAnalysis;
 
     private final SchematicExportPanel exportPanel = new SchematicExportPanel(schematicRenderer);
     private boolean isExportPanelOpen = false;
 
     private static final int ITEM_HEIGHT = 24;
+    private static final int FILTER_TOGGLE_SIZE = 10;
+    // Left edge of the per-row 3D filter toggle, measured back from the list's right edge
+    private static final int FILTER_TOGGLE_OFFSET = 70;
     private static final int HEADER_HEIGHT = 58;
 
     public LitematicDetailPanel(int x, int y, int width, int height) {
@@ -162,7 +168,8 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
 
     public void setFile(File file) {
         this.litematicFile = file;
-        this.blockCounts.clear();
+        this.currentAnalysis = null;
+        this.blockCounts = new ArrayList<>();
         this.scrollOffset = 0;
         this.parseFailed = false;
         this.positionParseFailed = false;
@@ -170,38 +177,39 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
         this.isExportPanelOpen = false;
         exportPanel.setLitematicFile(file);
         updateExportPanelBounds();
+        schematicRenderer.clearBlocks();
         schematicRenderer.reset();
 
         if (file != null && file.getName().toLowerCase().endsWith(".litematic")) {
             this.isParsing = true;
             this.isParsingPositions = true;
 
-            new Thread(() -> {
-                try {
-                    List<LitematicParser.BlockCount> counts = LitematicParser.parseBlockCounts(file);
-                    this.blockCounts = counts;
-                    this.isParsing = false;
-                    updateScrollBar();
-                } catch (Exception e) {
-                    e.printStackTrace();
+            CompletableFuture<LitematicAnalysis> analysis = LitematicAnalysis.analyzeAsync(file);
+            this.currentAnalysis = analysis;
+
+            analysis.whenComplete((result, error) -> {
+                if (currentAnalysis != analysis) return;
+                if (error != null) {
+                    error.printStackTrace();
                     this.parseFailed = true;
-                    this.isParsing = false;
+                } else {
+                    this.blockCounts = result.getBlockCounts();
+                    updateScrollBar();
                 }
-            }, "Litematic-Parser-Counts").start();
+                this.isParsing = false;
+            });
 
-            new Thread(() -> {
-                try {
-                    List<LitematicParser.BlockData> positions = LitematicParser.parseBlockPositions(file);
-                    schematicRenderer.setBlocks(positions);
+            analysis.whenComplete((result, error) -> {
+                if (currentAnalysis != analysis) return;
+                if (error != null) {
+                    this.positionParseFailed = true;
+                } else {
+                    schematicRenderer.setBlocks(result.getVolume());
                     schematicRenderer.fitToPanel(width, height - HEADER_HEIGHT);
                     this.positionsParsed = true;
-                    this.isParsingPositions = false;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    this.positionParseFailed = true;
-                    this.isParsingPositions = false;
                 }
-            }, "Litematic-Parser-Positions").start();
+                this.isParsingPositions = false;
+            });
         }
     }
 
@@ -227,7 +235,8 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
 
     public void clear() {
         this.litematicFile = null;
-        this.blockCounts.clear();
+        this.currentAnalysis = null;
+        this.blockCounts = new ArrayList<>();
         this.scrollOffset = 0;
         this.isParsing = false;
         this.parseFailed = false;
@@ -236,9 +245,16 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
         this.replacementPopup = null;
         this.isExportPanelOpen = false;
         exportPanel.setLitematicFile(null);
+        schematicRenderer.clearBlocks();
         schematicRenderer.reset();
     }
 
+    // Frees the preview's GPU buffers once the owning screen is gone
+    public void close() {
+        clear();
+        schematicRenderer.close();
+    }
+
     @Override
     public void extractRenderState(GuiGraphicsExtractor context, int mouseX, int mouseY, float delta) {
         int renderMouseX = replacementPopup != null ? -1 : mouseX;
@@ -280,6 +296,7 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
         if (isIn3DMode) {
             render3DView(context, renderMouseX, renderMouseY, delta);
         } else {
+            schematicRenderer.uploadPending();
             renderMaterialList(context, renderMouseX, renderMouseY, delta);
         }
 
@@ -296,7 +313,7 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
 
         context.fill(viewX, viewY, viewX + viewW, viewY + viewH, 0xFF111111);
 
-        if (isParsingPositions || schematicRenderer.isBuilding()) {
+        if (isParsingPositions) {
             String msg = "Loading 3D preview...";
             context.text(client.font, msg,
                     viewX + (viewW - client.font.width(msg)) / 2,
@@ -312,7 +329,32 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
                     viewX + (viewW - client.font.width(msg)) / 2,
                     viewY + viewH / 2 - 4, 0xFF888888);
         } else {
+            // Sections appear as they finish meshing, so the view is drawn while the build runs
             schematicRenderer.render(context, viewX, viewY, viewW, viewH, mouseX, mouseY);
+            if (schematicRenderer.isBuilding()) {
+                int sectionCount = schematicRenderer.getSectionCount();
+                if (sectionCount == 0) {
+                    String msg = "Loading 3D preview...";
+                    context.text(client.font, msg,
+                            viewX + (viewW - client.font.width(msg)) / 2,
+                            viewY + viewH / 2 - 4, 0xFFFFAA00);
+                } else {
+                    context.text(client.font, "Building... " + sectionCount + " sections", viewX + 4, viewY + 4,
+                            0xFFFFAA00);
+                }
+            }
+
+            SchematicRenderer.BlockFilter filter = schematicRenderer.getBlockFilter();
+            if (filter != SchematicRenderer.BlockFilter.NONE) {
+                String label = switch (filter) {
+                    case ISOLATE -> "Showing only: ";
+                    case HIDE -> "Hiding: ";
+                    default -> "Highlighting: ";
+                };
+                String filterText = label + LitematicParser.getSimpleBlockName(schematicRenderer.getFilterBlockId());
+                int filterY = schematicRenderer.isBuilding() ? viewY + 16 : viewY + 4;
+                context.text(client.font, filterText, viewX + 4, filterY, getFilterColor(filter));
+            }
 
             if (!isExportPanelOpen) {
                 String hint;
@@ -384,7 +426,7 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
             int textX = contentX + 24;
             int textY = itemY + 8;
 
-            int maxTextWidth = listRightEdge - textX - 70;
+            int maxTextWidth = listRightEdge - textX - FILTER_TOGGLE_OFFSET - 4;
             if (client.font.width(blockName) > maxTextWidth) {
                 String ellipsis = "...";
                 int ellipsisWidth = client.font.width(ellipsis);
@@ -401,6 +443,8 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
 
             context.text(client.font, blockName, textX, textY, 0xFFFFFFFF);
 
+            renderFilterToggle(context, blockCount.blockId, listRightEdge - FILTER_TOGGLE_OFFSET, itemY, mouseX, mouseY);
+
             String countText = "x" + blockCount.count;
             int countWidth = client.font.width(countText);
             context.text(client.font, countText, listRightEdge - countWidth - 5, textY, UITheme.Colors.ACCENT_GREEN);
@@ -418,6 +462,42 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
         }
     }
 
+    // Square toggle cycling how this block type is shown in the 3D view
+    private void renderFilterToggle(GuiGraphicsExtractor context, String blockId, int toggleX, int itemY,
+                                    int mouseX, int mouseY) {
+        int toggleY = itemY + (ITEM_HEIGHT - FILTER_TOGGLE_SIZE) / 2;
+        boolean hovered = mouseX >= toggleX && mouseX < toggleX + FILTER_TOGGLE_SIZE
+                && mouseY >= toggleY && mouseY < toggleY + FILTER_TOGGLE_SIZE;
+        SchematicRenderer.BlockFilter filter = blockId.equals(schematicRenderer.getFilterBlockId())
+                ? schematicRenderer.getBlockFilter() : SchematicRenderer.BlockFilter.NONE;
+
+        context.fill(toggleX, toggleY, toggleX + FILTER_TOGGLE_SIZE, toggleY + FILTER_TOGGLE_SIZE,
+                hovered ? UITheme.Colors.SCROLLBAR_THUMB_HOVER : UITheme.Colors.BUTTON_BORDER);
+        int inner = filter == SchematicRenderer.BlockFilter.NONE ? 0xFF1A1A1A : getFilterColor(filter);
+        context.fill(toggleX + 1, toggleY + 1, toggleX + FILTER_TOGGLE_SIZE - 1, toggleY + FILTER_TOGGLE_SIZE - 1, inner);
+    }
+
+    private static int getFilterColor(SchematicRenderer.BlockFilter filter) {
+        return switch (filter) {
+            case HIGHLIGHT -> UITheme.Colors.TOAST_ACCENT_WARNING;
+            case ISOLATE -> UITheme.Colors.ACCENT_GREEN;
+            case HIDE -> UITheme.Colors.TOAST_ACCENT_ERROR;
+            default -> UITheme.Colors.TEXT_DISABLED;
+        };
+    }
+
+    private void cycleBlockFilter(String blockId) {
+        SchematicRenderer.BlockFilter current = blockId.equals(schematicRenderer.getFilterBlockId())
+                ? schematicRenderer.getBlockFilter() : SchematicRenderer.BlockFilter.NONE;
+        SchematicRenderer.BlockFilter next = switch (current) {
+            case NONE -> SchematicRenderer.BlockFilter.HIGHLIGHT;
+            case HIGHLIGHT -> SchematicRenderer.BlockFilter.ISOLATE;
+            case ISOLATE -> SchematicRenderer.BlockFilter.HIDE;
+            case HIDE -> SchematicRenderer.BlockFilter.NONE;
+        };
+        schematicRenderer.setBlockFilter(blockId, next);
+    }
+
     private ItemStack getItemStackForBlock(String blockId) {
         try {
             Identifier identifier = Identifier.tryParse(blockId);
@@ -470,7 +550,13 @@ public class LitematicDetailPanel implements Renderable, GuiEventListener {
                     click.y() >= listY && click.y() < listY + listHeight) {
                 int clickedIndex = scrollOffset + (int) ((click.y() - listY) / ITEM_HEIGHT);
                 if (clickedIndex >= 0 && clickedIndex < blockCounts.size()) {
-                    openReplacementPopup(blockCounts.get(clickedIndex).blockId);
+                    String blockId = blockCounts.get(clickedIndex).blockId;
+                    int toggleX = listRightEdge - FILTER_TOGGLE_OFFSET;
+                    if (click.x() >= toggleX - 2 && click.x() < toggleX + FILTER_TOGGLE_SIZE + 2) {
+                        cycleBlockFilter(blockId);
+                    } else {
+                        openReplacementPopup(blockId);
+                    }
                     return true;
                 }
             }
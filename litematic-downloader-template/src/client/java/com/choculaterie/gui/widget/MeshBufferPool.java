@@ -0,0 +1,109 @@
+package com.choculaterie.gui.widget;
+
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// Off-heap vertex builders shared by every 3D preview. A builder is out of the pool from the moment a
+// section starts meshing until its MeshData has been uploaded and closed, so the pool size also caps
+// how far meshing can run ahead of uploads.
+public class MeshBufferPool {
+    private static final int INITIAL_BYTES = 64 * 1024;
+    // Builders that ever grew past this for one huge section are freed instead of kept around
+    private static final long MAX_RETAINED_BYTES = 4L * 1024 * 1024;
+    // Total native memory idle builders may hold between previews; anything released past it is freed
+    private static final long MAX_IDLE_BYTES = 32L * 1024 * 1024;
+    private static final long WAIT_MILLIS = 50;
+    // Uploads happen on the render thread; if it stops draining sections the worker hands its section back
+    // to be meshed again later instead of holding on to the builders it already has
+    private static final long MAX_WAIT_MILLIS = 5_000;
+    private static MeshBufferPool INSTANCE;
+
+    private final int capacity;
+    private final LinkedBlockingDeque<Idle> free = new LinkedBlockingDeque<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong idleBytes = new AtomicLong();
+    // Largest number of bytes each live builder has been asked to hold, since builders never shrink
+    private final Map<ByteBufferBuilder, Long> peakBytes = new ConcurrentHashMap<>();
+
+    private static class Idle {
+        final ByteBufferBuilder builder;
+        final long bytes;
+
+        Idle(ByteBufferBuilder builder, long bytes) {
+            this.builder = builder;
+            this.bytes = bytes;
+        }
+    }
+
+    private MeshBufferPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static synchronized MeshBufferPool getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MeshBufferPool(Math.max(32, SchematicRenderer.MESH_THREADS * 12));
+        }
+        return INSTANCE;
+    }
+
+    // Blocks while every builder is in use, returning null once the caller's build is cancelled or no
+    // builder came back within MAX_WAIT_MILLIS; in the second case the caller is expected to retry
+    public ByteBufferBuilder acquire(BooleanSupplier cancelled) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MILLIS);
+        while (true) {
+            Idle idle = free.pollFirst();
+            if (idle != null) return take(idle);
+
+            int count = created.get();
+            if (count < capacity) {
+                if (created.compareAndSet(count, count + 1)) {
+                    return new ByteBufferBuilder(INITIAL_BYTES);
+                }
+                continue;
+            }
+
+            try {
+                idle = free.pollFirst(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (idle != null) return take(idle);
+            if (cancelled.getAsBoolean()) return null;
+            if (System.nanoTime() - deadline > 0) {
+                System.err.println("[MeshBufferPool] No vertex builder freed up in " + MAX_WAIT_MILLIS + " ms, requeueing section");
+                return null;
+            }
+        }
+    }
+
+    // Only call once any MeshData built from the builder has been closed
+    public void release(ByteBufferBuilder builder, long usedBytes) {
+        long peak = Math.max(usedBytes, peakBytes.getOrDefault(builder, 0L));
+        // Builders grow by at most doubling, so twice the most bytes ever written bounds what this one holds
+        long held = Math.max(INITIAL_BYTES, peak * 2);
+        if (peak > MAX_RETAINED_BYTES || idleBytes.addAndGet(held) > MAX_IDLE_BYTES) {
+            if (peak <= MAX_RETAINED_BYTES) idleBytes.addAndGet(-held);
+            peakBytes.remove(builder);
+            builder.close();
+            created.decrementAndGet();
+            return;
+        }
+        peakBytes.put(builder, peak);
+        builder.clear();
+        // Most recently used first, their memory is the most likely to still be resident
+        free.offerFirst(new Idle(builder, held));
+    }
+
+    private ByteBufferBuilder take(Idle idle) {
+        idleBytes.addAndGet(-idle.bytes);
+        return idle.builder;
+    }
+}
@@ -2,10 +2,11 @@ package com.choculaterie.gui.widget;
 
 import org.lwjgl.glfw.GLFW;
 import com.choculaterie.gui.theme.UITheme;
-import com.choculaterie.config.DownloadSettings;
 import com.choculaterie.models.MinemevFileInfo;
 import com.choculaterie.models.MinemevPostDetailInfo;
 import com.choculaterie.models.MinemevPostInfo;
+import com.choculaterie.network.DownloadManager;
+import com.choculaterie.network.FileDownloader;
 import com.choculaterie.network.MinemevNetworkManager;
 import com.choculaterie.util.HtmlText;
 import net.minecraft.client.Minecraft;
@@ -13,34 +14,15 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.client.gui.components.Renderable;
 import net.minecraft.client.gui.components.events.GuiEventListener;
-import com.mojang.blaze3d.platform.NativeImage;
-import net.minecraft.client.renderer.texture.DynamicTexture;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.Identifier;
 import net.minecraft.util.Util;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.net.URI;
-import javax.imageio.ImageIO;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CompletableFuture;
 
 public class PostDetailPanel implements Renderable, GuiEventListener {
@@ -65,11 +47,11 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
     private String[] imageUrls;
     private int currentImageIndex = 0;
     private Identifier currentImageTexture;
-    private final Map<String, Identifier> imageCache = new ConcurrentHashMap<>();
+    private ImagePipeline.TextureHandle currentImage;
+    private ImagePipeline.TextureHandle viewerImage;
     private String loadingImageUrl = null;
     private int originalImageWidth = 0;
     private int originalImageHeight = 0;
-    private final Map<String, int[]> imageDimensionsCache = new ConcurrentHashMap<>();
 
     private final Minecraft client;
     private double scrollOffset = 0;
@@ -87,6 +69,8 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
     private MinemevFileInfo[] availableFiles;
     private boolean isLoadingFiles = false;
     private String downloadStatus = "";
+    private final Map<String, DownloadManager.DownloadJob> fileJobs = new HashMap<>();
+    private long lastDownloadVersion = -1;
 
     private ImageViewerWidget imageViewer;
 
@@ -237,6 +221,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
         this.isLoadingDetails = true;
         this.currentImageIndex = 0;
         this.currentImageTexture = null;
+        this.currentImage = null;
         this.originalImageWidth = 0;
         this.originalImageHeight = 0;
         this.scrollOffset = 0;
@@ -309,16 +294,13 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
     }
 
     private void preloadImages(String[] urls) {
+        int decodeEdge = getPreviewDecodeEdge();
         for (String url : urls) {
-            if (!imageCache.containsKey(url)) {
-                new Thread(() -> {
-                    try {
-                        loadImageAsync(url);
-                    } catch (Exception e) {
+            ImagePipeline.getInstance().request(encodeImageUrl(url), decodeEdge)
+                    .exceptionally(e -> {
                         System.err.println("Failed to preload image: " + url);
-                    }
-                }).start();
-            }
+                        return null;
+                    });
         }
     }
 
@@ -328,139 +310,39 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
             return;
         }
 
-        System.out.println("[IMG] loadImage: " + imageUrl);
-
-        if (imageCache.containsKey(imageUrl)) {
-            System.out.println("[IMG] Cache hit, assigning texture");
-            currentImageTexture = imageCache.get(imageUrl);
-            int[] dims = imageDimensionsCache.get(imageUrl);
-            if (dims != null) {
-                originalImageWidth = dims[0];
-                originalImageHeight = dims[1];
-            }
+        loadingImageUrl = imageUrl;
+        int decodeEdge = getPreviewDecodeEdge();
+        ImagePipeline.TextureHandle loaded = ImagePipeline.getInstance().getIfLoaded(encodeImageUrl(imageUrl), decodeEdge);
+        if (loaded != null) {
+            setCurrentImage(loaded);
             isLoadingImage = false;
             return;
         }
 
         isLoadingImage = true;
-        loadingImageUrl = imageUrl;
-        System.out.println("[IMG] Starting background load thread");
-
-        new Thread(() -> {
-            try {
-                loadImageAsync(imageUrl);
-            } catch (Exception e) {
-                System.err.println(
-                        "[IMG] Exception in load thread: " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                e.printStackTrace();
-                if (client != null) {
-                    client.execute(() -> {
-                        isLoadingImage = false;
-                    });
-                }
-            }
-        }).start();
-    }
-
-    private void loadImageAsync(String imageUrl) throws Exception {
-        if (imageCache.containsKey(imageUrl)) {
-            if (client != null) {
-                client.execute(() -> {
-                    if (imageUrl.equals(loadingImageUrl)) {
-                        currentImageTexture = imageCache.get(imageUrl);
-                        int[] dims = imageDimensionsCache.get(imageUrl);
-                        if (dims != null) {
-                            originalImageWidth = dims[0];
-                            originalImageHeight = dims[1];
-                        }
-                        isLoadingImage = false;
-                    }
-                });
-            }
-            return;
-        }
-
-        String encodedUrl = encodeImageUrl(imageUrl);
-        System.out.println("[IMG] Fetching: " + encodedUrl);
-
-        HttpClient httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(encodedUrl))
-                .GET()
-                .header("User-Agent", "LitematicDownloader/1.0")
-                .build();
-
-        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-        System.out.println("[IMG] HTTP status: " + response.statusCode() + ", body size: " + response.body().length);
-
-        if (response.statusCode() != 200) {
-            throw new Exception("HTTP error: " + response.statusCode());
-        }
-
-        byte[] imageData = response.body();
-        System.out.println("[IMG] Raw bytes: " + imageData.length);
-
-        byte[] pngBytes = convertImageToPng(imageData);
-        NativeImage nativeImage = NativeImage.read(pngBytes);
-
-        int imgWidth = nativeImage.getWidth();
-        int imgHeight = nativeImage.getHeight();
-        System.out.println("[IMG] Decoded size: " + imgWidth + "x" + imgHeight + " format=" + nativeImage.format());
-
-        if (imgWidth <= 0 || imgHeight <= 0) {
-            nativeImage.close();
-            throw new Exception("Invalid image dimensions");
-        }
-
-        if (imgWidth > 4096 || imgHeight > 4096) {
-            nativeImage.close();
-            throw new Exception("Image too large: " + imgWidth + "x" + imgHeight);
-        }
-
-        imageDimensionsCache.put(imageUrl, new int[] { imgWidth, imgHeight });
-
-        final NativeImage finalImage = nativeImage;
-        System.out.println("[IMG] Scheduling texture creation on render thread");
-
-        if (client != null) {
-            client.execute(() -> {
-                System.out.println("[IMG] Creating DynamicTexture on render thread");
-                String uniqueId = "img_" + UUID.randomUUID().toString().replace("-", "");
-                DynamicTexture tex = new DynamicTexture(() -> "litematicdownloader:" + uniqueId, finalImage);
-                Identifier texId = Identifier.parse("litematicdownloader:" + uniqueId);
-                client.getTextureManager().register(texId, tex);
-                tex.upload();
-                imageCache.put(imageUrl, texId);
-                if (imageUrl.equals(loadingImageUrl)) {
-                    currentImageTexture = texId;
-                    int[] dims = imageDimensionsCache.get(imageUrl);
-                    if (dims != null) {
-                        originalImageWidth = dims[0];
-                        originalImageHeight = dims[1];
+        ImagePipeline.getInstance().request(encodeImageUrl(imageUrl), decodeEdge)
+                .whenComplete((handle, error) -> client.execute(() -> {
+                    if (!imageUrl.equals(loadingImageUrl))
+                        return;
+                    if (handle != null) {
+                        setCurrentImage(handle);
+                    } else {
+                        System.err.println("[IMG] Failed to load " + imageUrl + ": " + error.getMessage());
                     }
                     isLoadingImage = false;
-                    System.out.println("[IMG] currentImageTexture set, id=" + texId);
-                } else {
-                    System.out.println(
-                            "[IMG] URL no longer active (loadingImageUrl=" + loadingImageUrl + "), skipping assign");
-                }
-            });
-        } else {
-            System.err.println("[IMG] client is null, cannot create texture");
-        }
+                }));
     }
 
-    private byte[] convertImageToPng(byte[] imageData) throws Exception {
-        BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(imageData));
-        if (bufferedImage == null) {
-            throw new Exception("Could not decode image (unsupported format)");
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "PNG", out);
-        return out.toByteArray();
+    private void setCurrentImage(ImagePipeline.TextureHandle handle) {
+        currentImage = handle;
+        currentImageTexture = handle.texture();
+        originalImageWidth = handle.width();
+        originalImageHeight = handle.height();
+    }
+
+    private int getPreviewDecodeEdge() {
+        int guiScale = client != null && client.getWindow() != null ? (int) Math.ceil(client.getWindow().getGuiScale()) : 2;
+        return ImagePipeline.decodeEdgeFor(Math.max(getDisplayImageWidth(), MAX_IMAGE_SIZE) * Math.max(1, guiScale));
     }
 
     private String encodeImageUrl(String url) {
@@ -483,6 +365,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
         this.isLoadingDetails = false;
         this.isLoadingImage = false;
         this.currentImageTexture = null;
+        this.currentImage = null;
         this.originalImageWidth = 0;
         this.originalImageHeight = 0;
         this.imageUrls = null;
@@ -495,6 +378,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
         this.availableFiles = null;
         this.isLoadingFiles = false;
         this.downloadStatus = "";
+        this.fileJobs.values().removeIf(job -> job.getState().isFinished());
         if (schematicDropdown != null) {
             schematicDropdown.onClose();
             schematicDropdown.setStatusMessage("");
@@ -596,16 +480,10 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
             items.add(new DropdownWidget.DropdownItem("🔗 View on Website", "WEBSITE_LINK"));
         }
 
-        for (MinemevFileInfo file : availableFiles) {
-            String displayText = file.getDefaultFileName();
-            if (file.getFileSize() > 0) {
-                displayText += " (" + formatFileSize(file.getFileSize()) + ")";
-            }
-            items.add(new DropdownWidget.DropdownItem(displayText, file));
-        }
-
+        items.addAll(buildFileItems());
         schematicDropdown.setItems(items);
-        schematicDropdown.setStatusMessage(downloadStatus);
+        schematicDropdown.setStatusMessage(getDownloadStatusMessage());
+        lastDownloadVersion = DownloadManager.getInstance().getVersion();
 
         if (downloadButton != null) {
             schematicDropdown.setPosition(
@@ -628,153 +506,187 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
             return;
         }
 
+        if ("DOWNLOAD_ALL".equals(item.getData())) {
+            downloadAll();
+            refreshSchematicDropdown();
+            return;
+        }
+
         if (!(item.getData() instanceof MinemevFileInfo))
             return;
 
         MinemevFileInfo file = (MinemevFileInfo) item.getData();
-        downloadSchematic(file);
+        if (isDownloadActive(file)) {
+            fileJobs.get(file.getDownloadUrl()).cancel();
+        } else {
+            downloadSchematic(file, DownloadManager.Priority.HIGH);
+        }
+        refreshSchematicDropdown();
     }
 
-    private void downloadSchematic(MinemevFileInfo file) {
-        downloadStatus = "Downloading...";
-        if (schematicDropdown != null) {
-            schematicDropdown.setStatusMessage(downloadStatus);
+    private List<DropdownWidget.DropdownItem> buildFileItems() {
+        List<DropdownWidget.DropdownItem> items = new ArrayList<>();
+        if (availableFiles.length > 1) {
+            items.add(new DropdownWidget.DropdownItem("⬇ Download all (" + availableFiles.length + " files)", "DOWNLOAD_ALL"));
         }
 
-        new Thread(() -> {
-            try {
-                String downloadUrl = file.getDownloadUrl();
-                if (downloadUrl == null || downloadUrl.isEmpty()) {
-                    client.execute(() -> {
-                        downloadStatus = "Invalid download URL";
-                        if (schematicDropdown != null) {
-                            schematicDropdown.setStatusMessage(downloadStatus);
-                        }
-                    });
-                    System.err.println("[Download] Invalid download URL");
-                    return;
+        for (MinemevFileInfo file : availableFiles) {
+            String displayText = file.getDefaultFileName();
+            DownloadManager.DownloadJob job = fileJobs.get(file.getDownloadUrl());
+            DownloadManager.State state = job != null ? job.getState() : null;
+            if (state == DownloadManager.State.RUNNING) {
+                displayText = "✕ " + displayText + " — " + formatProgress(job);
+            } else if (state == DownloadManager.State.QUEUED) {
+                displayText = "✕ " + displayText + " — queued";
+            } else if (state == DownloadManager.State.RETRYING) {
+                displayText = "✕ " + displayText + " — retrying (" + job.getAttempts() + ")";
+            } else {
+                if (state == DownloadManager.State.COMPLETED) {
+                    displayText = "✓ " + displayText;
                 }
-
-                System.out.println("[Download] Starting download from: " + downloadUrl);
-                System.out.println("[Download] File: " + file.getDefaultFileName());
-
-                int lastSlash = downloadUrl.lastIndexOf('/');
-                String base = downloadUrl.substring(0, lastSlash + 1);
-                String filename = URLDecoder.decode(downloadUrl.substring(lastSlash + 1), StandardCharsets.UTF_8);
-                String encodedUrl = base + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20");
-
-                HttpClient httpClient = HttpClient.newBuilder()
-                        .connectTimeout(Duration.ofSeconds(30))
-                        .followRedirects(HttpClient.Redirect.ALWAYS)
-                        .build();
-
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(encodedUrl))
-                        .GET()
-                        .header("User-Agent", "LitematicDownloader/1.0")
-                        .build();
-
-                System.out.println("[Download] Sending request...");
-                HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-                System.out.println("[Download] Response status: " + response.statusCode());
-                System.out.println("[Download] Content length: " + response.body().length);
-
-                if (response.statusCode() != 200) {
-                    String errorMsg;
-                    switch (response.statusCode()) {
-                        case 404:
-                            errorMsg = "✗ Error: File not found on server";
-                            break;
-                        case 403:
-                            errorMsg = "✗ Error: Access denied";
-                            break;
-                        case 500:
-                        case 502:
-                        case 503:
-                            errorMsg = "✗ Error: Server error (" + response.statusCode() + ")";
-                            break;
-                        case 429:
-                            errorMsg = "✗ Error: Too many requests, try again later";
-                            break;
-                        default:
-                            errorMsg = "✗ Download failed: HTTP " + response.statusCode();
-                    }
-                    System.err.println("[Download] " + errorMsg);
-                    client.execute(() -> {
-                        downloadStatus = errorMsg;
-                        if (schematicDropdown != null) {
-                            schematicDropdown.setStatusMessage(downloadStatus);
-                        }
-                    });
-                    return;
+                if (file.getFileSize() > 0) {
+                    displayText += " (" + formatFileSize(file.getFileSize()) + ")";
                 }
+            }
+            items.add(new DropdownWidget.DropdownItem(displayText, file));
+        }
+        return items;
+    }
 
-                Path schematicsPath = Paths.get(DownloadSettings.getInstance().getAbsoluteDownloadPath());
-                File schematicsDir = schematicsPath.toFile();
-                if (!schematicsDir.exists()) {
-                    boolean created = schematicsDir.mkdirs();
-                    System.out.println("[Download] Created schematics directory: " + created);
-                }
-                System.out.println("[Download] Schematics directory: " + schematicsDir.getAbsolutePath());
+    private void refreshSchematicDropdown() {
+        if (schematicDropdown == null || !schematicDropdown.isOpen() || availableFiles == null)
+            return;
 
-                String fileName = file.getDefaultFileName();
-                if (!fileName.endsWith(".litematic")) {
-                    fileName += ".litematic";
-                }
+        List<DropdownWidget.DropdownItem> items = new ArrayList<>();
+        if (!schematicDropdown.getItems().isEmpty() && "WEBSITE_LINK".equals(schematicDropdown.getItems().get(0).getData())) {
+            items.add(schematicDropdown.getItems().get(0));
+        }
+        items.addAll(buildFileItems());
+        schematicDropdown.updateItems(items);
+        schematicDropdown.setStatusMessage(getDownloadStatusMessage());
+        lastDownloadVersion = DownloadManager.getInstance().getVersion();
+    }
 
-                File outputFile = new File(schematicsDir, fileName);
+    private boolean isDownloadActive(MinemevFileInfo file) {
+        DownloadManager.DownloadJob job = fileJobs.get(file.getDownloadUrl());
+        return job != null && !job.getState().isFinished();
+    }
 
-                int counter = 1;
-                while (outputFile.exists()) {
-                    String baseName = fileName.substring(0, fileName.lastIndexOf(".litematic"));
-                    outputFile = new File(schematicsDir, baseName + "_" + counter + ".litematic");
-                    counter++;
-                }
+    private String getDownloadStatusMessage() {
+        if (availableFiles == null)
+            return downloadStatus;
 
-                try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                    fos.write(response.body());
-                }
+        int active = 0;
+        DownloadManager.DownloadJob running = null;
+        for (MinemevFileInfo file : availableFiles) {
+            DownloadManager.DownloadJob job = fileJobs.get(file.getDownloadUrl());
+            if (job == null || job.getState().isFinished())
+                continue;
+            active++;
+            if (running == null && job.getState() == DownloadManager.State.RUNNING) {
+                running = job;
+            }
+        }
 
-                final String finalFileName = outputFile.getName();
-                final String finalPath = outputFile.getAbsolutePath();
-                client.execute(() -> {
-                    downloadStatus = "✓ Downloaded: " + finalFileName;
-                    if (schematicDropdown != null) {
-                        schematicDropdown.setStatusMessage(downloadStatus);
-                    }
-                    System.out.println("Downloaded schematic to: " + finalPath);
-                });
+        if (active == 0)
+            return downloadStatus;
+        // Downloads from other posts share the same queue and slow this one down
+        int others = DownloadManager.getInstance().getActiveCount() - active;
+        String suffix = others > 0 ? " (+" + others + " from other posts)" : "";
+        if (running == null)
+            return "Waiting for " + active + (active == 1 ? " download" : " downloads") + suffix + "...";
+        return "Downloading" + (active > 1 ? " (" + active + " left)" : "") + suffix + "... " + formatProgress(running);
+    }
 
-            } catch (Exception e) {
-                client.execute(() -> {
-                    String errorMsg;
-                    if (e instanceof java.net.UnknownHostException) {
-                        errorMsg = "✗ Error: No internet connection";
-                    } else if (e instanceof java.net.SocketTimeoutException) {
-                        errorMsg = "✗ Error: Connection timeout";
-                    } else if (e instanceof java.io.FileNotFoundException) {
-                        errorMsg = "✗ Error: File not found";
-                    } else if (e instanceof java.io.IOException && e.getMessage().contains("Permission denied")) {
-                        errorMsg = "✗ Error: Cannot write to disk (permission denied)";
-                    } else if (e instanceof java.io.IOException && e.getMessage().contains("No space")) {
-                        errorMsg = "✗ Error: Not enough disk space";
-                    } else {
-                        String msg = e.getMessage();
-                        if (msg != null && msg.length() > 40) {
-                            msg = msg.substring(0, 37) + "...";
-                        }
-                        errorMsg = "✗ Error: " + (msg != null ? msg : "Unknown error");
-                    }
+    private String formatProgress(DownloadManager.DownloadJob job) {
+        long total = job.getTotalBytes();
+        if (total > 0) {
+            return (job.getDownloadedBytes() * 100 / total) + "% of " + formatFileSize(total);
+        }
+        return formatFileSize(job.getDownloadedBytes());
+    }
 
-                    downloadStatus = errorMsg;
-                    if (schematicDropdown != null) {
-                        schematicDropdown.setStatusMessage(downloadStatus);
-                    }
-                    System.err.println("Failed to download schematic: " + e.getMessage());
-                    e.printStackTrace();
-                });
+    private void downloadSchematic(MinemevFileInfo file, DownloadManager.Priority priority) {
+        String downloadUrl = file.getDownloadUrl();
+        if (downloadUrl == null || downloadUrl.isEmpty()) {
+            downloadStatus = "Invalid download URL";
+            System.err.println("[Download] Invalid download URL");
+            return;
+        }
+
+        System.out.println("[Download] Queueing download from: " + downloadUrl);
+        track(file, DownloadManager.getInstance().enqueue(file, priority));
+    }
+
+    private void downloadAll() {
+        List<MinemevFileInfo> pending = new ArrayList<>();
+        for (MinemevFileInfo file : availableFiles) {
+            if (!isDownloadActive(file)) {
+                pending.add(file);
+            }
+        }
+        Map<MinemevFileInfo, DownloadManager.DownloadJob> jobs = DownloadManager.getInstance().enqueueAll(pending);
+        if (jobs.size() < pending.size()) {
+            System.err.println("[Download] Skipped " + (pending.size() - jobs.size()) + " file(s) without a download URL");
+        }
+        System.out.println("[Download] Queueing " + jobs.size() + " download(s)");
+        jobs.forEach(this::track);
+    }
+
+    private void track(MinemevFileInfo file, DownloadManager.DownloadJob job) {
+        String downloadUrl = file.getDownloadUrl();
+        fileJobs.put(downloadUrl, job);
+
+        job.future().whenComplete((savedPath, error) -> client.execute(() -> {
+            if (fileJobs.get(downloadUrl) != job)
+                return;
+
+            if (error == null) {
+                downloadStatus = "✓ Downloaded: " + savedPath.getFileName();
+                System.out.println("Downloaded schematic to: " + savedPath.toAbsolutePath());
+            } else if (job.getState() != DownloadManager.State.CANCELLED) {
+                downloadStatus = describeDownloadError(error);
+                System.err.println("Failed to download schematic: " + error.getMessage());
+            } else {
+                downloadStatus = "Cancelled: " + file.getDefaultFileName();
+            }
+            refreshSchematicDropdown();
+        }));
+    }
+
+    private String describeDownloadError(Throwable e) {
+        if (e instanceof FileDownloader.HttpStatusException statusError) {
+            switch (statusError.getStatusCode()) {
+                case 404:
+                    return "✗ Error: File not found on server";
+                case 403:
+                    return "✗ Error: Access denied";
+                case 500:
+                case 502:
+                case 503:
+                    return "✗ Error: Server error (" + statusError.getStatusCode() + ")";
+                case 429:
+                    return "✗ Error: Too many requests, try again later";
+                default:
+                    return "✗ Download failed: HTTP " + statusError.getStatusCode();
             }
-        }).start();
+        }
+        if (e instanceof java.net.UnknownHostException) {
+            return "✗ Error: No internet connection";
+        } else if (e instanceof java.net.http.HttpTimeoutException || e instanceof java.net.SocketTimeoutException) {
+            return "✗ Error: Connection timeout";
+        } else if (e instanceof java.io.FileNotFoundException) {
+            return "✗ Error: File not found";
+        } else if (e instanceof java.io.IOException && e.getMessage() != null && e.getMessage().contains("Permission denied")) {
+            return "✗ Error: Cannot write to disk (permission denied)";
+        } else if (e instanceof java.io.IOException && e.getMessage() != null && e.getMessage().contains("No space")) {
+            return "✗ Error: Not enough disk space";
+        }
+        String msg = e.getMessage();
+        if (msg != null && msg.length() > 40) {
+            msg = msg.substring(0, 37) + "...";
+        }
+        return "✗ Error: " + (msg != null ? msg : "Unknown error");
     }
 
     private String formatFileSize(long bytes) {
@@ -886,6 +798,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
                     containerY + containerHeight / 2 - imageLoadingSpinner.getHeight() / 2);
             imageLoadingSpinner.extractRenderState(context, mouseX, mouseY, delta);
         } else if (currentImageTexture != null) {
+            ImagePipeline.getInstance().touch(currentImage);
             context.fill(containerX, containerY, containerX + containerWidth, containerY + containerHeight,
                     UITheme.Colors.PANEL_BG);
             context.blit(currentImageTexture, imageX, imageY, imageX + actualImageWidth, imageY + actualImageHeight,
@@ -1045,6 +958,9 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
         context.disableScissor();
 
         if (schematicDropdown != null && schematicDropdown.isOpen()) {
+            if (DownloadManager.getInstance().getVersion() != lastDownloadVersion) {
+                refreshSchematicDropdown();
+            }
             schematicDropdown.extractRenderState(context, mouseX, mouseY, delta);
         }
 
@@ -1075,6 +991,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
 
     public void renderImageViewer(GuiGraphicsExtractor context, int mouseX, int mouseY, float delta) {
         if (imageViewer != null) {
+            ImagePipeline.getInstance().touch(viewerImage);
             imageViewer.render(context, mouseX, mouseY, delta);
         }
     }
@@ -1294,9 +1211,31 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
                     this::nextImageInViewer,
                     this::closeImageViewer);
             imageViewer.updateLayout(screenWidth, screenHeight);
+            loadViewerImage();
         }
     }
 
+    private void loadViewerImage() {
+        if (imageUrls == null || currentImageIndex >= imageUrls.length)
+            return;
+
+        String imageUrl = imageUrls[currentImageIndex];
+        int viewerEdge = ImagePipeline.decodeEdgeFor(Math.max(client.getWindow().getWidth(), client.getWindow().getHeight()));
+        if (currentImage != null && viewerEdge <= Math.max(currentImage.textureWidth(), currentImage.textureHeight()))
+            return;
+        if (currentImage != null && currentImage.textureWidth() >= currentImage.width())
+            return;
+
+        ImageViewerWidget viewer = imageViewer;
+        ImagePipeline.getInstance().request(encodeImageUrl(imageUrl), viewerEdge)
+                .thenAccept(handle -> client.execute(() -> {
+                    if (imageViewer == viewer && imageUrl.equals(loadingImageUrl)) {
+                        viewerImage = handle;
+                        viewer.setImageTexture(handle.texture());
+                    }
+                }));
+    }
+
     private void previousImageInViewer() {
         if (imageUrls != null && imageUrls.length > 1) {
             currentImageIndex = (currentImageIndex - 1 + imageUrls.length) % imageUrls.length;
@@ -1317,6 +1256,7 @@ public class PostDetailPanel implements Renderable, GuiEventListener {
 
     private void closeImageViewer() {
         imageViewer = null;
+        viewerImage = null;
     }
 
     public boolean mouseDragged(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
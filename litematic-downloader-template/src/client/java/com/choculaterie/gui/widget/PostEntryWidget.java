@@ -7,6 +7,9 @@ import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.client.gui.components.Renderable;
 import net.minecraft.client.gui.components.events.GuiEventListener;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class PostEntryWidget implements Renderable, GuiEventListener {
     private static final int MIN_ENTRY_HEIGHT = 70;
     private static final int LINE_HEIGHT = UITheme.Typography.LINE_HEIGHT;
@@ -26,6 +29,10 @@ public class PostEntryWidget implements Renderable, GuiEventListener {
     private boolean isHovered = false;
     private boolean isPressed = false;
     private int calculatedHeight = MIN_ENTRY_HEIGHT;
+    private final String infoText;
+    private final String tagsText;
+    private List<String> titleLines;
+    private List<String> tagLines;
 
     public PostEntryWidget(MinemevPostInfo post, int x, int y, int width, Runnable onClick) {
         this.post = post;
@@ -34,6 +41,9 @@ public class PostEntryWidget implements Renderable, GuiEventListener {
         this.width = width;
         this.client = Minecraft.getInstance();
         this.onClick = onClick;
+        String author = post.author() != null ? post.author() : "Unknown";
+        this.infoText = String.format("By %s | Downloads: %d", author, post.downloads());
+        this.tagsText = post.tags() != null && post.tags().length > 0 ? String.join(", ", post.tags()) : null;
         calculateHeight();
     }
 
@@ -42,6 +52,7 @@ public class PostEntryWidget implements Renderable, GuiEventListener {
     }
 
     public void setWidth(int width) {
+        if (this.width == width && titleLines != null) return;
         this.width = width;
         calculateHeight();
     }
@@ -50,69 +61,63 @@ public class PostEntryWidget implements Renderable, GuiEventListener {
         int currentY = UITheme.Dimensions.PADDING;
         int contentWidth = width - UITheme.Dimensions.PADDING * 2;
 
+        // Wrapped lines only depend on the width, so they are laid out here once instead of every frame
+        titleLines = wrapText(post.title(), contentWidth);
+        tagLines = wrapText(tagsText, contentWidth);
+
         if (post.title() != null && !post.title().isEmpty()) {
-            currentY += getWrappedTextHeight(post.title(), contentWidth) + CONTENT_SPACING;
+            currentY += getWrappedTextHeight(titleLines) + CONTENT_SPACING;
         }
 
         currentY += LINE_HEIGHT + CONTENT_SPACING;
 
-        if (post.tags() != null && post.tags().length > 0) {
-            StringBuilder tags = new StringBuilder();
-            for (int i = 0; i < post.tags().length; i++) {
-                if (i > 0) tags.append(", ");
-                tags.append(post.tags()[i]);
-            }
-            currentY += getWrappedTextHeight(tags.toString(), contentWidth) + CONTENT_SPACING;
+        if (tagsText != null) {
+            currentY += getWrappedTextHeight(tagLines) + CONTENT_SPACING;
         }
 
         currentY += UITheme.Dimensions.PADDING;
         calculatedHeight = Math.max(MIN_ENTRY_HEIGHT, currentY);
     }
 
-    private int getWrappedTextHeight(String text, int maxWidth) {
-        if (text == null || text.isEmpty()) return LINE_HEIGHT;
-
-        String[] words = text.split(" ");
-        StringBuilder line = new StringBuilder();
-        int lines = 1;
-
-        for (String word : words) {
-            String testLine = !line.isEmpty() ? line + " " + word : word;
-            int testWidth = client.font.width(testLine);
-
-            if (testWidth > maxWidth && !line.isEmpty()) {
-                line = new StringBuilder(word);
-                lines++;
-            } else {
-                line = new StringBuilder(testLine);
-            }
-        }
-
-        return lines * LINE_HEIGHT;
+    private static int getWrappedTextHeight(List<String> lines) {
+        return Math.max(1, lines.size()) * LINE_HEIGHT;
     }
 
-    private void drawWrappedText(GuiGraphicsExtractor context, String text, int textX, int textY, int maxWidth, int color) {
-        if (text == null || text.isEmpty()) return;
+    private List<String> wrapText(String text, int maxWidth) {
+        if (text == null || text.isEmpty()) return List.of();
 
-        String[] words = text.split(" ");
+        List<String> lines = new ArrayList<>();
+        int spaceWidth = client.font.width(" ");
         StringBuilder line = new StringBuilder();
-        int lineY = textY;
+        int lineWidth = 0;
 
-        for (String word : words) {
-            String testLine = !line.isEmpty() ? line + " " + word : word;
-            int testWidth = client.font.width(testLine);
+        for (String word : text.split(" ")) {
+            int wordWidth = client.font.width(word);
 
-            if (testWidth > maxWidth && !line.isEmpty()) {
-                context.text(client.font, line.toString(), textX, lineY, color);
-                line = new StringBuilder(word);
-                lineY += LINE_HEIGHT;
-            } else {
-                line = new StringBuilder(testLine);
+            if (!line.isEmpty() && lineWidth + spaceWidth + wordWidth > maxWidth) {
+                lines.add(line.toString());
+                line.setLength(0);
+                lineWidth = 0;
+            }
+            if (!line.isEmpty()) {
+                line.append(' ');
+                lineWidth += spaceWidth;
             }
+            line.append(word);
+            lineWidth += wordWidth;
         }
 
         if (!line.isEmpty()) {
-            context.text(client.font, line.toString(), textX, lineY, color);
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private void drawLines(GuiGraphicsExtractor context, List<String> lines, int textX, int textY, int color) {
+        int lineY = textY;
+        for (String line : lines) {
+            context.text(client.font, line, textX, lineY, color);
+            lineY += LINE_HEIGHT;
         }
     }
 
@@ -169,30 +174,21 @@ public class PostEntryWidget implements Renderable, GuiEventListener {
     private int renderTitle(GuiGraphicsExtractor context, int currentY, int contentWidth) {
         String title = post.title();
         if (title != null && !title.isEmpty()) {
-            drawWrappedText(context, title, x + UITheme.Dimensions.PADDING, currentY, contentWidth, TEXT_COLOR);
-            currentY += getWrappedTextHeight(title, contentWidth) + CONTENT_SPACING;
+            drawLines(context, titleLines, x + UITheme.Dimensions.PADDING, currentY, TEXT_COLOR);
+            currentY += getWrappedTextHeight(titleLines) + CONTENT_SPACING;
         }
         return currentY;
     }
 
     private int renderInfo(GuiGraphicsExtractor context, int currentY) {
-        String author = post.author() != null ? post.author() : "Unknown";
-        String downloads = String.format("Downloads: %d", post.downloads());
-        String info = String.format("By %s | %s", author, downloads);
-
-        context.text(client.font, info,
+        context.text(client.font, infoText,
             x + UITheme.Dimensions.PADDING, currentY, UITheme.Colors.TEXT_SUBTITLE);
         return currentY + LINE_HEIGHT + CONTENT_SPACING;
     }
 
     private void renderTags(GuiGraphicsExtractor context, int currentY, int contentWidth) {
-        if (post.tags() != null && post.tags().length > 0) {
-            StringBuilder tags = new StringBuilder();
-            for (int i = 0; i < post.tags().length; i++) {
-                if (i > 0) tags.append(", ");
-                tags.append(post.tags()[i]);
-            }
-            drawWrappedText(context, tags.toString(), x + UITheme.Dimensions.PADDING, currentY, contentWidth, UITheme.Colors.TEXT_SUBTITLE);
+        if (tagsText != null) {
+            drawLines(context, tagLines, x + UITheme.Dimensions.PADDING, currentY, UITheme.Colors.TEXT_SUBTITLE);
         }
     }
 
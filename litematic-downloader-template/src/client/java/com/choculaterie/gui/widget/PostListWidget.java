@@ -9,6 +9,7 @@ import net.minecraft.client.gui.components.AbstractWidget;
 import net.minecraft.network.chat.Component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class PostListWidget extends AbstractWidget {
@@ -16,6 +17,9 @@ public class PostListWidget extends AbstractWidget {
     private static final int SCROLL_SPEED = 20;
 
     private final List<PostEntryButton> entries;
+    // rowOffsets[i] is the top of row i relative to the list, rowOffsets[rowCount] the total content height
+    private int[] rowOffsets = new int[16];
+    private int rowCount = 0;
     private double scrollAmount = 0;
     private final OnPostClickListener onPostClick;
     private ScrollBar scrollBar;
@@ -37,9 +41,8 @@ public class PostListWidget extends AbstractWidget {
         this.width = width;
         this.height = height;
         this.scrollBar = new ScrollBar(x + width - UITheme.Dimensions.SCROLLBAR_WIDTH, y, height);
-        double savedScroll = this.scrollAmount;
-        rebuildEntries();
-        this.scrollAmount = savedScroll;
+        relayout();
+        this.scrollAmount = Math.max(0, Math.min(getMaxScroll(), scrollAmount));
         updateScrollBar();
     }
 
@@ -52,23 +55,28 @@ public class PostListWidget extends AbstractWidget {
         updateScrollBar();
     }
 
-    private void rebuildEntries() {
-        List<MinemevPostInfo> posts = new ArrayList<>();
+    private void relayout() {
+        // Rows only re-wrap their text when the width actually changed
+        int entryWidth = getEntryWidth();
         for (PostEntryButton entry : entries) {
-            posts.add(entry.getPost());
+            entry.updateBounds(getX(), entry.getY(), entryWidth);
         }
-        if (!posts.isEmpty()) {
-            setPosts(posts.toArray(new MinemevPostInfo[0]));
+        rowCount = 0;
+        for (PostEntryButton entry : entries) {
+            addRowOffset(entry.getRowHeight());
         }
     }
 
     public void setPosts(MinemevPostInfo[] posts) {
         this.entries.clear();
+        this.rowCount = 0;
         this.scrollAmount = 0;
+        appendPosts(posts);
+    }
 
-        int currentY = 0;
+    public void appendPosts(MinemevPostInfo[] posts) {
+        int rowWidth = getEntryWidth();
         for (MinemevPostInfo post : posts) {
-            int rowWidth = Math.max(0, width - UITheme.Dimensions.PADDING);
             Runnable clickAction = () -> {
                 if (onPostClick != null) {
                     onPostClick.onPostClick(post);
@@ -77,56 +85,98 @@ public class PostListWidget extends AbstractWidget {
             PostEntryWidget visual = new PostEntryWidget(
                 post,
                 getX(),
-                getY() + currentY,
+                getY() + getRowTop(entries.size()),
                 rowWidth,
                 clickAction
             );
             PostEntryButton button = new PostEntryButton(visual, clickAction);
             entries.add(button);
-            currentY += button.getRowHeight() + ENTRY_SPACING;
+            addRowOffset(button.getRowHeight());
         }
 
         updateScrollBar();
     }
 
+    public int getPostCount() {
+        return entries.size();
+    }
+
     public void clear() {
         this.entries.clear();
+        this.rowCount = 0;
         this.scrollAmount = 0;
         updateScrollBar();
     }
 
-    private void updateScrollBar() {
-        double contentHeight = getTotalContentHeight();
-        scrollBar.setScrollData(contentHeight, height);
-        scrollBar.setScrollPercentage(contentHeight > height ? scrollAmount / (contentHeight - height) : 0);
+    private void addRowOffset(int rowHeight) {
+        if (rowCount + 1 >= rowOffsets.length) {
+            rowOffsets = Arrays.copyOf(rowOffsets, Math.max(16, rowOffsets.length * 2));
+        }
+        rowOffsets[rowCount + 1] = rowOffsets[rowCount] + rowHeight + ENTRY_SPACING;
+        rowCount++;
     }
 
-    private double getTotalContentHeight() {
-        int totalHeight = 0;
-        for (PostEntryButton entry : entries) {
-            totalHeight += entry.getRowHeight() + ENTRY_SPACING;
-        }
-        return totalHeight;
+    private int getRowTop(int index) {
+        return rowOffsets[index];
     }
 
-    @Override
-    public void extractWidgetRenderState(GuiGraphicsExtractor context, int mouseX, int mouseY, float delta) {
-        context.enableScissor(getX(), getY(), getX() + width, getY() + height);
+    private int getFirstVisibleRow() {
+        // Last row whose top is at or above the scroll position
+        int offsetY = (int) scrollAmount;
+        int low = 0;
+        int high = rowCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rowOffsets[mid] <= offsetY) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
 
+    private PostEntryButton findVisibleEntry(VisibleEntryAction action) {
         int offsetY = (int) scrollAmount;
-        int currentY = 0;
         int entryWidth = getEntryWidth();
 
-        for (PostEntryButton entry : entries) {
-            int entryY = getY() + currentY - offsetY;
+        for (int i = getFirstVisibleRow(); i < rowCount; i++) {
+            int entryY = getY() + rowOffsets[i] - offsetY;
+            if (entryY >= getY() + height) break;
 
+            PostEntryButton entry = entries.get(i);
             if (isEntryVisible(entryY, entry.getRowHeight())) {
                 entry.updateBounds(getX(), entryY, entryWidth);
-                entry.extractRenderState(context, mouseX, mouseY, delta);
+                if (action.apply(entry)) {
+                    return entry;
+                }
             }
-
-            currentY += entry.getRowHeight() + ENTRY_SPACING;
         }
+        return null;
+    }
+
+    private interface VisibleEntryAction {
+        boolean apply(PostEntryButton entry);
+    }
+
+    private void updateScrollBar() {
+        double contentHeight = getTotalContentHeight();
+        scrollBar.setScrollData(contentHeight, height);
+        scrollBar.setScrollPercentage(contentHeight > height ? scrollAmount / (contentHeight - height) : 0);
+    }
+
+    private double getTotalContentHeight() {
+        return rowOffsets[rowCount];
+    }
+
+    @Override
+    public void extractWidgetRenderState(GuiGraphicsExtractor context, int mouseX, int mouseY, float delta) {
+        context.enableScissor(getX(), getY(), getX() + width, getY() + height);
+
+        findVisibleEntry(entry -> {
+            entry.extractRenderState(context, mouseX, mouseY, delta);
+            return false;
+        });
 
         context.disableScissor();
 
@@ -153,21 +203,8 @@ public class PostListWidget extends AbstractWidget {
         }
 
         if (button == 0 && isMouseOver(mouseX, mouseY)) {
-            int offsetY = (int) scrollAmount;
-            int currentY = 0;
-            int entryWidth = getEntryWidth();
-
-            for (PostEntryButton entry : entries) {
-                int entryY = getY() + currentY - offsetY;
-
-                if (isEntryVisible(entryY, entry.getRowHeight())) {
-                    entry.updateBounds(getX(), entryY, entryWidth);
-                    if (entry.handlePress(mouseX, mouseY, button)) {
-                        return true;
-                    }
-                }
-
-                currentY += entry.getRowHeight() + ENTRY_SPACING;
+            if (findVisibleEntry(entry -> entry.handlePress(mouseX, mouseY, button)) != null) {
+                return true;
             }
         }
 
@@ -194,21 +231,8 @@ public class PostListWidget extends AbstractWidget {
         }
 
         if (isMouseOver(mouseX, mouseY)) {
-            int offsetY = (int) scrollAmount;
-            int currentY = 0;
-            int entryWidth = getEntryWidth();
-
-            for (PostEntryButton entry : entries) {
-                int entryY = getY() + currentY - offsetY;
-
-                if (isEntryVisible(entryY, entry.getRowHeight())) {
-                    entry.updateBounds(getX(), entryY, entryWidth);
-                    if (entry.handleRelease(mouseX, mouseY, button)) {
-                        return true;
-                    }
-                }
-
-                currentY += entry.getRowHeight() + ENTRY_SPACING;
+            if (findVisibleEntry(entry -> entry.handleRelease(mouseX, mouseY, button)) != null) {
+                return true;
             }
         }
 
@@ -254,35 +278,29 @@ public class PostListWidget extends AbstractWidget {
 
     private static final class PostEntryButton extends AbstractWidget {
         private final PostEntryWidget visual;
-        private final MinemevPostInfo post;
         private final Runnable clickAction;
         private boolean pressed;
 
         private PostEntryButton(PostEntryWidget visual, Runnable clickAction) {
             super(visual.getX(), visual.getY(), visual.getWidth(), visual.getHeight(), Component.empty());
             this.visual = visual;
-            this.post = visual.getPost();
             this.clickAction = clickAction;
         }
 
         private void updateBounds(int x, int y, int width) {
             this.setX(x);
             this.setY(y);
-            this.setWidth(width);
-            this.height = visual.getHeight();
             visual.setX(x);
             visual.setWidth(width);
             visual.setY(y);
+            this.setWidth(width);
+            this.height = visual.getHeight();
         }
 
         private int getRowHeight() {
             return visual.getHeight();
         }
 
-        private MinemevPostInfo getPost() {
-            return post;
-        }
-
         private boolean handlePress(double mouseX, double mouseY, int button) {
             if (button != 0 || !isPointInside(mouseX, mouseY)) {
                 return false;
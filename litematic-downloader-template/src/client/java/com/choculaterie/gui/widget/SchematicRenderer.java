@@ -1,6 +1,7 @@
 package com.choculaterie.gui.widget;
 
-import com.choculaterie.util.LitematicParser;
+import com.choculaterie.util.BlockOccupancy;
+import com.choculaterie.util.SchematicVolume;
 import com.mojang.blaze3d.ProjectionType;
 import com.mojang.blaze3d.buffers.GpuBuffer;
 import com.mojang.blaze3d.buffers.GpuBufferSlice;
@@ -19,25 +20,12 @@ import com.mojang.blaze3d.vertex.*;
 import net.minecraft.client.KeyMapping;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.color.block.BlockColors;
-import net.minecraft.client.color.block.BlockTintSource;
 import net.minecraft.client.gui.GuiGraphicsExtractor;
 import net.minecraft.client.renderer.RenderPipelines;
 import net.minecraft.client.renderer.block.BlockStateModelSet;
-import net.minecraft.client.renderer.block.dispatch.BlockStateModel;
-import net.minecraft.client.renderer.block.dispatch.BlockStateModelPart;
-import net.minecraft.client.renderer.chunk.ChunkSectionLayer;
 import net.minecraft.client.renderer.texture.TextureAtlas;
-import net.minecraft.client.resources.model.geometry.BakedQuad;
-import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
-import net.minecraft.core.registries.BuiltInRegistries;
-import net.minecraft.resources.Identifier;
-import net.minecraft.util.RandomSource;
-import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.block.state.StateDefinition;
-import net.minecraft.world.level.block.state.properties.Property;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -51,28 +39,182 @@ import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 public class SchematicRenderer implements AutoCloseable {
 
-    public static final int MAX_3D_BLOCKS = 20_000;
-    private static final int LAYER_COUNT = 3;
+    public static final int MAX_3D_BLOCKS = 2_000_000;
+    // Leaves a core for the render thread
+    public static final int MESH_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService MESH_POOL = createMeshPool();
+    static final int LAYER_COUNT = 3;
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_SIZE = 1 << SECTION_SHIFT;
+    // Vertex bytes uploaded per frame while a build streams in, so the panel stays responsive
+    private static final long UPLOAD_BUDGET_BYTES = 8L * 1024 * 1024;
+    // Pause before a section that found no free vertex builder is meshed again
+    private static final long RETRY_DELAY_MILLIS = 250;
     private static final float FOV = 70f;
     private static final float NEAR = 0.05f;
     private static final float FAR = 4096f;
     private static final float MOVE_SPEED = 0.35f;
+    // Colour modulator for blocks outside a highlight
+    private static final float DIMMED = 0.3f;
 
-    private volatile MeshData[] pendingMeshes;
-    private volatile ByteBufferBuilder[] pendingAllocators;
-    private volatile boolean hasPending = false;
-    private volatile boolean buildingMesh = false;
+    public enum BlockFilter {
+        NONE, HIGHLIGHT, ISOLATE, HIDE
+    }
+
+    private static class BuiltSection {
+        final long generation;
+        final int originX, originY, originZ;
+        final MeshData[] meshes;
+        final ByteBufferBuilder[] allocators;
+        final long[] vertexBytes;
+        final DrawRanges[] ranges;
+
+        BuiltSection(long generation, int originX, int originY, int originZ, MeshData[] meshes,
+                     ByteBufferBuilder[] allocators, long[] vertexBytes, DrawRanges[] ranges) {
+            this.generation = generation;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.meshes = meshes;
+            this.allocators = allocators;
+            this.vertexBytes = vertexBytes;
+            this.ranges = ranges;
+        }
+
+        // Safe on any thread; hands the builders back to the pool once their meshes are closed
+        void close() {
+            for (MeshData mesh : meshes) {
+                if (mesh != null) mesh.close();
+            }
+            releaseAllocators(allocators, vertexBytes);
+        }
+    }
+
+    // Builders for one section, taken from the pool only for the layers the section actually uses
+    private static class SectionBuilders {
+        final ByteBufferBuilder[] allocators = new ByteBufferBuilder[LAYER_COUNT];
+        final BufferBuilder[] builders = new BufferBuilder[LAYER_COUNT];
+        final int[] vertexCounts = new int[LAYER_COUNT];
+        final BooleanSupplier cancelled;
 
-    private final GpuBuffer[] vertexBuffers = new GpuBuffer[LAYER_COUNT];
-    private final int[] vertexCounts = new int[LAYER_COUNT];
+        SectionBuilders(BooleanSupplier cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        BufferBuilder get(int layer) {
+            if (builders[layer] == null) {
+                ByteBufferBuilder allocator = MeshBufferPool.getInstance().acquire(cancelled);
+                if (allocator == null) throw new CancellationException();
+                allocators[layer] = allocator;
+                builders[layer] = new BufferBuilder(allocator, VertexFormat.Mode.QUADS, DefaultVertexFormat.BLOCK);
+            }
+            return builders[layer];
+        }
+
+        long[] writtenBytes() {
+            long[] bytes = new long[LAYER_COUNT];
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                bytes[i] = (long) vertexCounts[i] * DefaultVertexFormat.BLOCK.getVertexSize();
+            }
+            return bytes;
+        }
+    }
+
+    // Vertices of one layer are laid out grouped by palette entry; each range is one entry's run
+    private static class DrawRanges {
+        int[] palette = new int[8];
+        int[] firstVertex = new int[8];
+        int[] vertexCount = new int[8];
+        int size;
+
+        void add(int paletteIndex, int first, int count) {
+            if (size == palette.length) {
+                palette = Arrays.copyOf(palette, size * 2);
+                firstVertex = Arrays.copyOf(firstVertex, size * 2);
+                vertexCount = Arrays.copyOf(vertexCount, size * 2);
+            }
+            palette[size] = paletteIndex;
+            firstVertex[size] = first;
+            vertexCount[size] = count;
+            size++;
+        }
+    }
+
+    private static class Section {
+        final float minX, minY, minZ, maxX, maxY, maxZ;
+        final GpuBuffer[] vertexBuffers = new GpuBuffer[LAYER_COUNT];
+        final int[] vertexCounts = new int[LAYER_COUNT];
+        final DrawRanges[] ranges = new DrawRanges[LAYER_COUNT];
+
+        // Quads of blocks such as fences and tall plants reach a little past the section
+        Section(int originX, int originY, int originZ) {
+            this.minX = originX - 1f;
+            this.minY = originY - 1f;
+            this.minZ = originZ - 1f;
+            this.maxX = originX + SECTION_SIZE + 1f;
+            this.maxY = originY + SECTION_SIZE + 1f;
+            this.maxZ = originZ + SECTION_SIZE + 1f;
+        }
+
+        void close() {
+            for (int i = 0; i < LAYER_COUNT; i++) {
+                if (vertexBuffers[i] != null) {
+                    vertexBuffers[i].close();
+                    vertexBuffers[i] = null;
+                }
+                vertexCounts[i] = 0;
+                ranges[i] = null;
+            }
+        }
+    }
+
+    private static class SectionBucket {
+        final int sectionX, sectionY, sectionZ;
+        int[] blocks = new int[64];
+        int size;
+
+        SectionBucket(int sectionX, int sectionY, int sectionZ) {
+            this.sectionX = sectionX;
+            this.sectionY = sectionY;
+            this.sectionZ = sectionZ;
+        }
+
+        void add(int blockIndex) {
+            if (size == blocks.length) blocks = Arrays.copyOf(blocks, size * 2);
+            blocks[size++] = blockIndex;
+        }
+    }
+
+    private volatile boolean buildingMesh = false;
+    // Bumped by every setBlocks and by close; builds and uploads of older generations are dropped
+    private final AtomicLong buildGeneration = new AtomicLong();
+    // Planning step of the latest build, queued on the mesh pool
+    private CompletableFuture<Void> pendingBuild;
+    private final ConcurrentLinkedQueue<BuiltSection> builtSections = new ConcurrentLinkedQueue<>();
+    private final List<Section> sections = new ArrayList<>();
+    private long uploadedGeneration = 0;
 
     private GpuBuffer projectionBuffer;
     private TextureTarget framebuffer;
@@ -87,6 +229,16 @@ public class SchematicRenderer implements AutoCloseable {
     private boolean cameraChanged = true;
     private volatile boolean empty = true;
 
+    private SchematicVolume volume;
+    private int blockCount;
+    private int boundsX, boundsY, boundsZ;
+    // Palette entries the current mesh was built from, null when it holds every block
+    private boolean[] builtVisibility;
+    private BlockFilter blockFilter = BlockFilter.NONE;
+    private String filterBlockId;
+    // Palette entries of the current volume whose block id matches filterBlockId
+    private boolean[] filterMatches = new boolean[0];
+
     private long lastFrameNanos = System.nanoTime();
     private static Field keyMappingKeyField;
 
@@ -98,17 +250,29 @@ public class SchematicRenderer implements AutoCloseable {
         return buildingMesh;
     }
 
-    public void setBlocks(List<LitematicParser.BlockData> blockData) {
-        empty = blockData.isEmpty();
-        if (empty) return;
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    public void setBlocks(SchematicVolume volume) {
+        buildGeneration.incrementAndGet();
+        cancelPendingBuild();
+        this.volume = volume;
+        builtVisibility = null;
+        setBlockFilter(null, BlockFilter.NONE);
+        empty = volume.isEmpty();
+        if (empty) {
+            buildingMesh = false;
+            return;
+        }
 
-        int count = Math.min(blockData.size(), MAX_3D_BLOCKS);
+        blockCount = Math.min(volume.size(), MAX_3D_BLOCKS);
+        int count = blockCount;
         int maxX = 0, maxY = 0, maxZ = 0;
         for (int i = 0; i < count; i++) {
-            LitematicParser.BlockData bd = blockData.get(i);
-            if (bd.x > maxX) maxX = bd.x;
-            if (bd.y > maxY) maxY = bd.y;
-            if (bd.z > maxZ) maxZ = bd.z;
+            maxX = Math.max(maxX, volume.getX(i));
+            maxY = Math.max(maxY, volume.getY(i));
+            maxZ = Math.max(maxZ, volume.getZ(i));
         }
         targetX = (maxX + 1) * 0.5f;
         targetY = (maxY + 1) * 0.5f;
@@ -116,164 +280,290 @@ public class SchematicRenderer implements AutoCloseable {
         float maxSide = Math.max(maxX + 1, Math.max(maxY + 1, maxZ + 1));
         distance = maxSide * 1.5f + 5f;
         fitDistance = distance;
+        cameraChanged = true;
+
+        boundsX = maxX + 1;
+        boundsY = maxY + 1;
+        boundsZ = maxZ + 1;
+        startBuild(null);
+    }
 
+    // Meshes the palette entries marked in visible, or every entry when it is null
+    private void startBuild(boolean[] visible) {
+        long generation = buildGeneration.incrementAndGet();
+        cancelPendingBuild();
+        builtVisibility = visible;
         buildingMesh = true;
-        final int finalCount = count;
-        new Thread(() -> buildMesh(blockData, finalCount), "Schematic-3D-Build").start();
+        SchematicVolume volume = this.volume;
+        int count = blockCount;
+        int sizeX = boundsX, sizeY = boundsY, sizeZ = boundsZ;
+        Vector3f eye = new Matrix4f(modelViewMatrix()).invert().transformPosition(new Vector3f());
+        // Queued on the mesh pool, so quickly switching schematics doesn't start a build thread per selection
+        pendingBuild = CompletableFuture.runAsync(() -> buildMesh(volume, count, visible,
+                new BlockOccupancy(sizeX, sizeY, sizeZ), generation, eye), MESH_POOL);
+    }
+
+    // A build that hasn't left the queue yet never runs; one already meshing stops at its generation check
+    private void cancelPendingBuild() {
+        if (pendingBuild != null) {
+            pendingBuild.cancel(false);
+            pendingBuild = null;
+        }
+    }
+
+    public BlockFilter getBlockFilter() {
+        return blockFilter;
     }
 
-    private void buildMesh(List<LitematicParser.BlockData> blockData, int count) {
+    public String getFilterBlockId() {
+        return filterBlockId;
+    }
+
+    // HIGHLIGHT only changes which vertex ranges are drawn. ISOLATE and HIDE rebuild the mesh from the blocks
+    // they leave visible, since the full mesh culled buried blocks and faces against the blocks filtered out.
+    public void setBlockFilter(String blockId, BlockFilter filter) {
+        if (blockId == null || filter == null || filter == BlockFilter.NONE) {
+            blockId = null;
+            filter = BlockFilter.NONE;
+        }
+        blockFilter = filter;
+        filterBlockId = blockId;
+        int paletteSize = volume == null ? 0 : volume.getPaletteSize();
+        filterMatches = new boolean[paletteSize];
+        if (blockId != null) {
+            for (int p = 0; p < paletteSize; p++) {
+                filterMatches[p] = blockId.equals(volume.getBlockId(p));
+            }
+        }
+        cameraChanged = true;
+
+        boolean[] visible = null;
+        if (filter == BlockFilter.ISOLATE || filter == BlockFilter.HIDE) {
+            visible = new boolean[paletteSize];
+            for (int p = 0; p < paletteSize; p++) {
+                visible[p] = filterMatches[p] == (filter == BlockFilter.ISOLATE);
+            }
+        }
+        if (volume != null && !empty && !Arrays.equals(visible, builtVisibility)) {
+            startBuild(visible);
+        }
+    }
+
+    private void buildMesh(SchematicVolume volume, int count, boolean[] visible, BlockOccupancy occluders,
+                           long generation, Vector3f eye) {
+        if (buildGeneration.get() != generation) return;
         try {
             Minecraft mc = Minecraft.getInstance();
             BlockStateModelSet modelSet = mc.getModelManager().getBlockStateModelSet();
             BlockColors blockColors = mc.getBlockColors();
-            RandomSource random = RandomSource.create();
 
-            ByteBufferBuilder[] allocators = new ByteBufferBuilder[LAYER_COUNT];
-            BufferBuilder[] builders = new BufferBuilder[LAYER_COUNT];
-            boolean[] used = new boolean[LAYER_COUNT];
-            for (int i = 0; i < LAYER_COUNT; i++) {
-                allocators[i] = new ByteBufferBuilder(Math.max(8192, count * 128));
-                builders[i] = new BufferBuilder(allocators[i], VertexFormat.Mode.QUADS, DefaultVertexFormat.BLOCK);
+            // States and quads are resolved once per palette entry rather than once per block
+            BlockMeshTemplates cache = BlockMeshTemplates.getInstance();
+            BlockMeshTemplates.Template[] templates = new BlockMeshTemplates.Template[volume.getPaletteSize()];
+            for (int p = 0; p < templates.length; p++) {
+                templates[p] = cache.get(modelSet, blockColors, volume.getBlockId(p), volume.getProperties(p));
             }
 
-            List<BlockStateModelPart> parts = new ArrayList<>();
-
+            // Record every occluder first so faces can be tested against neighbours in any section
+            Map<Long, SectionBucket> buckets = new HashMap<>();
             for (int i = 0; i < count; i++) {
-                LitematicParser.BlockData bd = blockData.get(i);
-                try {
-                    Identifier id = Identifier.tryParse(bd.blockId);
-                    if (id == null) continue;
-                    var ref = BuiltInRegistries.BLOCK.get(id);
-                    if (ref.isEmpty()) continue;
-                    Block block = ref.get().value();
-                    BlockState state = block.defaultBlockState();
-                    if (state.is(Blocks.AIR)) continue;
-                    state = applyProperties(state, block, bd.properties);
-
-                    BlockStateModel model = modelSet.get(state);
-                    random.setSeed(state.getSeed(BlockPos.ZERO));
-
-                    parts.clear();
-                    model.collectParts(random, parts);
-
-                    for (BlockStateModelPart part : parts) {
-                        emitQuads(builders, used, blockColors, state, bd.x, bd.y, bd.z, part, null);
-                        for (Direction dir : Direction.values()) {
-                            emitQuads(builders, used, blockColors, state, bd.x, bd.y, bd.z, part, dir);
-                        }
-                    }
-                } catch (Exception ignored) {
+                int paletteIndex = volume.getPaletteIndex(i);
+                if (visible != null && !visible[paletteIndex]) continue;
+                BlockMeshTemplates.Template template = templates[paletteIndex];
+                if (!template.isRenderable()) continue;
+                int x = volume.getX(i), y = volume.getY(i), z = volume.getZ(i);
+                if (template.solid) {
+                    occluders.set(x, y, z);
                 }
+                int sectionX = x >> SECTION_SHIFT;
+                int sectionY = y >> SECTION_SHIFT;
+                int sectionZ = z >> SECTION_SHIFT;
+                buckets.computeIfAbsent(((long) sectionX << 42) | ((long) sectionY << 21) | sectionZ,
+                        key -> new SectionBucket(sectionX, sectionY, sectionZ)).add(i);
             }
 
-            MeshData[] meshes = new MeshData[LAYER_COUNT];
-            boolean any = false;
-            for (int i = 0; i < LAYER_COUNT; i++) {
-                if (!used[i]) continue;
-                MeshData mesh = builders[i].build();
-                if (mesh != null && mesh.drawState().vertexCount() > 0) {
-                    meshes[i] = mesh;
-                    any = true;
-                } else if (mesh != null) {
-                    mesh.close();
-                }
-            }
-
-            if (any) {
-                pendingMeshes = meshes;
-                pendingAllocators = allocators;
-                hasPending = true;
-            } else {
-                for (ByteBufferBuilder allocator : allocators) allocator.close();
-                empty = true;
+            // Nearest sections first, they cover most of what is behind them
+            List<SectionBucket> order = new ArrayList<>(buckets.values());
+            order.sort(Comparator.comparingDouble(bucket -> eye.distanceSquared(
+                    (bucket.sectionX + 0.5f) * SECTION_SIZE,
+                    (bucket.sectionY + 0.5f) * SECTION_SIZE,
+                    (bucket.sectionZ + 0.5f) * SECTION_SIZE)));
+
+            // Sections are independent once templates and occluders are known, so they fan out across the pool
+            BooleanSupplier cancelled = () -> buildGeneration.get() != generation;
+            AtomicBoolean any = new AtomicBoolean(false);
+            List<CompletableFuture<Void>> tasks = new ArrayList<>(order.size());
+            for (SectionBucket bucket : order) {
+                tasks.add(meshAsync(bucket, volume, templates, occluders, generation, cancelled, any, MESH_POOL));
             }
+            // Chained rather than joined, this task runs on the same pool the sections need
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+                // A filter that leaves nothing visible doesn't make the schematic itself empty
+                if (error != null || (!any.get() && visible == null && !cancelled.getAsBoolean())) {
+                    empty = true;
+                }
+                finishBuild(generation);
+            });
         } catch (Exception e) {
             empty = true;
-        } finally {
-            buildingMesh = false;
+            finishBuild(generation);
         }
     }
 
-    private static BlockState applyProperties(BlockState state, Block block, Map<String, String> properties) {
-        if (properties == null || properties.isEmpty()) return state;
-        StateDefinition<Block, BlockState> definition = block.getStateDefinition();
-        for (Map.Entry<String, String> entry : properties.entrySet()) {
-            Property<?> property = definition.getProperty(entry.getKey());
-            if (property != null) {
-                state = withProperty(state, property, entry.getValue());
-            }
+    private void finishBuild(long generation) {
+        if (buildGeneration.get() == generation) {
+            buildingMesh = false;
         }
-        return state;
     }
 
-    private static <T extends Comparable<T>> BlockState withProperty(BlockState state, Property<T> property, String value) {
-        return property.getValue(value).map(v -> state.setValue(property, v)).orElse(state);
+    private CompletableFuture<Void> meshAsync(SectionBucket bucket, SchematicVolume volume,
+                                              BlockMeshTemplates.Template[] templates, BlockOccupancy occluders,
+                                              long generation, BooleanSupplier cancelled, AtomicBoolean any,
+                                              Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (cancelled.getAsBoolean()) return false;
+            BuiltSection built;
+            try {
+                built = meshSection(bucket, volume, templates, occluders, generation, cancelled);
+            } catch (CancellationException e) {
+                // No builder came free in time; this section's own are back in the pool, so try it again later
+                return !cancelled.getAsBoolean();
+            }
+            if (built == null) return false;
+            builtSections.add(built);
+            any.set(true);
+            // close() may have drained the queue just before the add
+            if (cancelled.getAsBoolean() && builtSections.remove(built)) {
+                built.close();
+            }
+            return false;
+        }, executor).thenCompose(retry -> retry
+                ? meshAsync(bucket, volume, templates, occluders, generation, cancelled, any,
+                        CompletableFuture.delayedExecutor(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS, MESH_POOL))
+                : CompletableFuture.completedFuture(null));
     }
 
-    private static void emitQuads(BufferBuilder[] builders, boolean[] used, BlockColors blockColors,
-                                   BlockState state, float bx, float by, float bz,
-                                   BlockStateModelPart part, Direction dir) {
-        List<BakedQuad> quads = part.getQuads(dir);
-        if (quads == null || quads.isEmpty()) return;
-
-        for (BakedQuad quad : quads) {
-            BakedQuad.MaterialInfo info = quad.materialInfo();
-            ChunkSectionLayer layer = info.layer();
-            int layerIdx = layer == null ? 0 : layer.ordinal();
-            if (layerIdx < 0 || layerIdx >= LAYER_COUNT) layerIdx = 0;
-            BufferBuilder builder = builders[layerIdx];
-            used[layerIdx] = true;
+    // Returns null for a cancelled build or a section without geometry, and throws CancellationException
+    // when the build is still current but the pool had no builder to spare
+    private static BuiltSection meshSection(SectionBucket bucket, SchematicVolume volume,
+                                            BlockMeshTemplates.Template[] templates, BlockOccupancy occluders,
+                                            long generation, BooleanSupplier cancelled) {
+        SectionBuilders builders = new SectionBuilders(cancelled);
+        Direction[] directions = Direction.values();
+
+        // Blocks are meshed grouped by palette entry so each entry covers one contiguous range per layer
+        long[] order = new long[bucket.size];
+        for (int b = 0; b < bucket.size; b++) {
+            int i = bucket.blocks[b];
+            order[b] = ((long) volume.getPaletteIndex(i) << 32) | i;
+        }
+        Arrays.sort(order);
+        DrawRanges[] ranges = new DrawRanges[LAYER_COUNT];
+        int[] rangeStart = new int[LAYER_COUNT];
+        int currentPalette = -1;
 
-            int color = computeColor(blockColors, state, quad, info);
+        try {
+            for (long entry : order) {
+                int i = (int) entry;
+                int paletteIndex = (int) (entry >>> 32);
+                if (paletteIndex != currentPalette) {
+                    closeRanges(builders, ranges, rangeStart, currentPalette);
+                    currentPalette = paletteIndex;
+                }
+                BlockMeshTemplates.Face[] faces = templates[paletteIndex].faces;
+                int x = volume.getX(i), y = volume.getY(i), z = volume.getZ(i);
+                if (occluders.get(x, y, z) && occluders.isEnclosed(x, y, z)) continue;
+
+                emitFace(builders, faces[BlockMeshTemplates.UNCULLED], x, y, z);
+                for (Direction dir : directions) {
+                    // Same rule as the chunk compiler: cull-face quads vanish behind a full opaque neighbour
+                    if (faces[dir.ordinal()] == null
+                            || occluders.get(x + dir.getStepX(), y + dir.getStepY(), z + dir.getStepZ())) {
+                        continue;
+                    }
+                    emitFace(builders, faces[dir.ordinal()], x, y, z);
+                }
+            }
+            closeRanges(builders, ranges, rangeStart, currentPalette);
+        } catch (CancellationException e) {
+            // The builders still grew for whatever was written before the build stopped
+            releaseAllocators(builders.allocators, builders.writtenBytes());
+            if (cancelled.getAsBoolean()) return null;
+            throw e;
+        }
 
-            for (int v = 0; v < 4; v++) {
-                float px = bx + quad.position(v).x();
-                float py = by + quad.position(v).y();
-                float pz = bz + quad.position(v).z();
+        MeshData[] meshes = new MeshData[LAYER_COUNT];
+        long[] vertexBytes = new long[LAYER_COUNT];
+        boolean any = false;
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (builders.builders[i] == null) continue;
+            MeshData mesh = builders.builders[i].build();
+            if (mesh != null && mesh.drawState().vertexCount() > 0) {
+                meshes[i] = mesh;
+                vertexBytes[i] = mesh.vertexBuffer().remaining();
+                any = true;
+            } else if (mesh != null) {
+                mesh.close();
+            }
+        }
 
-                long packedUV = quad.packedUV(v);
-                float u = Float.intBitsToFloat((int) (packedUV >> 32));
-                float vf = Float.intBitsToFloat((int) packedUV);
+        BuiltSection built = new BuiltSection(generation, bucket.sectionX << SECTION_SHIFT,
+                bucket.sectionY << SECTION_SHIFT, bucket.sectionZ << SECTION_SHIFT, meshes, builders.allocators,
+                vertexBytes, ranges);
+        if (!any) {
+            built.close();
+            return null;
+        }
+        return built;
+    }
 
-                builder.addVertex(px, py, pz)
-                       .setColor(color)
-                       .setUv(u, vf)
-                       .setUv2(0xF0, 0xF0);
+    // Records the vertices each layer gained since the last palette change as that entry's range
+    private static void closeRanges(SectionBuilders builders, DrawRanges[] ranges, int[] rangeStart, int paletteIndex) {
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            int end = builders.vertexCounts[layer];
+            if (paletteIndex >= 0 && end > rangeStart[layer]) {
+                if (ranges[layer] == null) ranges[layer] = new DrawRanges();
+                ranges[layer].add(paletteIndex, rangeStart[layer], end - rangeStart[layer]);
             }
+            rangeStart[layer] = end;
         }
     }
 
-    private static int computeColor(BlockColors blockColors, BlockState state, BakedQuad quad, BakedQuad.MaterialInfo info) {
-        int r = 255, g = 255, b = 255;
-        int tintIndex = info.tintIndex();
-        if (tintIndex >= 0) {
-            try {
-                BlockTintSource source = blockColors.getTintSource(state, tintIndex);
-                if (source != null) {
-                    int tint = source.color(state);
-                    r = (tint >> 16) & 0xFF;
-                    g = (tint >> 8) & 0xFF;
-                    b = tint & 0xFF;
-                }
-            } catch (Exception ignored) {
+    private static void releaseAllocators(ByteBufferBuilder[] allocators, long[] vertexBytes) {
+        MeshBufferPool pool = MeshBufferPool.getInstance();
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            if (allocators[i] != null) {
+                pool.release(allocators[i], vertexBytes[i]);
+                allocators[i] = null;
             }
         }
-        float shading = info.shade() ? getDirectionShading(quad.direction()) : 1.0f;
-        r = Math.min(255, (int) (r * shading));
-        g = Math.min(255, (int) (g * shading));
-        b = Math.min(255, (int) (b * shading));
-        return 0xFF000000 | (r << 16) | (g << 8) | b;
     }
 
-    private static float getDirectionShading(Direction dir) {
-        if (dir == null) return 1.0f;
-        return switch (dir) {
-            case UP -> 1.0f;
-            case DOWN -> 0.5f;
-            case NORTH, SOUTH -> 0.8f;
-            case EAST, WEST -> 0.6f;
-        };
+    private static ExecutorService createMeshPool() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(MESH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Schematic-Mesh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static void emitFace(SectionBuilders builders, BlockMeshTemplates.Face face, float bx, float by, float bz) {
+        if (face == null) return;
+        float[] vertices = face.vertices;
+        for (int q = 0; q < face.quadCount(); q++) {
+            BufferBuilder builder = builders.get(face.layers[q]);
+            builders.vertexCounts[face.layers[q]] += 4;
+            int color = face.colors[q];
+            for (int v = 0; v < 4; v++) {
+                int offset = (q * 4 + v) * BlockMeshTemplates.VERTEX_STRIDE;
+                builder.addVertex(bx + vertices[offset], by + vertices[offset + 1], bz + vertices[offset + 2])
+                       .setColor(color)
+                       .setUv(vertices[offset + 3], vertices[offset + 4])
+                       .setUv2(0xF0, 0xF0);
+            }
+        }
     }
 
     private static RenderPipeline pipelineForLayer(int layerIdx) {
@@ -284,56 +574,54 @@ public class SchematicRenderer implements AutoCloseable {
         };
     }
 
-    private void uploadPendingMesh() {
-        MeshData[] meshes = pendingMeshes;
-        ByteBufferBuilder[] allocators = pendingAllocators;
-        pendingMeshes = null;
-        pendingAllocators = null;
-        hasPending = false;
-
-        for (int i = 0; i < LAYER_COUNT; i++) {
-            if (vertexBuffers[i] != null) {
-                vertexBuffers[i].close();
-                vertexBuffers[i] = null;
-            }
-            vertexCounts[i] = 0;
+    // Moves finished sections to the GPU, at most byteBudget vertex bytes per call
+    private void uploadBuiltSections(long byteBudget) {
+        long generation = buildGeneration.get();
+        if (uploadedGeneration != generation) {
+            releaseSections();
+            uploadedGeneration = generation;
+            cameraChanged = true;
         }
 
-        if (meshes == null) return;
-
-        try {
-            for (int i = 0; i < LAYER_COUNT; i++) {
-                MeshData mesh = meshes[i];
-                if (mesh == null) continue;
-                ByteBuffer vb = mesh.vertexBuffer();
-                if (vb != null && vb.remaining() > 0) {
-                    final int layer = i;
-                    vertexBuffers[i] = RenderSystem.getDevice().createBuffer(
-                        () -> "Schematic Vertex Buffer " + layer,
-                        GpuBuffer.USAGE_VERTEX | GpuBuffer.USAGE_COPY_DST,
-                        vb
-                    );
-                    vertexCounts[i] = mesh.drawState().vertexCount();
-                }
-            }
-            cameraChanged = true;
-        } finally {
-            for (MeshData mesh : meshes) {
-                if (mesh != null) mesh.close();
-            }
-            if (allocators != null) {
-                for (ByteBufferBuilder allocator : allocators) {
-                    if (allocator != null) allocator.close();
+        long uploaded = 0;
+        BuiltSection built;
+        while (uploaded < byteBudget && (built = builtSections.poll()) != null) {
+            try {
+                if (built.generation != generation) continue;
+                Section section = new Section(built.originX, built.originY, built.originZ);
+                for (int i = 0; i < LAYER_COUNT; i++) {
+                    MeshData mesh = built.meshes[i];
+                    if (mesh == null) continue;
+                    ByteBuffer vb = mesh.vertexBuffer();
+                    if (vb != null && vb.remaining() > 0) {
+                        final int layer = i;
+                        uploaded += vb.remaining();
+                        section.vertexBuffers[i] = RenderSystem.getDevice().createBuffer(
+                            () -> "Schematic Vertex Buffer " + layer,
+                            GpuBuffer.USAGE_VERTEX | GpuBuffer.USAGE_COPY_DST,
+                            vb
+                        );
+                        section.vertexCounts[i] = mesh.drawState().vertexCount();
+                        section.ranges[i] = built.ranges[i];
+                    }
                 }
+                sections.add(section);
+                cameraChanged = true;
+            } finally {
+                built.close();
             }
         }
     }
 
-    private boolean hasContent() {
-        for (GpuBuffer buffer : vertexBuffers) {
-            if (buffer != null) return true;
+    private void releaseSections() {
+        for (Section section : sections) {
+            section.close();
         }
-        return false;
+        sections.clear();
+    }
+
+    private boolean hasContent() {
+        return !sections.isEmpty();
     }
 
     public void fitToPanel(int panelW, int panelH) {
@@ -342,10 +630,13 @@ public class SchematicRenderer implements AutoCloseable {
         cameraChanged = true;
     }
 
+    // Keeps uploads, and with them the pooled builders, moving while the preview is not on screen
+    public void uploadPending() {
+        uploadBuiltSections(UPLOAD_BUDGET_BYTES);
+    }
+
     public void render(GuiGraphicsExtractor ctx, int viewX, int viewY, int viewW, int viewH, int mouseX, int mouseY) {
-        if (hasPending) {
-            uploadPendingMesh();
-        }
+        uploadBuiltSections(UPLOAD_BUDGET_BYTES);
 
         boolean focused = mouseX >= viewX && mouseX < viewX + viewW
                 && mouseY >= viewY && mouseY < viewY + viewH;
@@ -452,11 +743,7 @@ public class SchematicRenderer implements AutoCloseable {
         RenderSystem.backupProjectionMatrix();
         RenderSystem.setProjectionMatrix(projectionBuffer.slice(), ProjectionType.PERSPECTIVE);
 
-        Matrix4f mvMatrix = new Matrix4f()
-            .translate(panX * 0.02f, -panY * 0.02f, -distance)
-            .rotateX((float) Math.toRadians(rotationX))
-            .rotateY((float) Math.toRadians(rotationY))
-            .translate(-targetX, -targetY, -targetZ);
+        Matrix4f mvMatrix = modelViewMatrix();
 
         GpuBufferSlice transforms = RenderSystem.getDynamicUniforms().writeTransform(
             mvMatrix,
@@ -464,14 +751,30 @@ public class SchematicRenderer implements AutoCloseable {
             new Vector3f(0f, 0f, 0f),
             new Matrix4f()
         );
-
+        GpuBufferSlice dimmedTransforms = blockFilter != BlockFilter.HIGHLIGHT ? transforms
+                : RenderSystem.getDynamicUniforms().writeTransform(
+                    mvMatrix,
+                    new Vector4f(DIMMED, DIMMED, DIMMED, 1f),
+                    new Vector3f(0f, 0f, 0f),
+                    new Matrix4f()
+                );
+
+        // Sections entirely outside the view are skipped for every layer
+        FrustumIntersection frustum = new FrustumIntersection(new Matrix4f(projMat).mul(mvMatrix));
+        List<Section> visible = new ArrayList<>();
         int maxIdx = 0;
-        for (int count : vertexCounts) {
-            int idx = (count / 4) * 6;
-            if (idx > maxIdx) maxIdx = idx;
+        for (Section section : sections) {
+            if (!frustum.testAab(section.minX, section.minY, section.minZ, section.maxX, section.maxY, section.maxZ)) {
+                continue;
+            }
+            visible.add(section);
+            for (int count : section.vertexCounts) {
+                int idx = (count / 4) * 6;
+                if (idx > maxIdx) maxIdx = idx;
+            }
         }
         RenderSystem.AutoStorageIndexBuffer seqIdx = RenderSystem.getSequentialBuffer(VertexFormat.Mode.QUADS);
-        GpuBuffer indexBuf = seqIdx.getBuffer(maxIdx);
+        GpuBuffer indexBuf = seqIdx.getBuffer(Math.max(6, maxIdx));
 
         GpuTextureView atlasView = mc.getTextureManager().getTexture(TextureAtlas.LOCATION_BLOCKS).getTextureView();
         GpuTextureView lightmapView = mc.gameRenderer.lightmap();
@@ -483,24 +786,75 @@ public class SchematicRenderer implements AutoCloseable {
                 target.getColorTextureView(), OptionalInt.of(clearColor),
                 target.getDepthTextureView(), OptionalDouble.of(1.0))) {
             for (int i = 0; i < LAYER_COUNT; i++) {
-                GpuBuffer vertexBuffer = vertexBuffers[i];
-                if (vertexBuffer == null || vertexCounts[i] == 0) continue;
-                int idxCount = (vertexCounts[i] / 4) * 6;
-
-                pass.setPipeline(pipelineForLayer(i));
-                RenderSystem.bindDefaultUniforms(pass);
-                pass.setUniform("DynamicTransforms", transforms);
-                pass.bindTexture("Sampler0", atlasView, atlasSampler);
-                pass.bindTexture("Sampler2", lightmapView, lightSampler);
-                pass.setVertexBuffer(0, vertexBuffer);
-                pass.setIndexBuffer(indexBuf, seqIdx.type());
-                pass.drawIndexed(0, 0, idxCount, 1);
+                boolean pipelineSet = false;
+                for (Section section : visible) {
+                    GpuBuffer vertexBuffer = section.vertexBuffers[i];
+                    if (vertexBuffer == null || section.vertexCounts[i] == 0) continue;
+                    int idxCount = (section.vertexCounts[i] / 4) * 6;
+
+                    if (!pipelineSet) {
+                        pipelineSet = true;
+                        pass.setPipeline(pipelineForLayer(i));
+                        RenderSystem.bindDefaultUniforms(pass);
+                        pass.setUniform("DynamicTransforms", transforms);
+                        pass.bindTexture("Sampler0", atlasView, atlasSampler);
+                        pass.bindTexture("Sampler2", lightmapView, lightSampler);
+                        pass.setIndexBuffer(indexBuf, seqIdx.type());
+                    }
+                    pass.setVertexBuffer(0, vertexBuffer);
+                    if (blockFilter == BlockFilter.NONE || section.ranges[i] == null) {
+                        pass.drawIndexed(0, 0, idxCount, 1);
+                    } else {
+                        drawFiltered(pass, section.ranges[i], transforms, dimmedTransforms);
+                    }
+                }
             }
         }
 
         RenderSystem.restoreProjectionMatrix();
     }
 
+    // Adjacent ranges on the same side of the filter are merged into one draw
+    private void drawFiltered(RenderPass pass, DrawRanges ranges, GpuBufferSlice transforms, GpuBufferSlice dimmed) {
+        int r = 0;
+        while (r < ranges.size) {
+            boolean match = matchesFilter(ranges.palette[r]);
+            int first = ranges.firstVertex[r];
+            int end = first + ranges.vertexCount[r];
+            r++;
+            while (r < ranges.size && matchesFilter(ranges.palette[r]) == match) {
+                end = ranges.firstVertex[r] + ranges.vertexCount[r];
+                r++;
+            }
+
+            boolean draw = switch (blockFilter) {
+                case ISOLATE -> match;
+                case HIDE -> !match;
+                default -> true;
+            };
+            if (!draw) continue;
+            if (blockFilter == BlockFilter.HIGHLIGHT) {
+                pass.setUniform("DynamicTransforms", match ? transforms : dimmed);
+            }
+            pass.drawIndexed(0, (first / 4) * 6, ((end - first) / 4) * 6, 1);
+        }
+        if (blockFilter == BlockFilter.HIGHLIGHT) {
+            pass.setUniform("DynamicTransforms", transforms);
+        }
+    }
+
+    private boolean matchesFilter(int paletteIndex) {
+        return paletteIndex < filterMatches.length && filterMatches[paletteIndex];
+    }
+
+    private Matrix4f modelViewMatrix() {
+        return new Matrix4f()
+            .translate(panX * 0.02f, -panY * 0.02f, -distance)
+            .rotateX((float) Math.toRadians(rotationX))
+            .rotateY((float) Math.toRadians(rotationY))
+            .translate(-targetX, -targetY, -targetZ);
+    }
+
     public void onDrag(double dx, double dy, int button) {
         if (button == 0) {
             rotationY = ((rotationY + (float) (dx * 0.5)) % 360f + 360f) % 360f;
@@ -568,9 +922,7 @@ public class SchematicRenderer implements AutoCloseable {
 
     public void exportRender(File outputDir, String baseName, int resolution, boolean transparentBackground,
                              Consumer<File> onSuccess, Consumer<String> onError) {
-        if (hasPending) {
-            uploadPendingMesh();
-        }
+        uploadBuiltSections(Long.MAX_VALUE);
         if (!hasContent()) {
             onError.accept("Nothing to render");
             return;
@@ -641,15 +993,24 @@ public class SchematicRenderer implements AutoCloseable {
         }
     }
 
+    // Cancels any running build and drops its meshes, handing pooled builders back to other previews
+    public void clearBlocks() {
+        buildGeneration.incrementAndGet();
+        cancelPendingBuild();
+        buildingMesh = false;
+        empty = true;
+        releaseSections();
+        BuiltSection built;
+        while ((built = builtSections.poll()) != null) {
+            built.close();
+        }
+        volume = null;
+        setBlockFilter(null, BlockFilter.NONE);
+    }
+
     @Override
     public void close() {
-        for (int i = 0; i < LAYER_COUNT; i++) {
-            if (vertexBuffers[i] != null) {
-                vertexBuffers[i].close();
-                vertexBuffers[i] = null;
-            }
-            vertexCounts[i] = 0;
-        }
+        clearBlocks();
         if (projectionBuffer != null) {
             projectionBuffer.close();
             projectionBuffer = null;
@@ -658,19 +1019,5 @@ public class SchematicRenderer implements AutoCloseable {
             framebuffer.destroyBuffers();
             framebuffer = null;
         }
-        MeshData[] meshes = pendingMeshes;
-        if (meshes != null) {
-            for (MeshData mesh : meshes) {
-                if (mesh != null) mesh.close();
-            }
-            pendingMeshes = null;
-        }
-        ByteBufferBuilder[] allocators = pendingAllocators;
-        if (allocators != null) {
-            for (ByteBufferBuilder allocator : allocators) {
-                if (allocator != null) allocator.close();
-            }
-            pendingAllocators = null;
-        }
     }
 }
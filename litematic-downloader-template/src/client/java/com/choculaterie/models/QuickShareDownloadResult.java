@@ -1,5 +1,6 @@
 package com.choculaterie.models;
 
-public record QuickShareDownloadResult(byte[] data, String filename) {
-}
+import java.io.File;
 
+public record QuickShareDownloadResult(File file, String filename) {
+}
@@ -1,16 +1,21 @@
 package com.choculaterie.network;
 
+import com.choculaterie.config.DownloadSettings;
 import com.choculaterie.models.ModMessage;
 import com.choculaterie.models.QuickShareDownloadResult;
 import com.choculaterie.models.QuickShareResponse;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 
 public class ChoculaterieNetworkManager {
@@ -20,8 +25,8 @@ public class ChoculaterieNetworkManager {
 	private static final String QS_BACKEND_BASE = "https://backend.choculaterie.com/qs/";
 
 	private static final Gson GSON = new Gson();
-	private static final int TIMEOUT_STANDARD = 10000;
-	private static final int TIMEOUT_UPLOAD = 30000;
+	private static final Duration TIMEOUT_STANDARD = Duration.ofSeconds(10);
+	private static final Duration TIMEOUT_UPLOAD = Duration.ofSeconds(30);
 	private static final String BOUNDARY = "----WebKitFormBoundary" + System.currentTimeMillis();
 	private static final String LITEMATIC_EXTENSION = ".litematic";
 
@@ -31,58 +36,36 @@ public class ChoculaterieNetworkManager {
 				String downloadUrl = QS_BACKEND_BASE + code + "/litematic";
 				System.out.println("[QuickShare] Downloading from: " + downloadUrl);
 
-				URL url = new URL(downloadUrl);
-				HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
+				Path schematicsDir = Paths.get(DownloadSettings.getInstance().getAbsoluteDownloadPath());
+				Path saved;
 				try {
-					conn.setRequestMethod("GET");
-					conn.setConnectTimeout(TIMEOUT_STANDARD);
-					conn.setReadTimeout(TIMEOUT_UPLOAD);
-					conn.setRequestProperty("User-Agent", "LitematicDownloader/1.0");
-
-					int responseCode = conn.getResponseCode();
-					if (responseCode != HttpURLConnection.HTTP_OK) {
-						if (responseCode == 404) {
-							throw new IOException("Quick-share link not found or has no file attached");
-						}
-						throw new IOException("HTTP error: " + responseCode);
-					}
-
-					String filename = code + ".litematic";
-
-					byte[] data;
-					try (InputStream is = conn.getInputStream();
-						 ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-						byte[] buffer = new byte[8192];
-						int bytesRead;
-						while ((bytesRead = is.read(buffer)) != -1) {
-							baos.write(buffer, 0, bytesRead);
-						}
-						data = baos.toByteArray();
+					saved = FileDownloader.downloadToDirectory(downloadUrl, schematicsDir, code + LITEMATIC_EXTENSION, TIMEOUT_UPLOAD, null);
+				} catch (FileDownloader.HttpStatusException e) {
+					if (e.getStatusCode() == 404) {
+						throw new IOException("Quick-share link not found or has no file attached");
 					}
-
-					System.out.println("[QuickShare] Downloaded " + data.length + " bytes, filename: " + filename);
-					return new QuickShareDownloadResult(data, filename);
-				} finally {
-					conn.disconnect();
+					throw e;
 				}
+
+				String filename = saved.getFileName().toString();
+				System.out.println("[QuickShare] Downloaded " + Files.size(saved) + " bytes, saved to: " + saved);
+				return new QuickShareDownloadResult(saved.toFile(), filename);
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to download quick-share file", e);
 			}
-		});
+		}, HttpTransport.executor());
 	}
 
 	public static CompletableFuture<QuickShareResponse> uploadLitematic(File file) {
 		return CompletableFuture.supplyAsync(() -> {
 			try {
 				validateFile(file);
-				byte[] fileBytes = Files.readAllBytes(file.toPath());
-				String jsonResponse = uploadMultipartFile(file.getName(), fileBytes);
+				String jsonResponse = uploadMultipartFile(file);
 				return parseQuickShareResponse(jsonResponse);
 			} catch (IOException e) {
 				throw new RuntimeException("Failed to upload litematic file", e);
 			}
-		});
+		}, HttpTransport.executor());
 	}
 
 	public static CompletableFuture<ModMessage> getModMessage() {
@@ -93,7 +76,7 @@ public class ChoculaterieNetworkManager {
 			} catch (Exception e) {
 				return new ModMessage(false, null, null, null);
 			}
-		});
+		}, HttpTransport.executor());
 	}
 
 	private static void validateFile(File file) throws IOException {
@@ -105,79 +88,31 @@ public class ChoculaterieNetworkManager {
 		}
 	}
 
-	private static String uploadMultipartFile(String fileName, byte[] fileBytes) throws IOException {
-		URL url = new URL(UPLOAD_ENDPOINT);
-		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-		try {
-			conn.setRequestMethod("POST");
-			conn.setDoOutput(true);
-			conn.setConnectTimeout(TIMEOUT_UPLOAD);
-			conn.setReadTimeout(TIMEOUT_UPLOAD);
-			conn.setRequestProperty("User-Agent", "LitematicDownloader/1.0");
-			conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
-
-			try (DataOutputStream out = new DataOutputStream(conn.getOutputStream())) {
-				out.writeBytes("--" + BOUNDARY + "\r\n");
-				out.writeBytes("Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n");
-				out.writeBytes("Content-Type: application/octet-stream\r\n");
-				out.writeBytes("\r\n");
-				out.write(fileBytes);
-				out.writeBytes("\r\n");
-				out.writeBytes("--" + BOUNDARY + "--\r\n");
-				out.flush();
-			}
-
-			int responseCode = conn.getResponseCode();
-			InputStream stream = responseCode >= 200 && responseCode < 300
-				? conn.getInputStream()
-				: conn.getErrorStream();
-
-			String response = readStream(stream);
-
-			if (responseCode != HttpURLConnection.HTTP_OK) {
-				throw new IOException("HTTP error: " + responseCode + ", response: " + response);
-			}
-
-			return response;
-		} finally {
-			conn.disconnect();
+	private static String uploadMultipartFile(File file) throws IOException {
+		String head = "--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n"
+				+ "Content-Type: application/octet-stream\r\n"
+				+ "\r\n";
+		String tail = "\r\n--" + BOUNDARY + "--\r\n";
+
+		HttpRequest request = HttpTransport.request(UPLOAD_ENDPOINT, TIMEOUT_UPLOAD)
+				.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+				.POST(HttpRequest.BodyPublishers.concat(
+						HttpRequest.BodyPublishers.ofString(head, StandardCharsets.UTF_8),
+						HttpRequest.BodyPublishers.ofFile(file.toPath()),
+						HttpRequest.BodyPublishers.ofString(tail, StandardCharsets.UTF_8)))
+				.build();
+
+		HttpResponse<String> response = HttpTransport.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+		if (response.statusCode() != 200) {
+			throw new IOException("HTTP error: " + response.statusCode() + ", response: " + response.body());
 		}
-	}
-
-	private static String makeGetRequest() throws IOException {
-		URL url = new URL(ChoculaterieNetworkManager.MESSAGE_ENDPOINT);
-		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-		try {
-			conn.setRequestMethod("GET");
-			conn.setConnectTimeout(TIMEOUT_STANDARD);
-			conn.setReadTimeout(TIMEOUT_STANDARD);
-			conn.setRequestProperty("User-Agent", "LitematicDownloader/1.0");
-
-			if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-				throw new IOException("HTTP error: " + conn.getResponseCode());
-			}
 
-			return readStream(conn.getInputStream());
-		} finally {
-			conn.disconnect();
-		}
+		return response.body();
 	}
 
-	private static String readStream(InputStream stream) throws IOException {
-		if (stream == null) {
-			return "";
-		}
-		StringBuilder response = new StringBuilder();
-		try (BufferedReader reader = new BufferedReader(
-				new InputStreamReader(stream, StandardCharsets.UTF_8))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				response.append(line);
-			}
-		}
-		return response.toString();
+	private static String makeGetRequest() throws IOException {
+		return HttpTransport.getString(MESSAGE_ENDPOINT, TIMEOUT_STANDARD);
 	}
 
 	private static QuickShareResponse parseQuickShareResponse(String json) {
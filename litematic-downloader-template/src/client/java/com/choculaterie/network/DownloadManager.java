@@ -0,0 +1,326 @@
+package com.choculaterie.network;
+
+import com.choculaterie.config.DownloadSettings;
+import com.choculaterie.models.MinemevFileInfo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DownloadManager {
+	private static final int MAX_CONCURRENT = 4;
+	private static final int MAX_PER_HOST = 2;
+	private static final int MAX_ATTEMPTS = 4;
+	private static final long BASE_BACKOFF_MS = 1000;
+	private static final int MAX_FINISHED_KEPT = 32;
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+	private static DownloadManager INSTANCE;
+
+	public enum Priority {
+		HIGH, NORMAL, LOW
+	}
+
+	public enum State {
+		QUEUED, RUNNING, RETRYING, COMPLETED, FAILED, CANCELLED;
+
+		public boolean isFinished() {
+			return this == COMPLETED || this == FAILED || this == CANCELLED;
+		}
+	}
+
+	public class DownloadJob {
+		private final long sequence;
+		private final String url;
+		private final String host;
+		private final Path directory;
+		private final String fileName;
+		private final Priority priority;
+		private final CompletableFuture<Path> future = new CompletableFuture<>();
+		private volatile State state = State.QUEUED;
+		private volatile long downloadedBytes = 0;
+		private volatile long totalBytes = -1;
+		private volatile int attempts = 0;
+		private volatile Throwable error;
+		private Thread worker;
+		private ScheduledFuture<?> retryTask;
+
+		private DownloadJob(long sequence, String url, Path directory, String fileName, Priority priority) {
+			this.sequence = sequence;
+			this.url = url;
+			this.host = hostOf(url);
+			this.directory = directory;
+			this.fileName = fileName;
+			this.priority = priority;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getFileName() {
+			return fileName;
+		}
+
+		public Priority getPriority() {
+			return priority;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public long getDownloadedBytes() {
+			return downloadedBytes;
+		}
+
+		public long getTotalBytes() {
+			return totalBytes;
+		}
+
+		public int getAttempts() {
+			return attempts;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+		public CompletableFuture<Path> future() {
+			return future;
+		}
+
+		public void cancel() {
+			DownloadManager.this.cancel(this);
+		}
+	}
+
+	private final ExecutorService workers;
+	private final ScheduledExecutorService retryScheduler;
+	private final PriorityQueue<DownloadJob> queue = new PriorityQueue<>(
+			Comparator.comparing((DownloadJob job) -> job.priority).thenComparingLong(job -> job.sequence));
+	private final Set<DownloadJob> running = new LinkedHashSet<>();
+	private final Set<DownloadJob> waiting = new LinkedHashSet<>();
+	private final Deque<DownloadJob> finished = new ArrayDeque<>();
+	private final Map<String, Integer> activePerHost = new HashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicLong version = new AtomicLong();
+
+	private DownloadManager() {
+		AtomicInteger counter = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(MAX_CONCURRENT, runnable -> {
+			Thread thread = new Thread(runnable, "Litematic-Download-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Litematic-Download-Retry");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public static synchronized DownloadManager getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new DownloadManager();
+		}
+		return INSTANCE;
+	}
+
+	// A live job for the same URL and folder is returned instead of starting a second transfer into its part file
+	public synchronized DownloadJob enqueue(String url, Path directory, String fileName, Priority priority) {
+		DownloadJob existing = findLive(url, directory);
+		if (existing != null) return existing;
+
+		DownloadJob job = new DownloadJob(sequence.incrementAndGet(), url, directory, fileName, priority);
+		queue.add(job);
+		changed();
+		schedule();
+		return job;
+	}
+
+	private DownloadJob findLive(String url, Path directory) {
+		for (Collection<DownloadJob> jobs : List.of(running, waiting, queue)) {
+			for (DownloadJob job : jobs) {
+				if (job.url.equals(url) && job.directory.equals(directory) && !job.state.isFinished()) return job;
+			}
+		}
+		return null;
+	}
+
+	public DownloadJob enqueue(MinemevFileInfo file, Priority priority) {
+		String fileName = file.getDefaultFileName();
+		if (!fileName.endsWith(".litematic")) {
+			fileName += ".litematic";
+		}
+		Path directory = Paths.get(DownloadSettings.getInstance().getAbsoluteDownloadPath());
+		return enqueue(encodeDownloadUrl(file.getDownloadUrl()), directory, fileName, priority);
+	}
+
+	// Files without a download URL are skipped
+	public Map<MinemevFileInfo, DownloadJob> enqueueAll(List<MinemevFileInfo> files) {
+		Map<MinemevFileInfo, DownloadJob> jobs = new LinkedHashMap<>();
+		for (MinemevFileInfo file : files) {
+			if (file.getDownloadUrl() == null || file.getDownloadUrl().isEmpty()) continue;
+			jobs.put(file, enqueue(file, Priority.NORMAL));
+		}
+		return jobs;
+	}
+
+	public synchronized int getActiveCount() {
+		return running.size() + waiting.size() + queue.size();
+	}
+
+	public long getVersion() {
+		return version.get();
+	}
+
+	public void cancel(DownloadJob job) {
+		synchronized (this) {
+			if (job.state.isFinished()) return;
+			if (queue.remove(job) || waiting.remove(job)) {
+				if (job.retryTask != null) job.retryTask.cancel(false);
+				finish(job, State.CANCELLED, null);
+				return;
+			}
+			job.state = State.CANCELLED;
+			changed();
+		}
+		synchronized (job) {
+			if (job.worker != null) job.worker.interrupt();
+		}
+	}
+
+	private void schedule() {
+		List<DownloadJob> skipped = new ArrayList<>();
+		while (running.size() < MAX_CONCURRENT && !queue.isEmpty()) {
+			DownloadJob job = queue.poll();
+			if (activePerHost.getOrDefault(job.host, 0) >= MAX_PER_HOST) {
+				skipped.add(job);
+				continue;
+			}
+			activePerHost.merge(job.host, 1, Integer::sum);
+			running.add(job);
+			job.state = State.RUNNING;
+			workers.execute(() -> run(job));
+		}
+		queue.addAll(skipped);
+	}
+
+	private void run(DownloadJob job) {
+		synchronized (job) {
+			job.worker = Thread.currentThread();
+		}
+		job.attempts++;
+		changed();
+		try {
+			if (job.state == State.CANCELLED) throw new InterruptedIOException("Download cancelled");
+			Path saved = FileDownloader.downloadToDirectory(job.url, job.directory, job.fileName, TIMEOUT,
+					(downloaded, total) -> {
+						job.downloadedBytes = downloaded;
+						job.totalBytes = total;
+						changed();
+					});
+			release(job);
+			finish(job, State.COMPLETED, null);
+			job.future.complete(saved);
+		} catch (Exception e) {
+			release(job);
+			if (job.state == State.CANCELLED || e instanceof InterruptedIOException) {
+				finish(job, State.CANCELLED, e);
+			} else if (job.attempts < MAX_ATTEMPTS && isRetryable(e)) {
+				scheduleRetry(job, e);
+			} else {
+				System.err.println("[Download] " + job.fileName + " failed after " + job.attempts + " attempt(s): " + e.getMessage());
+				finish(job, State.FAILED, e);
+			}
+		} finally {
+			// Interrupts are only used to cancel the current job, so don't leak one into the next
+			synchronized (job) {
+				job.worker = null;
+				Thread.interrupted();
+			}
+		}
+	}
+
+	private void release(DownloadJob job) {
+		synchronized (this) {
+			running.remove(job);
+			activePerHost.computeIfPresent(job.host, (host, count) -> count > 1 ? count - 1 : null);
+			schedule();
+		}
+	}
+
+	private void scheduleRetry(DownloadJob job, Exception cause) {
+		long delay = BASE_BACKOFF_MS << (job.attempts - 1);
+		delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+		System.out.println("[Download] Retrying " + job.fileName + " in " + delay + " ms: " + cause.getMessage());
+		synchronized (this) {
+			job.state = State.RETRYING;
+			job.error = cause;
+			waiting.add(job);
+			job.retryTask = retryScheduler.schedule(() -> {
+				synchronized (this) {
+					if (!waiting.remove(job)) return;
+					job.state = State.QUEUED;
+					queue.add(job);
+					changed();
+					schedule();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+			changed();
+		}
+	}
+
+	private void finish(DownloadJob job, State state, Throwable error) {
+		synchronized (this) {
+			job.state = state;
+			job.error = error;
+			finished.addFirst(job);
+			while (finished.size() > MAX_FINISHED_KEPT) {
+				finished.removeLast();
+			}
+			changed();
+		}
+		if (state != State.COMPLETED) {
+			job.future.completeExceptionally(error != null ? error : new CancellationException("Download cancelled"));
+		}
+	}
+
+	private void changed() {
+		version.incrementAndGet();
+	}
+
+	private static boolean isRetryable(Exception e) {
+		if (e instanceof FileDownloader.HttpStatusException status) {
+			int code = status.getStatusCode();
+			return code == 408 || code == 429 || code >= 500;
+		}
+		return e instanceof IOException;
+	}
+
+	private static String hostOf(String url) {
+		try {
+			String host = URI.create(url).getHost();
+			return host != null ? host : "";
+		} catch (IllegalArgumentException e) {
+			return "";
+		}
+	}
+
+	public static String encodeDownloadUrl(String downloadUrl) {
+		int lastSlash = downloadUrl.lastIndexOf('/');
+		String base = downloadUrl.substring(0, lastSlash + 1);
+		String filename = URLDecoder.decode(downloadUrl.substring(lastSlash + 1), StandardCharsets.UTF_8);
+		return base + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20");
+	}
+}
@@ -0,0 +1,199 @@
+package com.choculaterie.network;
+
+import com.choculaterie.util.LocalSchematicIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileDownloader {
+	private static final long TRANSFER_CHUNK = 256 * 1024;
+	private static final String PART_EXTENSION = ".part";
+	// Parts untouched for this long belong to downloads nobody is going to resume
+	private static final Duration STALE_PART_AGE = Duration.ofDays(7);
+	private static final Set<Path> SWEPT_DIRECTORIES = ConcurrentHashMap.newKeySet();
+	private static final Set<Path> ACTIVE_PARTS = ConcurrentHashMap.newKeySet();
+
+	public interface ProgressListener {
+		void onProgress(long downloadedBytes, long totalBytes);
+	}
+
+	public static class HttpStatusException extends IOException {
+		private final int statusCode;
+
+		public HttpStatusException(int statusCode) {
+			super("HTTP error: " + statusCode);
+			this.statusCode = statusCode;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+	}
+
+	public static Path downloadToDirectory(String url, Path directory, String fileName, Duration timeout,
+										   ProgressListener listener) throws IOException {
+		Files.createDirectories(directory);
+		if (SWEPT_DIRECTORIES.add(directory.toAbsolutePath().normalize())) {
+			deleteStaleParts(directory);
+		}
+		// Hidden and next to the target so the final move is an atomic rename on the same filesystem. The name
+		// is stable per URL so an interrupted download resumes on the next attempt.
+		Path partFile = directory.resolve("." + fileName + "." + shortHash(url) + PART_EXTENSION);
+		// Two transfers appending to the same part would interleave their ranges
+		Path partKey = partFile.toAbsolutePath().normalize();
+		if (!ACTIVE_PARTS.add(partKey)) {
+			throw new IOException("Already downloading " + fileName);
+		}
+		try {
+			download(url, partFile, timeout, listener);
+			Path saved = moveIntoPlace(partFile, directory, fileName);
+			LocalSchematicIndex.getInstance().fileChanged(saved);
+			return saved;
+		} finally {
+			ACTIVE_PARTS.remove(partKey);
+		}
+	}
+
+	public static boolean isPartFile(String name) {
+		return name.startsWith(".") && name.endsWith(PART_EXTENSION);
+	}
+
+	private static void deleteStaleParts(Path directory) {
+		long cutoff = System.currentTimeMillis() - STALE_PART_AGE.toMillis();
+		try (DirectoryStream<Path> parts = Files.newDirectoryStream(directory, ".*" + PART_EXTENSION)) {
+			for (Path part : parts) {
+				try {
+					if (Files.getLastModifiedTime(part).toMillis() < cutoff) {
+						Files.deleteIfExists(part);
+					}
+				} catch (IOException ignored) {
+				}
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			System.err.println("[Download] Failed to clean up partial downloads: " + e.getMessage());
+		}
+	}
+
+	public static long download(String url, Path partFile, Duration timeout, ProgressListener listener) throws IOException {
+		long existing = Files.isRegularFile(partFile) ? Files.size(partFile) : 0;
+
+		HttpRequest.Builder request = HttpTransport.request(url, timeout).GET();
+		if (existing > 0) {
+			request.header("Range", "bytes=" + existing + "-");
+		}
+		HttpResponse<InputStream> response = HttpTransport.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+		int status = response.statusCode();
+		if (status == 416 && existing > 0) {
+			response.body().close();
+			Files.deleteIfExists(partFile);
+			return download(url, partFile, timeout, listener);
+		}
+		if (status != 200 && status != 206) {
+			response.body().close();
+			throw new HttpStatusException(status);
+		}
+
+		long offset = status == 206 ? rangeStart(response) : 0;
+		if (offset != 0 && offset != existing) {
+			response.body().close();
+			if (existing == 0) {
+				throw new IOException("Unexpected partial response: " + response.headers().firstValue("Content-Range").orElse(""));
+			}
+			Files.deleteIfExists(partFile);
+			return download(url, partFile, timeout, listener);
+		}
+		if (offset > 0) {
+			System.out.println("[Download] Resuming at byte " + offset);
+		}
+
+		long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+		long total = contentLength >= 0 ? offset + contentLength : -1;
+		long position = offset;
+
+		try (InputStream body = response.body();
+			 ReadableByteChannel source = Channels.newChannel(body);
+			 FileChannel target = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			target.truncate(offset);
+			if (listener != null) listener.onProgress(position, total);
+
+			long transferred;
+			while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+				position += transferred;
+				if (listener != null) listener.onProgress(position, total);
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("Download cancelled");
+				}
+			}
+		}
+
+		if (total >= 0 && position < total) {
+			throw new IOException("Connection closed after " + position + " of " + total + " bytes");
+		}
+		return position;
+	}
+
+	public static Path moveIntoPlace(Path source, Path directory, String fileName) throws IOException {
+		int dot = fileName.lastIndexOf('.');
+		String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+		String extension = dot > 0 ? fileName.substring(dot) : "";
+
+		for (int counter = 0; ; counter++) {
+			Path target = directory.resolve(counter == 0 ? fileName : baseName + "_" + counter + extension);
+			try {
+				// Reserving the name first keeps an atomic rename from silently replacing a file that appeared meanwhile
+				Files.createFile(target);
+			} catch (FileAlreadyExistsException e) {
+				continue;
+			}
+			try {
+				try {
+					Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException e) {
+				// Don't leave the reserved placeholder behind as an empty schematic
+				Files.deleteIfExists(target);
+				throw e;
+			}
+			return target;
+		}
+	}
+
+	private static long rangeStart(HttpResponse<?> response) {
+		// Content-Range: bytes <start>-<end>/<size>
+		String range = response.headers().firstValue("Content-Range").orElse("");
+		int space = range.indexOf(' ');
+		int dash = range.indexOf('-');
+		if (space < 0 || dash <= space) return -1;
+		try {
+			return Long.parseLong(range.substring(space + 1, dash).trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static String shortHash(String value) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8))).substring(0, 12);
+		} catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(value.hashCode());
+		}
+	}
+}
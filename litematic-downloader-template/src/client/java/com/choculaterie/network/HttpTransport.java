@@ -0,0 +1,118 @@
+package com.choculaterie.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HttpTransport {
+	public static final String USER_AGENT = "LitematicDownloader/1.0";
+
+	private static final int CLIENT_THREADS = 4;
+	private static final int WORKER_THREADS = 6;
+	private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+	// The client and the blocking callers get separate pools so a full worker pool can never starve response handling
+	private static final ExecutorService CLIENT_EXECUTOR = newPool("Litematic-HTTP-Client", CLIENT_THREADS);
+	private static final ExecutorService WORKER_EXECUTOR = newPool("Litematic-HTTP-Worker", WORKER_THREADS);
+
+	private static final HttpClient CLIENT = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(CONNECT_TIMEOUT)
+			.followRedirects(HttpClient.Redirect.ALWAYS)
+			.executor(CLIENT_EXECUTOR)
+			.build();
+
+	private static final Map<String, CompletableFuture<HttpResponse<byte[]>>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+	private static ExecutorService newPool(String name, int threads) {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	public static Executor executor() {
+		return WORKER_EXECUTOR;
+	}
+
+	public static HttpRequest.Builder request(String url, Duration timeout) {
+		return HttpRequest.newBuilder()
+				.uri(URI.create(url))
+				.timeout(timeout)
+				.header("User-Agent", USER_AGENT);
+	}
+
+	public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+		try {
+			return CLIENT.send(request, handler);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Request interrupted: " + request.uri());
+		}
+	}
+
+	public static CompletableFuture<HttpResponse<byte[]>> getBytesAsync(String url, Duration timeout) {
+		return getBytesAsync(url, timeout, Map.of());
+	}
+
+	public static CompletableFuture<HttpResponse<byte[]>> getBytesAsync(String url, Duration timeout, Map<String, String> headers) {
+		String key = headers.isEmpty() ? url : url + " " + new TreeMap<>(headers);
+		CompletableFuture<HttpResponse<byte[]>> created = new CompletableFuture<>();
+		CompletableFuture<HttpResponse<byte[]>> existing = IN_FLIGHT.putIfAbsent(key, created);
+		if (existing != null) {
+			return existing.thenApply(response -> response);
+		}
+
+		HttpRequest.Builder request = request(url, timeout).GET();
+		headers.forEach(request::header);
+		CLIENT.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+				.whenComplete((response, error) -> {
+					IN_FLIGHT.remove(key, created);
+					if (error != null) {
+						created.completeExceptionally(error);
+					} else {
+						created.complete(response);
+					}
+				});
+		return created.thenApply(response -> response);
+	}
+
+	public static HttpResponse<byte[]> getBytes(String url, Duration timeout) throws IOException {
+		return getBytes(url, timeout, Map.of());
+	}
+
+	public static HttpResponse<byte[]> getBytes(String url, Duration timeout, Map<String, String> headers) throws IOException {
+		try {
+			return getBytesAsync(url, timeout, headers).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Request interrupted: " + url);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException io) throw io;
+			throw new IOException(cause);
+		}
+	}
+
+	public static String getString(String url, Duration timeout) throws IOException {
+		HttpResponse<byte[]> response = getBytes(url, timeout);
+		if (response.statusCode() != 200) {
+			throw new IOException("HTTP error: " + response.statusCode());
+		}
+		return new String(response.body(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,249 @@
+package com.choculaterie.network;
+
+import com.choculaterie.models.MinemevFileInfo;
+import com.choculaterie.models.MinemevPostDetailInfo;
+import com.choculaterie.models.MinemevPostInfo;
+import com.choculaterie.models.MinemevSearchResponse;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Typed streaming decoders for the Minemev API. Snake_case keys win over their camelCase aliases.
+class MinemevJson {
+
+	static MinemevSearchResponse readSearchResponse(JsonReader in, Consumer<MinemevPostInfo> onPost) throws IOException {
+		List<MinemevPostInfo> posts = new ArrayList<>();
+		int totalPages = 0;
+		int totalItems = 0;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "posts" -> {
+					if (in.peek() == JsonToken.NULL) {
+						in.nextNull();
+						break;
+					}
+					in.beginArray();
+					while (in.hasNext()) {
+						MinemevPostInfo post = readPostInfo(in);
+						posts.add(post);
+						if (onPost != null) onPost.accept(post);
+					}
+					in.endArray();
+				}
+				case "total_pages" -> totalPages = nextInt(in);
+				case "total_items" -> totalItems = nextInt(in);
+				default -> in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new MinemevSearchResponse(posts.toArray(new MinemevPostInfo[0]), totalPages, totalItems);
+	}
+
+	static MinemevPostInfo readPostInfo(JsonReader in) throws IOException {
+		String uuid = null, title = null, description = null, author = null, createdAt = null, vendor = null;
+		String thumbnailUrl = null, userPicture = null, ytLink = null, urlRedirect = null;
+		String[] tags = null, versions = null, images = null;
+		int downloads = 0;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "uuid" -> uuid = nextString(in);
+				case "post_name" -> title = preferred(nextString(in), title);
+				case "postName" -> title = fallback(title, nextString(in));
+				case "description" -> description = nextString(in);
+				case "User" -> author = nextString(in);
+				case "downloads" -> downloads = nextInt(in);
+				case "published_at" -> createdAt = preferred(nextString(in), createdAt);
+				case "publishedAt" -> createdAt = fallback(createdAt, nextString(in));
+				case "tags" -> tags = nextStringArray(in);
+				case "versions" -> versions = nextStringArray(in);
+				case "vendor" -> vendor = nextString(in);
+				case "images" -> images = nextStringArray(in);
+				case "thumbnail_url" -> thumbnailUrl = preferred(nextString(in), thumbnailUrl);
+				case "thumbnailUrl" -> thumbnailUrl = fallback(thumbnailUrl, nextString(in));
+				case "user_picture" -> userPicture = preferred(nextString(in), userPicture);
+				case "userPicture" -> userPicture = fallback(userPicture, nextString(in));
+				case "yt_link" -> ytLink = preferred(nextString(in), ytLink);
+				case "ytLink" -> ytLink = fallback(ytLink, nextString(in));
+				case "url_redirect" -> urlRedirect = preferred(nextString(in), urlRedirect);
+				case "urlRedirect" -> urlRedirect = fallback(urlRedirect, nextString(in));
+				default -> in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new MinemevPostInfo(uuid, title, description, author, downloads, createdAt, tags, versions, vendor,
+				images, thumbnailUrl, userPicture, ytLink, urlRedirect);
+	}
+
+	static MinemevPostDetailInfo readPostDetail(JsonReader in) throws IOException {
+		String uuid = null, title = null, description = null, descriptionMd = null, author = null;
+		String createdAt = null, ytLink = null, creators = null, urlRedirect = null;
+		String[] tags = null, versions = null, images = null;
+		int downloads = 0;
+		boolean owner = false;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "uuid" -> uuid = nextString(in);
+				case "post_name" -> title = preferred(nextString(in), title);
+				case "postName" -> title = fallback(title, nextString(in));
+				case "description" -> description = nextString(in);
+				case "description_md" -> descriptionMd = preferred(nextString(in), descriptionMd);
+				case "descriptionMd" -> descriptionMd = fallback(descriptionMd, nextString(in));
+				case "User" -> author = nextString(in);
+				case "downloads" -> downloads = nextInt(in);
+				case "published_at" -> createdAt = preferred(nextString(in), createdAt);
+				case "publishedAt" -> createdAt = fallback(createdAt, nextString(in));
+				case "tags" -> tags = nextStringArray(in);
+				case "versions" -> versions = nextStringArray(in);
+				case "images" -> images = nextStringArray(in);
+				case "yt_link" -> ytLink = preferred(nextString(in), ytLink);
+				case "ytLink" -> ytLink = fallback(ytLink, nextString(in));
+				case "owner" -> owner = Boolean.TRUE.equals(nextBoolean(in));
+				case "creators" -> creators = nextString(in);
+				case "url_redirect" -> urlRedirect = preferred(nextString(in), urlRedirect);
+				case "urlRedirect" -> urlRedirect = fallback(urlRedirect, nextString(in));
+				default -> in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new MinemevPostDetailInfo(uuid, title, description, descriptionMd, author, downloads, createdAt, tags,
+				versions, images, ytLink, owner, creators, urlRedirect);
+	}
+
+	static MinemevFileInfo[] readFileList(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			System.err.println("[MinemevNetworkManager] ERROR - filesArray is null");
+			return new MinemevFileInfo[0];
+		}
+
+		List<MinemevFileInfo> files = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			files.add(readFileInfo(in));
+		}
+		in.endArray();
+		return files.toArray(new MinemevFileInfo[0]);
+	}
+
+	private static MinemevFileInfo readFileInfo(JsonReader in) throws IOException {
+		String id = null, defaultFileName = null, downloadUrl = null, fileType = null;
+		Long fileSize = null;
+		Boolean verified = null;
+		String[] versions = null;
+		int downloads = 0;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "id" -> id = nextString(in);
+				case "default_file_name" -> defaultFileName = preferred(nextString(in), defaultFileName);
+				case "defaultFileName" -> defaultFileName = fallback(defaultFileName, nextString(in));
+				case "file" -> downloadUrl = nextString(in);
+				case "file_size" -> fileSize = preferred(nextLong(in), fileSize);
+				case "fileSize" -> fileSize = fallback(fileSize, nextLong(in));
+				case "versions" -> versions = nextStringArray(in);
+				case "downloads" -> downloads = nextInt(in);
+				case "file_type" -> fileType = preferred(nextString(in), fileType);
+				case "fileType" -> fileType = fallback(fileType, nextString(in));
+				case "is_verified" -> verified = preferred(nextBoolean(in), verified);
+				case "isVerified" -> verified = fallback(verified, nextBoolean(in));
+				default -> in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new MinemevFileInfo(id, defaultFileName, downloadUrl, fileSize != null ? fileSize : 0L, versions,
+				downloads, fileType, Boolean.TRUE.equals(verified));
+	}
+
+	static String[] readVendorList(JsonReader in) throws IOException {
+		String[] vendors = new String[0];
+		in.beginObject();
+		while (in.hasNext()) {
+			if (in.nextName().equals("vendors")) {
+				String[] parsed = nextStringArray(in);
+				if (parsed != null) vendors = parsed;
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+		return vendors;
+	}
+
+	private static <T> T preferred(T value, T current) {
+		return value != null ? value : current;
+	}
+
+	private static <T> T fallback(T current, T value) {
+		return current != null ? current : value;
+	}
+
+	private static String nextString(JsonReader in) throws IOException {
+		return switch (in.peek()) {
+			case NULL -> {
+				in.nextNull();
+				yield null;
+			}
+			case BOOLEAN -> Boolean.toString(in.nextBoolean());
+			case STRING, NUMBER -> in.nextString();
+			default -> {
+				in.skipValue();
+				yield null;
+			}
+		};
+	}
+
+	private static int nextInt(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return 0;
+		}
+		return in.nextInt();
+	}
+
+	private static Long nextLong(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextLong();
+	}
+
+	private static Boolean nextBoolean(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextBoolean();
+	}
+
+	private static String[] nextStringArray(JsonReader in) throws IOException {
+		if (in.peek() != JsonToken.BEGIN_ARRAY) {
+			in.skipValue();
+			return null;
+		}
+
+		List<String> values = new ArrayList<>();
+		in.beginArray();
+		while (in.hasNext()) {
+			String value = nextString(in);
+			if (value != null) values.add(value);
+		}
+		in.endArray();
+		return values.toArray(new String[0]);
+	}
+}
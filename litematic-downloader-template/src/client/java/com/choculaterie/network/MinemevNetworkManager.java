@@ -2,20 +2,17 @@ package com.choculaterie.network;
 
 import com.choculaterie.config.DownloadSettings;
 import com.choculaterie.models.*;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
-import java.io.BufferedReader;
+import java.io.FilterReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class MinemevNetworkManager {
 	private static final String MINEMEV_BASE_URL = "https://www.minemev.com/api";
@@ -41,15 +38,14 @@ public class MinemevNetworkManager {
 		return getBaseUrl() + "/files";
 	}
 
-	private static final Gson GSON = new Gson();
-	private static final int TIMEOUT = 10000;
+	private static final Duration TIMEOUT = Duration.ofSeconds(10);
+	private static final ThreadLocal<CompletableFuture<?>> CURRENT_REQUEST = new ThreadLocal<>();
 	private static final int DEFAULT_PAGE = 1;
 	private static final String DEFAULT_VENDOR = "minemev";
 
 	public static CompletableFuture<String[]> getVendors() {
 		return supplyAsync(() -> {
-			String response = makeGetRequest(getVendorsEndpoint());
-			return parseVendorList(response);
+			return makeGetRequest(getVendorsEndpoint(), ResponseCache.VENDORS, MinemevJson::readVendorList);
 		});
 	}
 
@@ -65,9 +61,16 @@ public class MinemevNetworkManager {
 	public static CompletableFuture<MinemevSearchResponse> searchPostsAdvanced(
 			String query, String sort, int cleanUuid, int page,
 			String tag, String versions, String excludeVendor) {
+		return searchPostsAdvanced(query, sort, cleanUuid, page, tag, versions, excludeVendor, null);
+	}
+
+	// onPost is called on the network thread for each post as soon as it has been decoded
+	public static CompletableFuture<MinemevSearchResponse> searchPostsAdvanced(
+			String query, String sort, int cleanUuid, int page,
+			String tag, String versions, String excludeVendor, Consumer<MinemevPostInfo> onPost) {
 		return supplyAsync(() -> {
 			String url = buildSearchUrl(query, sort, cleanUuid, page, tag, versions, excludeVendor);
-			return parseSearchResponse(makeGetRequest(url));
+			return makeGetRequest(url, ResponseCache.SEARCH, in -> MinemevJson.readSearchResponse(in, onPost));
 		});
 	}
 
@@ -93,24 +96,51 @@ public class MinemevNetworkManager {
 		return supplyAsync(() -> getPostFilesInternal(vendor, uuid));
 	}
 
+	// cancel(true) interrupts the worker, which aborts the blocking HTTP exchange of a superseded request
 	private static <T> CompletableFuture<T> supplyAsync(SupplierWithException<T> supplier) {
-		return CompletableFuture.supplyAsync(() -> {
+		Thread[] worker = new Thread[1];
+		CompletableFuture<T> future = new CompletableFuture<>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean cancelled = super.cancel(mayInterruptIfRunning);
+				if (cancelled && mayInterruptIfRunning) {
+					synchronized (worker) {
+						if (worker[0] != null) worker[0].interrupt();
+					}
+				}
+				return cancelled;
+			}
+		};
+
+		HttpTransport.executor().execute(() -> {
+			synchronized (worker) {
+				if (future.isDone()) return;
+				worker[0] = Thread.currentThread();
+			}
+			CURRENT_REQUEST.set(future);
 			try {
-				return supplier.get();
+				future.complete(supplier.get());
 			} catch (Exception e) {
-				throw new RuntimeException(e);
+				future.completeExceptionally(new RuntimeException(e));
+			} finally {
+				CURRENT_REQUEST.remove();
+				synchronized (worker) {
+					worker[0] = null;
+					Thread.interrupted();
+				}
 			}
 		});
+		return future;
 	}
 
 	private static MinemevPostDetailInfo getPostDetailsInternal(String vendor, String uuid) throws IOException {
 		String url = String.format("%s/%s/%s", getDetailsEndpoint(), vendor, uuid);
-		return parsePostDetail(makeGetRequest(url));
+		return makeGetRequest(url, ResponseCache.DETAILS, MinemevJson::readPostDetail);
 	}
 
 	private static MinemevFileInfo[] getPostFilesInternal(String vendor, String uuid) throws IOException {
 		String url = String.format("%s/%s/%s", getFilesEndpoint(), vendor, uuid);
-		return parseFileList(makeGetRequest(url));
+		return makeGetRequest(url, ResponseCache.FILES, MinemevJson::readFileList);
 	}
 
 	private static String buildSearchUrl(String query, String sort, int cleanUuid, int page,
@@ -155,61 +185,22 @@ public class MinemevNetworkManager {
 		return new String[]{DEFAULT_VENDOR, vendorUuid};
 	}
 
-	private static String makeGetRequest(String urlString) throws IOException {
-		try {
-			return makeGetRequestInternal(urlString);
-		} catch (IOException primaryError) {
-			System.err.println("[HTTP] ERROR - Primary API request failed: " + primaryError.getMessage());
-
-			String fallbackUrl = getFallbackUrl(urlString);
-			if (fallbackUrl != null) {
-				try {
-					System.out.println("[HTTP] Trying fallback API...");
-					return makeGetRequestInternal(fallbackUrl);
-				} catch (IOException fallbackError) {
-					System.err.println("[HTTP] ERROR - Fallback API also failed: " + fallbackError.getMessage());
-					throw primaryError;
-				}
-			}
-
-			throw primaryError;
-		}
+	private static <T> T makeGetRequest(String urlString, ResponseCache.Policy policy, JsonAdapter<T> adapter) throws IOException {
+		return ResponseCache.getInstance().get(urlString, policy, TIMEOUT, getFallbackUrl(urlString),
+				body -> adapter.read(new JsonReader(cancellable(body))));
 	}
 
-
-	private static String makeGetRequestInternal(String urlString) throws IOException {
-		System.out.println("[HTTP] GET " + urlString);
-		URL url = new URL(urlString);
-		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-		try {
-			conn.setRequestMethod("GET");
-			conn.setConnectTimeout(TIMEOUT);
-			conn.setReadTimeout(TIMEOUT);
-			conn.setRequestProperty("User-Agent", "LitematicDownloader/1.0");
-
-			int responseCode = conn.getResponseCode();
-
-			if (responseCode != HttpURLConnection.HTTP_OK) {
-				System.err.println("[HTTP] ERROR - HTTP " + responseCode + ": " + conn.getResponseMessage());
-				throw new IOException("HTTP error: " + responseCode);
-			}
-
-			StringBuilder response = new StringBuilder();
-			try (BufferedReader reader = new BufferedReader(
-					new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-				String line;
-				while ((line = reader.readLine()) != null) {
-					response.append(line);
-				}
+	private static Reader cancellable(Reader body) {
+		CompletableFuture<?> request = CURRENT_REQUEST.get();
+		if (request == null) return body;
+		return new FilterReader(body) {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				// The HTTP body stream may swallow the interrupt, so check the request itself between chunks
+				if (request.isCancelled()) throw new InterruptedIOException("Request cancelled");
+				return super.read(buffer, offset, length);
 			}
-			return response.toString();
-		} catch (IOException e) {
-			System.err.println("[HTTP] ERROR - Exception during request: " + e.getMessage());
-			throw e;
-		} finally {
-			conn.disconnect();
-		}
+		};
 	}
 
 	private static String getFallbackUrl(String originalUrl) {
@@ -224,157 +215,9 @@ public class MinemevNetworkManager {
 		return null;
 	}
 
-	private static MinemevSearchResponse parseSearchResponse(String json) {
-		JsonObject root = GSON.fromJson(json, JsonObject.class);
-		JsonArray postsArray = root.getAsJsonArray("posts");
-		int totalPages = root.get("total_pages").getAsInt();
-		int totalItems = root.get("total_items").getAsInt();
-
-		List<MinemevPostInfo> posts = new ArrayList<>();
-		for (int i = 0; i < postsArray.size(); i++) {
-			posts.add(parsePostInfo(postsArray.get(i).getAsJsonObject()));
-		}
-
-		return new MinemevSearchResponse(posts.toArray(new MinemevPostInfo[0]), totalPages, totalItems);
-	}
-
-	private static MinemevPostInfo parsePostInfo(JsonObject obj) {
-		return new MinemevPostInfo(
-				getString(obj, "uuid"),
-				getStringEither(obj, "post_name", "postName"),
-				getString(obj, "description"),
-				getString(obj, "User"),
-				getInt(obj, "downloads"),
-				getStringEither(obj, "published_at", "publishedAt"),
-				getStringArray(obj, "tags"),
-				getStringArray(obj, "versions"),
-				getString(obj, "vendor"),
-				getStringArray(obj, "images"),
-				getStringEither(obj, "thumbnail_url", "thumbnailUrl"),
-				getStringEither(obj, "user_picture", "userPicture"),
-				getStringEither(obj, "yt_link", "ytLink"),
-				getStringEither(obj, "url_redirect", "urlRedirect")
-		);
-	}
-
-	private static MinemevPostDetailInfo parsePostDetail(String json) {
-		JsonObject obj = GSON.fromJson(json, JsonObject.class);
-
-		return new MinemevPostDetailInfo(
-				getString(obj, "uuid"),
-				getStringEither(obj, "post_name", "postName"),
-				getString(obj, "description"),
-				getStringEither(obj, "description_md", "descriptionMd"),
-				getString(obj, "User"),
-				getInt(obj, "downloads"),
-				getStringEither(obj, "published_at", "publishedAt"),
-				getStringArray(obj, "tags"),
-				getStringArray(obj, "versions"),
-				getStringArray(obj, "images"),
-				getStringEither(obj, "yt_link", "ytLink"),
-				getBoolean(obj, "owner"),
-				getString(obj, "creators"),
-				getStringEither(obj, "url_redirect", "urlRedirect")
-		);
-	}
-
-	private static MinemevFileInfo[] parseFileList(String json) {
-		JsonArray filesArray = GSON.fromJson(json, JsonArray.class);
-		if (filesArray == null) {
-			System.err.println("[MinemevNetworkManager] ERROR - filesArray is null");
-			return new MinemevFileInfo[0];
-		}
-
-		List<MinemevFileInfo> files = new ArrayList<>();
-
-		for (int i = 0; i < filesArray.size(); i++) {
-			JsonObject obj = filesArray.get(i).getAsJsonObject();
-			files.add(new MinemevFileInfo(
-					getString(obj, "id"),
-					getStringEither(obj, "default_file_name", "defaultFileName"),
-					getString(obj, "file"),
-					getLongEither(obj, "file_size", "fileSize"),
-					getStringArray(obj, "versions"),
-					getInt(obj, "downloads"),
-					getStringEither(obj, "file_type", "fileType"),
-					getBooleanEither(obj, "is_verified", "isVerified")
-			));
-		}
-
-		return files.toArray(new MinemevFileInfo[0]);
-	}
-
-	private static String[] parseVendorList(String json) {
-		JsonObject root = GSON.fromJson(json, JsonObject.class);
-		JsonArray vendorsArray = root.getAsJsonArray("vendors");
-		if (vendorsArray == null) {
-			return new String[0];
-		}
-
-		String[] result = new String[vendorsArray.size()];
-		for (int i = 0; i < vendorsArray.size(); i++) {
-			result[i] = vendorsArray.get(i).getAsString();
-		}
-		return result;
-	}
-
-	private static String getString(JsonObject obj, String key) {
-		return (obj.has(key) && !obj.get(key).isJsonNull()) ? obj.get(key).getAsString() : null;
-	}
-
-	private static String getStringEither(JsonObject obj, String snakeKey, String camelKey) {
-		if (obj.has(snakeKey) && !obj.get(snakeKey).isJsonNull()) {
-			return obj.get(snakeKey).getAsString();
-		}
-		if (obj.has(camelKey) && !obj.get(camelKey).isJsonNull()) {
-			return obj.get(camelKey).getAsString();
-		}
-		return null;
-	}
-
-	private static int getInt(JsonObject obj, String key) {
-		return (obj.has(key) && !obj.get(key).isJsonNull()) ? obj.get(key).getAsInt() : 0;
-	}
-
-	private static long getLong(JsonObject obj) {
-		return (obj.has("file_size") && !obj.get("file_size").isJsonNull()) ? obj.get("file_size").getAsLong() : 0L;
-	}
-
-	private static long getLongEither(JsonObject obj, String snakeKey, String camelKey) {
-		if (obj.has(snakeKey) && !obj.get(snakeKey).isJsonNull()) {
-			return obj.get(snakeKey).getAsLong();
-		}
-		if (obj.has(camelKey) && !obj.get(camelKey).isJsonNull()) {
-			return obj.get(camelKey).getAsLong();
-		}
-		return 0L;
-	}
-
-	private static boolean getBoolean(JsonObject obj, String key) {
-		return (obj.has(key) && !obj.get(key).isJsonNull()) && obj.get(key).getAsBoolean();
-	}
-
-	private static boolean getBooleanEither(JsonObject obj, String snakeKey, String camelKey) {
-		if (obj.has(snakeKey) && !obj.get(snakeKey).isJsonNull()) {
-			return obj.get(snakeKey).getAsBoolean();
-		}
-		if (obj.has(camelKey) && !obj.get(camelKey).isJsonNull()) {
-			return obj.get(camelKey).getAsBoolean();
-		}
-		return false;
-	}
-
-	private static String[] getStringArray(JsonObject obj, String key) {
-		if (!obj.has(key) || obj.get(key).isJsonNull()) {
-			return new String[0];
-		}
-
-		JsonArray array = obj.getAsJsonArray(key);
-		String[] result = new String[array.size()];
-		for (int i = 0; i < array.size(); i++) {
-			result[i] = array.get(i).getAsString();
-		}
-		return result;
+	@FunctionalInterface
+	private interface JsonAdapter<T> {
+		T read(JsonReader in) throws IOException;
 	}
 
 	@FunctionalInterface
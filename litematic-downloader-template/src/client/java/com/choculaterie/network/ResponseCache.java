@@ -0,0 +1,350 @@
+package com.choculaterie.network;
+
+import com.choculaterie.config.DownloadSettings;
+import com.choculaterie.util.DiskCacheTrimmer;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.io.*;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+public class ResponseCache {
+	public static final Policy VENDORS = new Policy(Duration.ofHours(6), true);
+	public static final Policy DETAILS = new Policy(Duration.ofMinutes(10), true);
+	public static final Policy FILES = new Policy(Duration.ofMinutes(5), false);
+	public static final Policy SEARCH = new Policy(Duration.ofMinutes(2), false);
+
+	private static final long MAX_MEMORY_CHARS = 4L * 1024 * 1024;
+	// Larger bodies are parsed off the socket but not kept, so they never hold a second full copy
+	private static final int MAX_ENTRY_CHARS = (int) (MAX_MEMORY_CHARS / 4);
+	private static final String ENTRY_EXTENSION = ".json";
+	private static final Gson GSON = new Gson();
+	private static ResponseCache INSTANCE;
+
+	public record Policy(Duration ttl, boolean persistent) {
+	}
+
+	@FunctionalInterface
+	public interface BodyParser<T> {
+		T parse(Reader body) throws IOException;
+	}
+
+	private static class CapturingReader extends FilterReader {
+		private final StringBuilder copy = new StringBuilder();
+		private boolean overflowed;
+
+		CapturingReader(Reader in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = super.read();
+			if (c >= 0) capture(c);
+			return c;
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0 && !overflowed) {
+				copy.append(buffer, offset, read);
+				checkOverflow();
+			}
+			return read;
+		}
+
+		private void capture(int c) {
+			if (overflowed) return;
+			copy.append((char) c);
+			checkOverflow();
+		}
+
+		private void checkOverflow() {
+			if (copy.length() > MAX_ENTRY_CHARS) {
+				overflowed = true;
+				copy.setLength(0);
+				copy.trimToSize();
+			}
+		}
+
+		// Null when the body was too large to keep
+		String text() {
+			return overflowed ? null : copy.toString();
+		}
+	}
+
+	private static class Entry {
+		final String body;
+		final String etag;
+		final String lastModified;
+		volatile long fetchedAt;
+
+		Entry(String body, String etag, String lastModified, long fetchedAt) {
+			this.body = body;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.fetchedAt = fetchedAt;
+		}
+
+		boolean isFresh(Policy policy) {
+			return System.currentTimeMillis() - fetchedAt < policy.ttl().toMillis();
+		}
+	}
+
+	private final Path directory;
+	private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+	// Requests currently on the wire, keyed by URL and conditional headers; completes with null when the body is not shareable
+	private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+	private long memoryChars = 0;
+
+	private ResponseCache(Path directory) {
+		this.directory = directory;
+	}
+
+	public static synchronized ResponseCache getInstance() {
+		if (INSTANCE == null) {
+			INSTANCE = new ResponseCache(DownloadSettings.getInstance().getCacheDirectory("http-cache"));
+		}
+		return INSTANCE;
+	}
+
+	public <T> T get(String url, Policy policy, Duration timeout, String fallbackUrl, BodyParser<T> parser) throws IOException {
+		Entry cached = lookup(url, policy);
+		if (cached != null && cached.isFresh(policy)) {
+			return parse(parser, new StringReader(cached.body));
+		}
+
+		try {
+			return fetch(url, url, policy, timeout, cached, parser);
+		} catch (IOException primaryError) {
+			// A cancelled caller wants no fallback or stale answer
+			if (primaryError instanceof InterruptedIOException || Thread.currentThread().isInterrupted()) {
+				throw primaryError;
+			}
+			System.err.println("[HTTP] ERROR - Primary API request failed: " + primaryError.getMessage());
+			if (fallbackUrl != null) {
+				try {
+					System.out.println("[HTTP] Trying fallback API...");
+					return fetch(url, fallbackUrl, policy, timeout, null, parser);
+				} catch (IOException fallbackError) {
+					System.err.println("[HTTP] ERROR - Fallback API also failed: " + fallbackError.getMessage());
+				}
+			}
+			if (cached != null) {
+				System.out.println("[HTTP] Serving stale response for " + url);
+				return parse(parser, new StringReader(cached.body));
+			}
+			throw primaryError;
+		}
+	}
+
+	public synchronized void clear() {
+		memory.clear();
+		memoryChars = 0;
+	}
+
+	private <T> T fetch(String key, String url, Policy policy, Duration timeout, Entry cached, BodyParser<T> parser) throws IOException {
+		// Identical requests share one response; every caller parses the shared text with its own parser
+		String flightKey = cached == null ? url : url + " " + cached.etag + " " + cached.lastModified;
+		CompletableFuture<Entry> created = new CompletableFuture<>();
+		CompletableFuture<Entry> existing = inFlight.putIfAbsent(flightKey, created);
+		if (existing != null) {
+			Entry shared = await(existing, url);
+			if (shared != null) return parse(parser, new StringReader(shared.body));
+			return send(key, url, policy, timeout, cached, parser, null);
+		}
+
+		try {
+			return send(key, url, policy, timeout, cached, parser, created);
+		} catch (IOException | RuntimeException e) {
+			created.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(flightKey, created);
+			created.complete(null);
+		}
+	}
+
+	private <T> T send(String key, String url, Policy policy, Duration timeout, Entry cached, BodyParser<T> parser,
+					   CompletableFuture<Entry> shared) throws IOException {
+		HttpRequest.Builder request = HttpTransport.request(url, timeout).GET();
+		if (cached != null && cached.etag != null) request.header("If-None-Match", cached.etag);
+		if (cached != null && cached.lastModified != null) request.header("If-Modified-Since", cached.lastModified);
+
+		System.out.println("[HTTP] GET " + url);
+		HttpResponse<InputStream> response = HttpTransport.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+		try (InputStream body = response.body()) {
+			if (response.statusCode() == 304 && cached != null) {
+				cached.fetchedAt = System.currentTimeMillis();
+				put(key, cached, policy);
+				if (shared != null) shared.complete(cached);
+				return parse(parser, new StringReader(cached.body));
+			}
+			if (response.statusCode() != 200) {
+				System.err.println("[HTTP] ERROR - HTTP " + response.statusCode());
+				throw new IOException("HTTP error: " + response.statusCode());
+			}
+
+			// Parse straight off the socket while keeping the decoded text for the cache
+			CapturingReader capture = new CapturingReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+			T result = parse(parser, capture);
+			capture.transferTo(Writer.nullWriter());
+
+			String text = capture.text();
+			if (text == null) {
+				if (shared != null) shared.complete(null);
+				return result;
+			}
+			Entry entry = new Entry(
+					text,
+					response.headers().firstValue("ETag").orElse(null),
+					response.headers().firstValue("Last-Modified").orElse(null),
+					System.currentTimeMillis());
+			put(key, entry, policy);
+			if (shared != null) shared.complete(entry);
+			return result;
+		}
+	}
+
+	private static Entry await(CompletableFuture<Entry> future, String url) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Request interrupted: " + url);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			// The leading caller was cancelled rather than the request failing, so this one sends its own
+			if (cause instanceof InterruptedIOException) return null;
+			if (cause instanceof IOException io) throw io;
+			throw new IOException(cause);
+		}
+	}
+
+	private static <T> T parse(BodyParser<T> parser, Reader body) throws IOException {
+		try {
+			return parser.parse(body);
+		} catch (RuntimeException e) {
+			throw new IOException("Malformed response: " + e.getMessage(), e);
+		}
+	}
+
+	private Entry lookup(String key, Policy policy) {
+		synchronized (this) {
+			Entry entry = memory.get(key);
+			if (entry != null) return entry;
+		}
+		if (!policy.persistent() || !DownloadSettings.getInstance().isResponseDiskCacheEnabled()) {
+			return null;
+		}
+
+		Entry entry = readDisk(key);
+		if (entry != null) {
+			synchronized (this) {
+				putMemory(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	private void put(String key, Entry entry, Policy policy) {
+		synchronized (this) {
+			putMemory(key, entry);
+		}
+		if (policy.persistent() && DownloadSettings.getInstance().isResponseDiskCacheEnabled()) {
+			writeDisk(key, entry);
+		}
+	}
+
+	private void putMemory(String key, Entry entry) {
+		Entry previous = memory.put(key, entry);
+		if (previous != null) memoryChars -= previous.body.length();
+		memoryChars += entry.body.length();
+
+		Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+		while (memoryChars > MAX_MEMORY_CHARS && it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			if (eldest.getValue() == entry) break;
+			memoryChars -= eldest.getValue().body.length();
+			it.remove();
+		}
+	}
+
+	private Entry readDisk(String key) {
+		Path file = directory.resolve(sha1(key) + ENTRY_EXTENSION);
+		if (!Files.isRegularFile(file)) return null;
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			JsonObject json = GSON.fromJson(reader, JsonObject.class);
+			if (json == null || !key.equals(getString(json, "url")) || getString(json, "body") == null) return null;
+			DiskCacheTrimmer.touch(file);
+			return new Entry(
+					getString(json, "body"),
+					getString(json, "etag"),
+					getString(json, "lastModified"),
+					json.get("fetchedAt").getAsLong());
+		} catch (Exception e) {
+			System.err.println("[HTTP] Dropping unreadable cache entry: " + e.getMessage());
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException ignored) {
+			}
+			return null;
+		}
+	}
+
+	private void writeDisk(String key, Entry entry) {
+		JsonObject json = new JsonObject();
+		json.addProperty("url", key);
+		json.addProperty("etag", entry.etag);
+		json.addProperty("lastModified", entry.lastModified);
+		json.addProperty("fetchedAt", entry.fetchedAt);
+		json.addProperty("body", entry.body);
+
+		try {
+			Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, "entry", ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				GSON.toJson(json, writer);
+			}
+			Path target = directory.resolve(sha1(key) + ENTRY_EXTENSION);
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			trimDisk();
+		} catch (IOException e) {
+			System.err.println("[HTTP] Failed to write cache entry: " + e.getMessage());
+		}
+	}
+
+	private void trimDisk() {
+		long budget = DownloadSettings.getInstance().getResponseDiskCacheMaxMB() * 1024L * 1024L;
+		DiskCacheTrimmer.trim(directory, "*" + ENTRY_EXTENSION, budget);
+	}
+
+	private static String getString(JsonObject obj, String key) {
+		return (obj.has(key) && !obj.get(key).isJsonNull()) ? obj.get(key).getAsString() : null;
+	}
+
+	private static String sha1(String value) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(value.hashCode());
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.choculaterie.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// One bit per cell of a schematic's bounding box. Boxes too large for a flat bitset, typically a few
+// regions placed far apart, fall back to 16x16x16 sections that only exist where something is set.
+public class BlockOccupancy {
+    private static final long MAX_DENSE_CELLS = 1L << 27;
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_MASK = 15;
+    private static final int SECTION_WORDS = 4096 / 64;
+
+    private final int sizeX, sizeY, sizeZ;
+    private final long sectionsX, sectionsZ;
+    private final long[] words;
+    private final Map<Long, long[]> sections;
+
+    public BlockOccupancy(int sizeX, int sizeY, int sizeZ) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.sectionsX = ((long) sizeX >> SECTION_SHIFT) + 1;
+        this.sectionsZ = ((long) sizeZ >> SECTION_SHIFT) + 1;
+        long cells = (long) sizeX * sizeY * sizeZ;
+        if (cells <= MAX_DENSE_CELLS) {
+            this.words = new long[(int) ((cells + 63) >>> 6)];
+            this.sections = null;
+        } else {
+            this.words = null;
+            this.sections = new HashMap<>();
+        }
+    }
+
+    public void set(int x, int y, int z) {
+        if (!contains(x, y, z)) return;
+        if (words != null) {
+            long index = index(x, y, z);
+            words[(int) (index >>> 6)] |= 1L << index;
+        } else {
+            int bit = sectionBit(x, y, z);
+            sections.computeIfAbsent(sectionKey(x, y, z), key -> new long[SECTION_WORDS])[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    // Cells outside the box are empty
+    public boolean get(int x, int y, int z) {
+        if (!contains(x, y, z)) return false;
+        if (words != null) {
+            long index = index(x, y, z);
+            return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+        }
+        long[] section = sections.get(sectionKey(x, y, z));
+        int bit = sectionBit(x, y, z);
+        return section != null && (section[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    // True when all six neighbours are set, so nothing of the cell can be seen from outside
+    public boolean isEnclosed(int x, int y, int z) {
+        return get(x - 1, y, z) && get(x + 1, y, z)
+                && get(x, y - 1, z) && get(x, y + 1, z)
+                && get(x, y, z - 1) && get(x, y, z + 1);
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    private long index(int x, int y, int z) {
+        return ((long) y * sizeZ + z) * sizeX + x;
+    }
+
+    private long sectionKey(int x, int y, int z) {
+        return ((long) (y >> SECTION_SHIFT) * sectionsZ + (z >> SECTION_SHIFT)) * sectionsX + (x >> SECTION_SHIFT);
+    }
+
+    private static int sectionBit(int x, int y, int z) {
+        return (y & SECTION_MASK) << 8 | (z & SECTION_MASK) << 4 | (x & SECTION_MASK);
+    }
+}
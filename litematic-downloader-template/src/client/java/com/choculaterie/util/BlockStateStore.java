@@ -0,0 +1,101 @@
+package com.choculaterie.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class BlockStateStore implements AutoCloseable {
+
+    public static final long MAX_HEAP_WORDS = 4L * 1024 * 1024;
+
+    private final int length;
+    private final long[] heapWords;
+    private final Path spillFile;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer;
+    private int written = 0;
+
+    public BlockStateStore(int length) throws IOException {
+        this.length = length;
+        if (length <= MAX_HEAP_WORDS) {
+            this.heapWords = new long[length];
+            this.spillFile = null;
+            this.channel = null;
+            this.writeBuffer = null;
+        } else {
+            this.heapWords = null;
+            this.spillFile = Files.createTempFile("litematic-blockstates", ".bin");
+            this.spillFile.toFile().deleteOnExit();
+            this.channel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.writeBuffer = ByteBuffer.allocateDirect(NbtStreamReader.LONG_CHUNK_SIZE * Long.BYTES);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void append(long[] words, int count) throws IOException {
+        if (written + count > length) throw new IOException("BlockStates overflow");
+        if (heapWords != null) {
+            System.arraycopy(words, 0, heapWords, written, count);
+        } else {
+            writeBuffer.clear();
+            writeBuffer.asLongBuffer().put(words, 0, count);
+            writeBuffer.limit(count * Long.BYTES);
+            long position = (long) written * Long.BYTES;
+            while (writeBuffer.hasRemaining()) {
+                position += channel.write(writeBuffer, position);
+            }
+        }
+        written += count;
+    }
+
+    // Each thread reading the store needs its own reader; a reader reuses one buffer for all its reads
+    public Reader reader() {
+        return new Reader();
+    }
+
+    public class Reader {
+        private final ByteBuffer buffer = heapWords == null
+                ? ByteBuffer.allocate(NbtStreamReader.LONG_CHUNK_SIZE * Long.BYTES) : null;
+
+        public int read(long fromWord, long[] dst, int count) throws IOException {
+            int available = (int) Math.max(0, Math.min(count, written - fromWord));
+            if (available == 0) return 0;
+            if (heapWords != null) {
+                System.arraycopy(heapWords, (int) fromWord, dst, 0, available);
+                return available;
+            }
+            int done = 0;
+            while (done < available) {
+                int words = Math.min(available - done, buffer.capacity() / Long.BYTES);
+                buffer.clear();
+                buffer.limit(words * Long.BYTES);
+                long position = (fromWord + done) * Long.BYTES;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) break;
+                }
+                buffer.flip();
+                int read = buffer.remaining() / Long.BYTES;
+                buffer.asLongBuffer().get(dst, done, read);
+                done += read;
+                if (read < words) break;
+            }
+            return done;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException ignored) {
+        }
+    }
+}
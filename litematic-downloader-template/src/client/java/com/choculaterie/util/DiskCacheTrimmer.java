@@ -0,0 +1,71 @@
+package com.choculaterie.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class DiskCacheTrimmer {
+
+    private record Entry(Path path, long size, long lastUsed) {
+    }
+
+    public static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static long totalSize(Path directory, String glob) {
+        long total = 0;
+        for (Entry entry : list(directory, glob)) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    // Deletes least recently used entries (by mtime) until the directory fits the budget; returns the remaining size
+    public static synchronized long trim(Path directory, String glob, long budgetBytes) {
+        List<Entry> entries = list(directory, glob);
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        if (total <= budgetBytes) return total;
+
+        entries.sort(Comparator.comparingLong(Entry::lastUsed));
+        for (Entry entry : entries) {
+            if (total <= budgetBytes) break;
+            try {
+                Files.deleteIfExists(entry.path);
+                total -= entry.size;
+            } catch (IOException ignored) {
+            }
+        }
+        return total;
+    }
+
+    private static List<Entry> list(Path directory, String glob) {
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return entries;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return entries;
+    }
+}
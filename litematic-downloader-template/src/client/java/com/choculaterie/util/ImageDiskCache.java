@@ -0,0 +1,175 @@
+package com.choculaterie.util;
+
+import com.choculaterie.config.DownloadSettings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+public class ImageDiskCache {
+
+    private static final String BYTES_EXTENSION = ".img";
+    private static final String PIXELS_EXTENSION = ".rgba";
+    private static final String ENTRY_GLOB = "*.{img,rgba}";
+    private static final int PIXELS_MAGIC = 0x52474241;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    // Decoded pixels are ~20x larger than the compressed source, so only thumbnails and previews keep them
+    private static final int MAX_PIXELS_EDGE = 1024;
+    private static ImageDiskCache INSTANCE;
+    private static ImageDiskCache THUMBNAIL_INSTANCE;
+
+    public record Pixels(int width, int height, int sourceWidth, int sourceHeight, int[] argb) {
+    }
+
+    private final Path directory;
+    private final IntSupplier maxMB;
+    private final boolean alwaysStoreDecoded;
+    private final AtomicLong approxSize = new AtomicLong(-1);
+
+    private ImageDiskCache(Path directory, IntSupplier maxMB, boolean alwaysStoreDecoded) {
+        this.directory = directory;
+        this.maxMB = maxMB;
+        this.alwaysStoreDecoded = alwaysStoreDecoded;
+    }
+
+    public static synchronized ImageDiskCache getInstance() {
+        if (INSTANCE == null) {
+            DownloadSettings settings = DownloadSettings.getInstance();
+            INSTANCE = new ImageDiskCache(settings.getCacheDirectory("image-cache"), settings::getImageCacheMaxMB, false);
+        }
+        return INSTANCE;
+    }
+
+    // Local schematic thumbnails have no compressed source worth keeping, only their scaled pixels
+    public static synchronized ImageDiskCache getThumbnailInstance() {
+        if (THUMBNAIL_INSTANCE == null) {
+            DownloadSettings settings = DownloadSettings.getInstance();
+            THUMBNAIL_INSTANCE = new ImageDiskCache(settings.getCacheDirectory("thumbnail-cache"),
+                    settings::getThumbnailCacheMaxMB, true);
+        }
+        return THUMBNAIL_INSTANCE;
+    }
+
+    public byte[] loadBytes(String url) {
+        if (!isEnabled()) return null;
+        Path entry = directory.resolve(hash(url) + BYTES_EXTENSION);
+        if (!Files.isRegularFile(entry)) return null;
+        try {
+            byte[] bytes = Files.readAllBytes(entry);
+            DiskCacheTrimmer.touch(entry);
+            return bytes;
+        } catch (IOException e) {
+            System.err.println("[ImageCache] Failed to read cached image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void storeBytes(String url, byte[] bytes) {
+        if (!isEnabled()) return;
+        write(directory.resolve(hash(url) + BYTES_EXTENSION), bytes);
+    }
+
+    public Pixels loadPixels(String url, int maxEdge) {
+        if (!isEnabled() || maxEdge > MAX_PIXELS_EDGE) return null;
+        Path entry = directory.resolve(hash(url) + "-" + maxEdge + PIXELS_EXTENSION);
+        if (!Files.isRegularFile(entry)) return null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(entry));
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != PIXELS_MAGIC) {
+                throw new IOException("Bad header");
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int sourceWidth = buffer.getInt();
+            int sourceHeight = buffer.getInt();
+            if (width <= 0 || height <= 0 || buffer.remaining() != (long) width * height * Integer.BYTES) {
+                throw new IOException("Truncated pixel data");
+            }
+
+            int[] argb = new int[width * height];
+            buffer.asIntBuffer().get(argb);
+            DiskCacheTrimmer.touch(entry);
+            return new Pixels(width, height, sourceWidth, sourceHeight, argb);
+        } catch (IOException e) {
+            System.err.println("[ImageCache] Dropping unreadable pixel entry: " + e.getMessage());
+            delete(entry);
+            return null;
+        }
+    }
+
+    public void storePixels(String url, int maxEdge, Pixels pixels) {
+        if (!isEnabled() || maxEdge > MAX_PIXELS_EDGE
+                || !(alwaysStoreDecoded || DownloadSettings.getInstance().isImageCacheStoreDecoded())) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + pixels.argb().length * Integer.BYTES);
+        buffer.putInt(PIXELS_MAGIC)
+                .putInt(pixels.width())
+                .putInt(pixels.height())
+                .putInt(pixels.sourceWidth())
+                .putInt(pixels.sourceHeight());
+        buffer.asIntBuffer().put(pixels.argb());
+        write(directory.resolve(hash(url) + "-" + maxEdge + PIXELS_EXTENSION), buffer.array());
+    }
+
+    public void remove(String url) {
+        String prefix = hash(url);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path entry : stream) delete(entry);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void write(Path target, byte[] data) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                Files.write(temp, data);
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("[ImageCache] Failed to write cache entry: " + e.getMessage());
+            return;
+        }
+
+        // Only rescan the directory once the running estimate crosses the budget
+        long budget = maxMB.getAsInt() * 1024L * 1024L;
+        approxSize.compareAndSet(-1, DiskCacheTrimmer.totalSize(directory, ENTRY_GLOB) - data.length);
+        if (approxSize.addAndGet(data.length) > budget) {
+            approxSize.set(DiskCacheTrimmer.trim(directory, ENTRY_GLOB, budget));
+        }
+    }
+
+    private boolean isEnabled() {
+        return maxMB.getAsInt() > 0;
+    }
+
+    private static void delete(Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String hash(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.choculaterie.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LitematicAnalysis {
+
+    public static class Region {
+        public final String name;
+        public final int minX, minY, minZ;
+        public final int sizeX, sizeY, sizeZ;
+        public final int paletteSize;
+        public final long nonAirBlocks;
+
+        public Region(String name, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ,
+                      int paletteSize, long nonAirBlocks) {
+            this.name = name;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.paletteSize = paletteSize;
+            this.nonAirBlocks = nonAirBlocks;
+        }
+    }
+
+    private static final LitematicAnalysis EMPTY =
+            new LitematicAnalysis(Collections.emptyList(), new SchematicVolume(0), Collections.emptyList(), false);
+
+    private final List<LitematicParser.BlockCount> blockCounts;
+    private final SchematicVolume volume;
+    private final List<Region> regions;
+    private final boolean positionsTruncated;
+
+    LitematicAnalysis(List<LitematicParser.BlockCount> blockCounts, SchematicVolume volume,
+                      List<Region> regions, boolean positionsTruncated) {
+        this.blockCounts = blockCounts;
+        this.volume = volume;
+        this.regions = regions;
+        this.positionsTruncated = positionsTruncated;
+    }
+
+    public List<LitematicParser.BlockCount> getBlockCounts() {
+        return blockCounts;
+    }
+
+    public SchematicVolume getVolume() {
+        return volume;
+    }
+
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    public boolean isPositionsTruncated() {
+        return positionsTruncated;
+    }
+
+    public long getTotalBlocks() {
+        long total = 0;
+        for (LitematicParser.BlockCount count : blockCounts) {
+            total += count.count;
+        }
+        return total;
+    }
+
+    public int[] getEnclosingSize() {
+        if (regions.isEmpty()) return new int[3];
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Region region : regions) {
+            minX = Math.min(minX, region.minX);
+            minY = Math.min(minY, region.minY);
+            minZ = Math.min(minZ, region.minZ);
+            maxX = Math.max(maxX, region.minX + region.sizeX);
+            maxY = Math.max(maxY, region.minY + region.sizeY);
+            maxZ = Math.max(maxZ, region.minZ + region.sizeZ);
+        }
+        return new int[]{maxX - minX, maxY - minY, maxZ - minZ};
+    }
+
+    public static CompletableFuture<LitematicAnalysis> analyzeAsync(File litematicFile) {
+        CompletableFuture<LitematicAnalysis> future = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                LitematicAnalysisCache cache = LitematicAnalysisCache.getInstance();
+                LitematicAnalysis cached = cache.load(litematicFile);
+                if (cached != null) {
+                    future.complete(cached);
+                    return;
+                }
+                LitematicAnalysis analysis = analyze(litematicFile);
+                future.complete(analysis);
+                cache.store(litematicFile, analysis);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, "Litematic-Analysis").start();
+        return future;
+    }
+
+    public static LitematicAnalysis analyze(File litematicFile) throws IOException {
+        return analyze(litematicFile, LitematicParser.isParallelDecodingAvailable());
+    }
+
+    public static LitematicAnalysis analyze(File litematicFile, boolean parallel) throws IOException {
+        return analyze(litematicFile, parallel, null);
+    }
+
+    // metadataVisitor, if given, receives the root Metadata compound during the same pass
+    static LitematicAnalysis analyze(File litematicFile, boolean parallel, NbtStreamReader.Visitor metadataVisitor) throws IOException {
+        Collector collector = new Collector(parallel);
+        try {
+            NbtStreamReader.readCompressed(litematicFile, new NbtStreamReader.Visitor() {
+                @Override
+                public boolean accept(byte type, String name) {
+                    if (type != NbtStreamReader.TAG_COMPOUND) return false;
+                    return "Regions".equals(name) || (metadataVisitor != null && "Metadata".equals(name));
+                }
+
+                @Override
+                public NbtStreamReader.Visitor enterCompound(String name) {
+                    return "Metadata".equals(name) ? metadataVisitor : new RegionsVisitor(collector);
+                }
+            });
+            collector.awaitAll();
+        } finally {
+            collector.close();
+        }
+        if (collector.failure != null) throw collector.failure;
+
+        Map<String, Integer> blockCounts = new HashMap<>();
+        SchematicVolume volume = new SchematicVolume();
+        List<Region> regions = new ArrayList<>();
+        boolean truncated = false;
+        for (RegionJob job : collector.jobs) {
+            if (job.region == null) continue;
+            regions.add(job.region);
+            for (int p = 0; p < job.counts.length; p++) {
+                if (job.counts[p] > 0) blockCounts.merge(job.paletteIds[p], job.counts[p], Integer::sum);
+            }
+            volume.addAll(job.volume, job.volume.size());
+            truncated |= job.truncated;
+        }
+        normalize(volume, regions);
+        volume.trimToSize();
+
+        return new LitematicAnalysis(toSortedCounts(blockCounts), volume, regions, truncated);
+    }
+
+    // Preview slots shared by every region of one analysis, so the jobs together never buffer more
+    // positions than the merged preview keeps. Handed out in small batches to keep contention low.
+    private static class PreviewBudget {
+        private static final int BATCH = 256;
+        private final AtomicInteger remaining = new AtomicInteger(LitematicParser.MAX_PREVIEW_BLOCKS);
+
+        int reserve() {
+            while (true) {
+                int left = remaining.get();
+                if (left <= 0) return 0;
+                int take = Math.min(BATCH, left);
+                if (remaining.compareAndSet(left, left - take)) return take;
+            }
+        }
+
+        void release(int unused) {
+            if (unused > 0) remaining.addAndGet(unused);
+        }
+    }
+
+    private static class Collector implements AutoCloseable {
+        final boolean parallel;
+        final PreviewBudget previewBudget = new PreviewBudget();
+        final List<RegionJob> jobs = new ArrayList<>();
+        final ArrayDeque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+        RegionReader pending;
+        IOException failure;
+
+        Collector(boolean parallel) {
+            this.parallel = parallel;
+        }
+
+        void submit(RegionJob job) {
+            jobs.add(job);
+            if (!parallel || job.totalBlocks < LitematicParser.PARALLEL_MIN_BLOCKS) {
+                job.run(false);
+                return;
+            }
+            // Keep inflating the next region while this one decodes, but bound how many stores stay alive
+            while (inFlight.size() >= LitematicParser.DECODE_POOL.getParallelism()) {
+                inFlight.poll().join();
+            }
+            inFlight.add(LitematicParser.DECODE_POOL.submit(() -> job.run(true)));
+        }
+
+        void awaitAll() {
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().join();
+            }
+            for (RegionJob job : jobs) {
+                if (job.failure != null && failure == null) failure = job.failure;
+            }
+        }
+
+        @Override
+        public void close() {
+            for (ForkJoinTask<?> task : inFlight) {
+                task.cancel(false);
+            }
+            // A job cancelled before it started never reaches its finally, so its store is closed here
+            for (RegionJob job : jobs) {
+                job.abandon();
+            }
+            if (pending != null && pending.blockStates != null) {
+                pending.blockStates.close();
+            }
+            pending = null;
+        }
+    }
+
+    private static class RegionsVisitor implements NbtStreamReader.Visitor {
+        private final Collector collector;
+
+        RegionsVisitor(Collector collector) {
+            this.collector = collector;
+        }
+
+        @Override
+        public boolean accept(byte type, String name) {
+            return type == NbtStreamReader.TAG_COMPOUND;
+        }
+
+        @Override
+        public NbtStreamReader.Visitor enterCompound(String name) {
+            RegionReader region = new RegionReader(name, collector);
+            collector.pending = region;
+            return region;
+        }
+    }
+
+    private static class RegionReader implements NbtStreamReader.Visitor {
+        final String name;
+        final Collector collector;
+        final List<String> paletteIds = new ArrayList<>();
+        final List<Map<String, String>> paletteProperties = new ArrayList<>();
+        final int[] size = new int[3];
+        final int[] position = new int[3];
+        BlockStateStore blockStates;
+
+        RegionReader(String name, Collector collector) {
+            this.name = name;
+            this.collector = collector;
+        }
+
+        @Override
+        public boolean accept(byte type, String name) {
+            return switch (name) {
+                case "Size", "Position" -> type == NbtStreamReader.TAG_COMPOUND;
+                case "BlockStatePalette" -> type == NbtStreamReader.TAG_LIST;
+                case "BlockStates" -> type == NbtStreamReader.TAG_LONG_ARRAY;
+                default -> false;
+            };
+        }
+
+        @Override
+        public NbtStreamReader.Visitor enterCompound(String name) {
+            return new VectorVisitor("Size".equals(name) ? size : position);
+        }
+
+        @Override
+        public NbtStreamReader.Visitor enterList(String name, byte elementType, int length) {
+            return new PaletteVisitor(paletteIds, paletteProperties);
+        }
+
+        @Override
+        public NbtStreamReader.LongArrayVisitor enterLongArray(String name, int length) {
+            try {
+                if (blockStates != null) blockStates.close();
+                blockStates = new BlockStateStore(length);
+            } catch (IOException e) {
+                collector.failure = e;
+                return null;
+            }
+            return (words, count) -> blockStates.append(words, count);
+        }
+
+        @Override
+        public void visitEnd() {
+            collector.pending = null;
+            int paletteSize = paletteIds.size();
+            long totalBlocks = (long) Math.abs(size[0]) * Math.abs(size[1]) * Math.abs(size[2]);
+            if (blockStates == null || blockStates.length() == 0 || paletteSize == 0 || totalBlocks == 0) {
+                if (blockStates != null) blockStates.close();
+                return;
+            }
+            collector.submit(new RegionJob(name, paletteIds.toArray(new String[0]), paletteProperties,
+                    size, position, blockStates, collector.previewBudget));
+        }
+    }
+
+    private static class RegionJob {
+        final String name;
+        final String[] paletteIds;
+        final List<Map<String, String>> paletteProperties;
+        final boolean[] paletteAir;
+        final int sizeX, sizeY, sizeZ;
+        final int minX, minY, minZ;
+        final long totalBlocks;
+        final BlockStateStore blockStates;
+        final PreviewBudget previewBudget;
+
+        final SchematicVolume volume = new SchematicVolume();
+        final int[] volumePalette;
+        int[] counts = new int[0];
+        volatile boolean truncated = false;
+        Region region;
+        IOException failure;
+        // Set by whichever of run and abandon gets to the job first; that side owns closing blockStates
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        RegionJob(String name, String[] paletteIds, List<Map<String, String>> paletteProperties,
+                  int[] size, int[] position, BlockStateStore blockStates, PreviewBudget previewBudget) {
+            this.name = name;
+            this.previewBudget = previewBudget;
+            this.paletteIds = paletteIds;
+            this.paletteProperties = paletteProperties;
+            this.blockStates = blockStates;
+            this.sizeX = Math.abs(size[0]);
+            this.sizeY = Math.abs(size[1]);
+            this.sizeZ = Math.abs(size[2]);
+            this.totalBlocks = (long) sizeX * sizeY * sizeZ;
+            // Litematica stores negative sizes when the region extends towards negative axes from its origin
+            this.minX = position[0] + (size[0] < 0 ? size[0] + 1 : 0);
+            this.minY = position[1] + (size[1] < 0 ? size[1] + 1 : 0);
+            this.minZ = position[2] + (size[2] < 0 ? size[2] + 1 : 0);
+            this.paletteAir = new boolean[paletteIds.length];
+            for (int i = 0; i < paletteIds.length; i++) {
+                paletteAir[i] = isAir(paletteIds[i]);
+            }
+            this.volumePalette = new int[paletteIds.length];
+            for (int i = 0; i < paletteIds.length; i++) {
+                if (!paletteAir[i]) volumePalette[i] = volume.addPaletteEntry(paletteIds[i], paletteProperties.get(i));
+            }
+        }
+
+        void run(boolean parallel) {
+            if (!claimed.compareAndSet(false, true)) return;
+            try {
+                int layerSize = sizeX * sizeZ;
+                if (parallel) {
+                    // Each slab collects the preview of its own layers; appending them in slab order
+                    // gives the same index order as a sequential decode
+                    Map<Long, PreviewSink> slabs = new ConcurrentSkipListMap<>();
+                    counts = LitematicParser.decodeParallel(blockStates, paletteAir, totalBlocks, layerSize, (from, to) -> {
+                        PreviewSink slab = new PreviewSink(newSlabVolume(), layerSize);
+                        slabs.put(from, slab);
+                        return slab;
+                    });
+                    for (PreviewSink slab : slabs.values()) {
+                        slab.finish();
+                        volume.addAll(slab.target, slab.target.size());
+                    }
+                } else {
+                    PreviewSink sink = new PreviewSink(volume, layerSize);
+                    PackedBlockStateDecoder decoder = new PackedBlockStateDecoder(paletteAir, totalBlocks, sink);
+                    decodeSequential(decoder);
+                    counts = decoder.getPaletteCounts();
+                    sink.finish();
+                }
+
+                long nonAir = 0;
+                for (int count : counts) {
+                    nonAir += count;
+                }
+                region = new Region(name, minX, minY, minZ, sizeX, sizeY, sizeZ, paletteIds.length, nonAir);
+            } catch (IOException e) {
+                failure = e;
+            } catch (UncheckedIOException e) {
+                failure = e.getCause();
+            } finally {
+                blockStates.close();
+            }
+        }
+
+        // Adds decoded blocks to a volume sharing this job's palette indices, while preview slots last
+        class PreviewSink implements PackedBlockStateDecoder.BlockSink {
+            private final SchematicVolume target;
+            private final int layerSize;
+            private int reserved = 0;
+
+            PreviewSink(SchematicVolume target, int layerSize) {
+                this.target = target;
+                this.layerSize = layerSize;
+            }
+
+            @Override
+            public boolean accept(long index, int paletteIndex) {
+                if (reserved == 0 && (reserved = previewBudget.reserve()) == 0) {
+                    truncated = true;
+                    return false;
+                }
+                reserved--;
+                // Index order: y * sizeX * sizeZ + z * sizeX + x
+                int inLayer = (int) (index % layerSize);
+                target.add(minX + inLayer % sizeX, minY + (int) (index / layerSize), minZ + inLayer / sizeX,
+                        volumePalette[paletteIndex]);
+                return true;
+            }
+
+            void finish() {
+                previewBudget.release(reserved);
+                reserved = 0;
+            }
+        }
+
+        // Same palette entries in the same order as volume, so slab indices carry over unchanged
+        private SchematicVolume newSlabVolume() {
+            SchematicVolume slab = new SchematicVolume();
+            for (int i = 0; i < paletteIds.length; i++) {
+                if (!paletteAir[i]) slab.addPaletteEntry(paletteIds[i], paletteProperties.get(i));
+            }
+            return slab;
+        }
+
+        void abandon() {
+            if (claimed.compareAndSet(false, true)) {
+                blockStates.close();
+            }
+        }
+
+        private void decodeSequential(PackedBlockStateDecoder decoder) throws IOException {
+            long[] chunk = new long[NbtStreamReader.LONG_CHUNK_SIZE];
+            BlockStateStore.Reader reader = blockStates.reader();
+            int totalWords = blockStates.length();
+            for (long chunkStart = 0; chunkStart < totalWords; chunkStart += chunk.length) {
+                if (decoder.isDone()) break;
+                int read = reader.read(chunkStart, chunk, chunk.length);
+                if (read <= 0) break;
+                decoder.decode(chunk, 0, read);
+            }
+        }
+    }
+
+    static class VectorVisitor implements NbtStreamReader.Visitor {
+        private final int[] target;
+
+        VectorVisitor(int[] target) {
+            this.target = target;
+        }
+
+        @Override
+        public boolean accept(byte type, String name) {
+            return type == NbtStreamReader.TAG_INT;
+        }
+
+        @Override
+        public void visitInt(String name, int value) {
+            switch (name) {
+                case "x" -> target[0] = value;
+                case "y" -> target[1] = value;
+                case "z" -> target[2] = value;
+            }
+        }
+    }
+
+    static class PaletteVisitor implements NbtStreamReader.Visitor {
+        private final List<String> ids;
+        private final List<Map<String, String>> properties;
+
+        PaletteVisitor(List<String> ids, List<Map<String, String>> properties) {
+            this.ids = ids;
+            this.properties = properties;
+        }
+
+        @Override
+        public boolean accept(byte type, String name) {
+            return type == NbtStreamReader.TAG_COMPOUND;
+        }
+
+        @Override
+        public NbtStreamReader.Visitor enterCompound(String name) {
+            int index = ids.size();
+            ids.add("minecraft:air");
+            properties.add(Collections.emptyMap());
+            return new NbtStreamReader.Visitor() {
+                @Override
+                public boolean accept(byte type, String name) {
+                    return ("Name".equals(name) && type == NbtStreamReader.TAG_STRING)
+                            || ("Properties".equals(name) && type == NbtStreamReader.TAG_COMPOUND);
+                }
+
+                @Override
+                public void visitString(String name, String value) {
+                    ids.set(index, value);
+                }
+
+                @Override
+                public NbtStreamReader.Visitor enterCompound(String name) {
+                    Map<String, String> props = new HashMap<>();
+                    properties.set(index, props);
+                    return new NbtStreamReader.Visitor() {
+                        @Override
+                        public boolean accept(byte type, String name) {
+                            return type == NbtStreamReader.TAG_STRING;
+                        }
+
+                        @Override
+                        public void visitString(String name, String value) {
+                            props.put(name, value);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    static List<LitematicParser.BlockCount> toSortedCounts(Map<String, Integer> blockCounts) {
+        List<LitematicParser.BlockCount> result = new ArrayList<>(blockCounts.size());
+        for (Map.Entry<String, Integer> entry : blockCounts.entrySet()) {
+            result.add(new LitematicParser.BlockCount(entry.getKey(), entry.getValue()));
+        }
+        result.sort((a, b) -> Integer.compare(b.count, a.count));
+        return result;
+    }
+
+    private static void normalize(SchematicVolume volume, List<Region> regions) {
+        if (regions.isEmpty()) return;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        for (Region region : regions) {
+            minX = Math.min(minX, region.minX);
+            minY = Math.min(minY, region.minY);
+            minZ = Math.min(minZ, region.minZ);
+        }
+        volume.translate(-minX, -minY, -minZ);
+    }
+
+    static boolean isAir(String blockId) {
+        return blockId.equals("minecraft:air") || blockId.equals("minecraft:cave_air") || blockId.equals("minecraft:void_air");
+    }
+}
@@ -0,0 +1,231 @@
+package com.choculaterie.util;
+
+import com.choculaterie.config.DownloadSettings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class LitematicAnalysisCache {
+
+    private static final int MAGIC = 0x4C444143;
+    // Bumped when the entry layout or the preview block budget changes so older entries are re-analysed
+    private static final int FORMAT_VERSION = 4;
+    private static final String ENTRY_EXTENSION = ".bin";
+    private static LitematicAnalysisCache INSTANCE;
+
+    private final Path directory;
+
+    private LitematicAnalysisCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public static synchronized LitematicAnalysisCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LitematicAnalysisCache(DownloadSettings.getInstance().getCacheDirectory("analysis-cache"));
+        }
+        return INSTANCE;
+    }
+
+    public LitematicAnalysis load(File litematicFile) {
+        if (!isEnabled()) return null;
+        String key = cacheKey(litematicFile);
+        Path entry = entryPath(key);
+        if (!Files.isRegularFile(entry)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(entry))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+            if (!key.equals(in.readUTF())) return null;
+            String storedHash = in.readUTF();
+            if (DownloadSettings.getInstance().isAnalysisCacheVerifyHash()
+                    && !storedHash.equals(contentHash(litematicFile))) {
+                Files.deleteIfExists(entry);
+                return null;
+            }
+
+            LitematicAnalysis analysis = readAnalysis(in);
+            DiskCacheTrimmer.touch(entry);
+            return analysis;
+        } catch (Exception e) {
+            System.err.println("[AnalysisCache] Dropping unreadable entry for " + litematicFile.getName() + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    public void store(File litematicFile, LitematicAnalysis analysis) {
+        if (!isEnabled()) return;
+        String key = cacheKey(litematicFile);
+        try {
+            Files.createDirectories(directory);
+            String hash = DownloadSettings.getInstance().isAnalysisCacheVerifyHash() ? contentHash(litematicFile) : "";
+
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeUTF(hash);
+                writeAnalysis(out, analysis);
+            }
+            try {
+                Files.move(temp, entryPath(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entryPath(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+            evict();
+        } catch (IOException e) {
+            System.err.println("[AnalysisCache] Failed to store analysis for " + litematicFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isEnabled() {
+        return DownloadSettings.getInstance().getAnalysisCacheMaxMB() > 0;
+    }
+
+    private static String cacheKey(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(sha1(key) + ENTRY_EXTENSION);
+    }
+
+    private void evict() {
+        long budget = DownloadSettings.getInstance().getAnalysisCacheMaxMB() * 1024L * 1024L;
+        DiskCacheTrimmer.trim(directory, "*" + ENTRY_EXTENSION, budget);
+    }
+
+    private static void writeAnalysis(DataOutputStream out, LitematicAnalysis analysis) throws IOException {
+        out.writeBoolean(analysis.isPositionsTruncated());
+
+        List<LitematicParser.BlockCount> counts = analysis.getBlockCounts();
+        out.writeInt(counts.size());
+        for (LitematicParser.BlockCount count : counts) {
+            out.writeUTF(count.blockId);
+            out.writeInt(count.count);
+        }
+
+        List<LitematicAnalysis.Region> regions = analysis.getRegions();
+        out.writeInt(regions.size());
+        for (LitematicAnalysis.Region region : regions) {
+            out.writeUTF(region.name);
+            out.writeInt(region.minX);
+            out.writeInt(region.minY);
+            out.writeInt(region.minZ);
+            out.writeInt(region.sizeX);
+            out.writeInt(region.sizeY);
+            out.writeInt(region.sizeZ);
+            out.writeInt(region.paletteSize);
+            out.writeLong(region.nonAirBlocks);
+        }
+
+        // The volume is already column-wise against a palette of distinct states, which gzip packs tightly
+        SchematicVolume volume = analysis.getVolume();
+        out.writeInt(volume.getPaletteSize());
+        for (int p = 0; p < volume.getPaletteSize(); p++) {
+            Map<String, String> properties = volume.getProperties(p);
+            out.writeUTF(volume.getBlockId(p));
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                out.writeUTF(property.getKey());
+                out.writeUTF(property.getValue());
+            }
+        }
+
+        int count = volume.size();
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) out.writeChar(volume.getPaletteIndex(i));
+        for (int i = 0; i < count; i++) out.writeInt(volume.getX(i));
+        for (int i = 0; i < count; i++) out.writeInt(volume.getY(i));
+        for (int i = 0; i < count; i++) out.writeInt(volume.getZ(i));
+    }
+
+    private static LitematicAnalysis readAnalysis(DataInputStream in) throws IOException {
+        boolean truncated = in.readBoolean();
+
+        int countSize = in.readInt();
+        List<LitematicParser.BlockCount> counts = new ArrayList<>(countSize);
+        for (int i = 0; i < countSize; i++) {
+            counts.add(new LitematicParser.BlockCount(in.readUTF(), in.readInt()));
+        }
+
+        int regionSize = in.readInt();
+        List<LitematicAnalysis.Region> regions = new ArrayList<>(regionSize);
+        for (int i = 0; i < regionSize; i++) {
+            regions.add(new LitematicAnalysis.Region(in.readUTF(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong()));
+        }
+
+        int paletteSize = in.readInt();
+        if (paletteSize < 0 || paletteSize > SchematicVolume.MAX_PALETTE_SIZE) throw new IOException("Corrupt palette size " + paletteSize);
+        List<String> paletteIds = new ArrayList<>(paletteSize);
+        List<Map<String, String>> paletteProperties = new ArrayList<>(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            paletteIds.add(in.readUTF());
+            int propertyCount = in.readInt();
+            Map<String, String> properties = propertyCount == 0 ? Collections.emptyMap() : new HashMap<>();
+            for (int p = 0; p < propertyCount; p++) {
+                properties.put(in.readUTF(), in.readUTF());
+            }
+            paletteProperties.add(properties);
+        }
+
+        int positionCount = in.readInt();
+        if (positionCount < 0 || positionCount > LitematicParser.MAX_PREVIEW_BLOCKS) throw new IOException("Corrupt block count " + positionCount);
+        SchematicVolume volume = new SchematicVolume(positionCount);
+        int[] remap = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            remap[i] = volume.addPaletteEntry(paletteIds.get(i), paletteProperties.get(i));
+        }
+        char[] indices = new char[positionCount];
+        int[] xs = new int[positionCount];
+        int[] ys = new int[positionCount];
+        int[] zs = new int[positionCount];
+        for (int i = 0; i < positionCount; i++) indices[i] = in.readChar();
+        for (int i = 0; i < positionCount; i++) xs[i] = in.readInt();
+        for (int i = 0; i < positionCount; i++) ys[i] = in.readInt();
+        for (int i = 0; i < positionCount; i++) zs[i] = in.readInt();
+
+        for (int i = 0; i < positionCount; i++) {
+            int index = indices[i];
+            if (index >= paletteSize) throw new IOException("Corrupt palette index " + index);
+            volume.add(xs[i], ys[i], zs[i], remap[index]);
+        }
+
+        return new LitematicAnalysis(counts, volume, regions, truncated);
+    }
+
+    private static String contentHash(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
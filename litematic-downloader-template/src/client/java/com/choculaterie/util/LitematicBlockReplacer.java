@@ -1,75 +1,145 @@
 package com.choculaterie.util;
 
-import net.minecraft.nbt.*;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
 
 public class LitematicBlockReplacer {
 
     public static boolean replaceBlock(File litematicFile, String oldBlockId, String newBlockId) {
-        try (FileInputStream fis = new FileInputStream(litematicFile)) {
-            CompoundTag root = NbtIo.readCompressed(fis, NbtAccounter.unlimitedHeap());
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(litematicFile.getAbsoluteFile().getParentFile().toPath(), litematicFile.getName(), ".tmp");
+
+            boolean wasReplaced;
+            try (DataInputStream in = NbtStreamReader.openCompressed(litematicFile);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         new GZIPOutputStream(new FileOutputStream(tempFile.toFile()), 64 * 1024)))) {
+                wasReplaced = new Rewriter(in, out, oldBlockId, newBlockId).copyRoot();
+            }
 
-            if (!root.contains("Regions")) {
+            if (!wasReplaced) {
                 return false;
             }
 
-            CompoundTag regions = root.getCompound("Regions").orElse(new CompoundTag());
-            boolean wasReplaced = false;
-
-            for (String regionName : regions.keySet()) {
-                CompoundTag region = regions.getCompound(regionName).orElse(new CompoundTag());
+            try {
+                Files.move(tempFile, litematicFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, litematicFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+            LocalSchematicIndex.getInstance().fileChanged(litematicFile.toPath());
+            return true;
 
-                if (!region.contains("BlockStatePalette")) {
-                    continue;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
                 }
+            }
+        }
+    }
 
-                ListTag palette = region.getList("BlockStatePalette").orElse(new ListTag());
-
-                for (int i = 0; i < palette.size(); i++) {
-                    CompoundTag blockState = palette.getCompound(i).orElse(new CompoundTag());
-                    if (blockState.contains("Name")) {
-                        String blockName = blockState.getString("Name").orElse("");
-                        if (blockName.equals(oldBlockId)) {
-                            CompoundTag newBlockState = new CompoundTag();
-                            newBlockState.putString("Name", newBlockId);
-
-                            if (blockState.contains("Properties")) {
-                                CompoundTag properties = blockState.getCompound("Properties").orElse(new CompoundTag());
-                                newBlockState.put("Properties", properties);
-                            }
+    private static class Rewriter {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final String oldBlockId;
+        private final String newBlockId;
+        private boolean replaced = false;
+
+        Rewriter(DataInputStream in, DataOutputStream out, String oldBlockId, String newBlockId) {
+            this.in = in;
+            this.out = out;
+            this.oldBlockId = oldBlockId;
+            this.newBlockId = newBlockId;
+        }
 
-                            palette.set(i, newBlockState);
-                            wasReplaced = true;
-                        }
-                    }
+        boolean copyRoot() throws IOException {
+            byte type = in.readByte();
+            out.writeByte(type);
+            if (type != NbtStreamReader.TAG_COMPOUND) return false;
+            out.writeUTF(in.readUTF());
+
+            byte entryType;
+            while ((entryType = readEntryHeader()) != NbtStreamReader.TAG_END) {
+                String name = copyName();
+                if (entryType == NbtStreamReader.TAG_COMPOUND && "Regions".equals(name)) {
+                    copyRegions();
+                } else {
+                    NbtStreamReader.copyValue(in, out, entryType);
                 }
             }
+            return replaced;
+        }
 
-            if (wasReplaced) {
-                File backupFile = new File(litematicFile.getParent(), litematicFile.getName() + ".backup");
-                if (backupFile.exists()) {
-                    backupFile.delete();
+        private void copyRegions() throws IOException {
+            byte entryType;
+            while ((entryType = readEntryHeader()) != NbtStreamReader.TAG_END) {
+                copyName();
+                if (entryType == NbtStreamReader.TAG_COMPOUND) {
+                    copyRegion();
+                } else {
+                    NbtStreamReader.copyValue(in, out, entryType);
                 }
-                litematicFile.renameTo(backupFile);
+            }
+        }
 
-                try (FileOutputStream fos = new FileOutputStream(litematicFile)) {
-                    NbtIo.writeCompressed(root, fos);
+        private void copyRegion() throws IOException {
+            byte entryType;
+            while ((entryType = readEntryHeader()) != NbtStreamReader.TAG_END) {
+                String name = copyName();
+                if (entryType == NbtStreamReader.TAG_LIST && "BlockStatePalette".equals(name)) {
+                    copyPalette();
+                } else {
+                    NbtStreamReader.copyValue(in, out, entryType);
                 }
+            }
+        }
 
-                backupFile.delete();
-                return true;
+        private void copyPalette() throws IOException {
+            byte elementType = in.readByte();
+            int length = in.readInt();
+            out.writeByte(elementType);
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                if (elementType != NbtStreamReader.TAG_COMPOUND) {
+                    NbtStreamReader.copyValue(in, out, elementType);
+                    continue;
+                }
+                byte entryType;
+                while ((entryType = readEntryHeader()) != NbtStreamReader.TAG_END) {
+                    String name = copyName();
+                    if (entryType == NbtStreamReader.TAG_STRING && "Name".equals(name)) {
+                        String blockName = in.readUTF();
+                        if (blockName.equals(oldBlockId)) {
+                            blockName = newBlockId;
+                            replaced = true;
+                        }
+                        out.writeUTF(blockName);
+                    } else {
+                        NbtStreamReader.copyValue(in, out, entryType);
+                    }
+                }
             }
+        }
 
-            return false;
+        private byte readEntryHeader() throws IOException {
+            byte type = in.readByte();
+            out.writeByte(type);
+            return type;
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+        private String copyName() throws IOException {
+            String name = in.readUTF();
+            out.writeUTF(name);
+            return name;
         }
     }
 }
@@ -0,0 +1,137 @@
+package com.choculaterie.util;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Function;
+
+public class LitematicMetadata {
+    // Litematica writes 140px thumbnails; anything far past that is a corrupt length, not an image
+    public static final int MAX_PREVIEW_EDGE = 2048;
+
+    public String name;
+    public String author;
+    public String description;
+    public final int[] enclosingSize = new int[3];
+    public long totalBlocks;
+    public long totalVolume;
+    public int regionCount;
+    public long timeCreated;
+    public long timeModified;
+
+    public int getMaxDimension() {
+        return Math.max(Math.abs(enclosingSize[0]), Math.max(Math.abs(enclosingSize[1]), Math.abs(enclosingSize[2])));
+    }
+
+    // Reads only the Metadata compound, which litematica writes before the regions, and stops there
+    public static LitematicMetadata read(File file) throws IOException {
+        LitematicMetadata metadata = new LitematicMetadata();
+        boolean[] found = {false};
+        readMetadataCompound(file, reader -> metadata.visitor(() -> {
+            found[0] = true;
+            reader.halt();
+        }));
+        if (!found[0]) throw new IOException("No Metadata compound");
+        return metadata;
+    }
+
+    // The square ARGB thumbnail litematica stores in the metadata, or null if the file has none
+    public static int[] readPreviewImage(File file) throws IOException {
+        int[][] preview = {null};
+        readMetadataCompound(file, reader -> new NbtStreamReader.Visitor() {
+            @Override
+            public boolean accept(byte type, String name) {
+                return type == NbtStreamReader.TAG_INT_ARRAY && "PreviewImageData".equals(name);
+            }
+
+            @Override
+            public int maxArrayLength(String name) {
+                return MAX_PREVIEW_EDGE * MAX_PREVIEW_EDGE;
+            }
+
+            @Override
+            public void visitIntArray(String name, int[] value) {
+                preview[0] = value;
+                reader.halt();
+            }
+
+            @Override
+            public void visitEnd() {
+                reader.halt();
+            }
+        });
+        return preview[0];
+    }
+
+    private static void readMetadataCompound(File file, Function<NbtStreamReader, NbtStreamReader.Visitor> fields)
+            throws IOException {
+        try (DataInputStream in = NbtStreamReader.openCompressed(file)) {
+            NbtStreamReader reader = new NbtStreamReader(in);
+            NbtStreamReader.Visitor metadataVisitor = fields.apply(reader);
+            reader.readRoot(new NbtStreamReader.Visitor() {
+                @Override
+                public boolean accept(byte type, String name) {
+                    return type == NbtStreamReader.TAG_COMPOUND && "Metadata".equals(name);
+                }
+
+                @Override
+                public NbtStreamReader.Visitor enterCompound(String name) {
+                    return metadataVisitor;
+                }
+            });
+        }
+    }
+
+    NbtStreamReader.Visitor visitor() {
+        return visitor(null);
+    }
+
+    NbtStreamReader.Visitor visitor(Runnable onEnd) {
+        return new NbtStreamReader.Visitor() {
+            @Override
+            public boolean accept(byte type, String name) {
+                return switch (name) {
+                    case "Name", "Author", "Description" -> type == NbtStreamReader.TAG_STRING;
+                    case "EnclosingSize" -> type == NbtStreamReader.TAG_COMPOUND;
+                    case "TotalBlocks", "TotalVolume", "RegionCount", "TimeCreated", "TimeModified" -> true;
+                    default -> false;
+                };
+            }
+
+            @Override
+            public NbtStreamReader.Visitor enterCompound(String name) {
+                return new LitematicAnalysis.VectorVisitor(enclosingSize);
+            }
+
+            @Override
+            public void visitString(String key, String value) {
+                switch (key) {
+                    case "Name" -> name = value;
+                    case "Author" -> author = value;
+                    case "Description" -> description = value;
+                }
+            }
+
+            @Override
+            public void visitInt(String key, int value) {
+                visitLong(key, value);
+            }
+
+            @Override
+            public void visitLong(String key, long value) {
+                switch (key) {
+                    case "TotalBlocks" -> totalBlocks = value;
+                    case "TotalVolume" -> totalVolume = value;
+                    case "RegionCount" -> regionCount = (int) value;
+                    case "TimeCreated" -> timeCreated = value;
+                    case "TimeModified" -> timeModified = value;
+                }
+            }
+
+            @Override
+            public void visitEnd() {
+                if (onEnd != null) onEnd.run();
+            }
+        };
+    }
+}
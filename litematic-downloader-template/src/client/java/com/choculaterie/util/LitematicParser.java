@@ -1,14 +1,13 @@
 package com.choculaterie.util;
 
-import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.NbtIo;
-import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.NbtAccounter;
-
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 
 public class LitematicParser {
 
@@ -22,227 +21,115 @@ public class LitematicParser {
         }
     }
 
-    public static class BlockData {
-        public final int x, y, z;
-        public final String blockId;
-        public final Map<String, String> properties;
-
-        public BlockData(int x, int y, int z, String blockId, Map<String, String> properties) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.blockId = blockId;
-            this.properties = properties;
-        }
+    public static final int MAX_PREVIEW_BLOCKS = 2_000_000;
+    public static final long PARALLEL_MIN_BLOCKS = 1L << 20;
+    private static final long SLAB_MIN_BLOCKS = 1L << 18;
+
+    // Leaves one core for the render thread and one for the thread inflating the NBT stream
+    public static final ForkJoinPool DECODE_POOL = new ForkJoinPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 2),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Litematic-Decode-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            null, false);
+
+    public static boolean isParallelDecodingAvailable() {
+        return Runtime.getRuntime().availableProcessors() > 2;
     }
 
-    public static final int MAX_PREVIEW_BLOCKS = 80_000;
-
-    private static Map<String, String> parseProperties(CompoundTag blockState) {
-        if (!blockState.contains("Properties")) {
-            return Collections.emptyMap();
-        }
-        CompoundTag propsTag = blockState.getCompound("Properties").orElse(new CompoundTag());
-        Map<String, String> props = new HashMap<>();
-        for (String key : propsTag.keySet()) {
-            props.put(key, propsTag.getString(key).orElse(""));
-        }
-        return props;
+    public interface SlabSinks {
+        // Sink for the blocks of entries [from, to), called on the worker decoding that slab
+        PackedBlockStateDecoder.BlockSink open(long from, long to);
     }
 
-    public static List<BlockData> parseBlockPositions(File litematicFile) {
-        List<BlockData> positions = new ArrayList<>();
-
-        try (FileInputStream fis = new FileInputStream(litematicFile)) {
-            CompoundTag root = NbtIo.readCompressed(fis, NbtAccounter.unlimitedHeap());
-
-            if (!root.contains("Regions")) return Collections.emptyList();
-
-            CompoundTag regions = root.getCompound("Regions").orElse(new CompoundTag());
-
-            for (String regionName : regions.keySet()) {
-                if (positions.size() >= MAX_PREVIEW_BLOCKS) break;
-
-                CompoundTag region = regions.getCompound(regionName).orElse(new CompoundTag());
-                if (!region.contains("BlockStatePalette") || !region.contains("BlockStates")) continue;
-
-                ListTag palette = region.getList("BlockStatePalette").orElse(new ListTag());
-                Map<Integer, String> indexToBlockId = new HashMap<>();
-                Map<Integer, Map<String, String>> indexToProperties = new HashMap<>();
-                for (int i = 0; i < palette.size(); i++) {
-                    CompoundTag blockState = palette.getCompound(i).orElse(new CompoundTag());
-                    if (blockState.contains("Name")) {
-                        indexToBlockId.put(i, blockState.getString("Name").orElse("minecraft:air"));
-                        indexToProperties.put(i, parseProperties(blockState));
-                    }
-                }
-
-                CompoundTag sizeCompound = region.getCompound("Size").orElse(new CompoundTag());
-                int sizeX = Math.abs(sizeCompound.getInt("x").orElse(0));
-                int sizeY = Math.abs(sizeCompound.getInt("y").orElse(0));
-                int sizeZ = Math.abs(sizeCompound.getInt("z").orElse(0));
-                int totalBlocks = sizeX * sizeY * sizeZ;
-                if (totalBlocks == 0 || palette.isEmpty()) continue;
-
-                long[] blockStates = region.getLongArray("BlockStates").orElse(new long[0]);
-                if (blockStates.length == 0) continue;
-
-                int bitsPerBlock = Math.max(2, (int) Math.ceil(Math.log(palette.size()) / Math.log(2)));
-                long maxEntryValue = (1L << bitsPerBlock) - 1L;
-
-                for (int i = 0; i < totalBlocks && positions.size() < MAX_PREVIEW_BLOCKS; i++) {
-                    int bitIndex = i * bitsPerBlock;
-                    int arrayIndex = bitIndex / 64;
-                    int bitOffset = bitIndex % 64;
-
-                    if (arrayIndex >= blockStates.length) break;
+    // Counts every palette entry and, when sinks is given, hands each slab's blocks to its own sink
+    public static int[] decodeParallel(BlockStateStore blockStates, boolean[] paletteAir, long totalBlocks,
+                                       int layerSize, SlabSinks sinks) {
+        SlabDecodeTask task = new SlabDecodeTask(blockStates, paletteAir, 0, totalBlocks, layerSize, sinks);
+        return ForkJoinTask.getPool() == DECODE_POOL ? task.invoke() : DECODE_POOL.invoke(task);
+    }
 
-                    long value;
-                    if (bitOffset + bitsPerBlock <= 64) {
-                        value = (blockStates[arrayIndex] >> bitOffset) & maxEntryValue;
-                    } else {
-                        int bitsFromFirst = 64 - bitOffset;
-                        int bitsFromSecond = bitsPerBlock - bitsFromFirst;
-                        long firstPart = (blockStates[arrayIndex] >> bitOffset) & ((1L << bitsFromFirst) - 1L);
-                        long secondPart = (arrayIndex + 1 < blockStates.length)
-                                ? (blockStates[arrayIndex + 1] & ((1L << bitsFromSecond) - 1L))
-                                : 0;
-                        value = firstPart | (secondPart << bitsFromFirst);
-                    }
+    private static class SlabDecodeTask extends RecursiveTask<int[]> {
+        private final BlockStateStore blockStates;
+        private final boolean[] paletteAir;
+        private final long from;
+        private final long to;
+        private final int layerSize;
+        private final SlabSinks sinks;
+
+        SlabDecodeTask(BlockStateStore blockStates, boolean[] paletteAir, long from, long to, int layerSize,
+                       SlabSinks sinks) {
+            this.blockStates = blockStates;
+            this.paletteAir = paletteAir;
+            this.from = from;
+            this.to = to;
+            this.layerSize = layerSize;
+            this.sinks = sinks;
+        }
 
-                    int paletteIndex = (int) value;
-                    if (paletteIndex < 0 || paletteIndex >= indexToBlockId.size()) continue;
+        @Override
+        protected int[] compute() {
+            long count = to - from;
+            if (count <= SLAB_MIN_BLOCKS) {
+                return decodeSlab();
+            }
 
-                    String blockId = indexToBlockId.getOrDefault(paletteIndex, "minecraft:air");
-                    if (blockId.equals("minecraft:air") || blockId.equals("minecraft:cave_air") || blockId.equals("minecraft:void_air")) continue;
+            // Split on whole Y layers when a layer is small enough, otherwise anywhere in the packed array
+            long mid = from + count / 2;
+            if (layerSize > 0 && layerSize < count / 2) {
+                mid = mid - mid % layerSize;
+            }
+            SlabDecodeTask lower = new SlabDecodeTask(blockStates, paletteAir, from, mid, layerSize, sinks);
+            SlabDecodeTask upper = new SlabDecodeTask(blockStates, paletteAir, mid, to, layerSize, sinks);
+            upper.fork();
+            int[] counts = lower.compute();
+            int[] upperCounts = upper.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += upperCounts[i];
+            }
+            return counts;
+        }
 
-                    // Index order: y * sizeX * sizeZ + z * sizeX + x
-                    int bx = i % sizeX;
-                    int bz = (i / sizeX) % sizeZ;
-                    int by = i / (sizeX * sizeZ);
-                    positions.add(new BlockData(bx, by, bz, blockId,
-                            indexToProperties.getOrDefault(paletteIndex, Collections.emptyMap())));
+        private int[] decodeSlab() {
+            PackedBlockStateDecoder.BlockSink sink = sinks != null ? sinks.open(from, to) : null;
+            PackedBlockStateDecoder decoder = new PackedBlockStateDecoder(paletteAir, from, to - from, sink);
+            long[] chunk = new long[NbtStreamReader.LONG_CHUNK_SIZE];
+            long word = PackedBlockStateDecoder.firstWord(from, decoder.getBitsPerBlock());
+            BlockStateStore.Reader reader = blockStates.reader();
+            try {
+                while (!decoder.isDone()) {
+                    int read = reader.read(word, chunk, chunk.length);
+                    if (read <= 0) break;
+                    decoder.decode(chunk, 0, read);
+                    word += read;
                 }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+            return decoder.getPaletteCounts();
+        }
+    }
+
+    public static SchematicVolume parseBlockPositions(File litematicFile) {
+        try {
+            return LitematicAnalysis.analyze(litematicFile).getVolume();
         } catch (Exception e) {
             e.printStackTrace();
-            return Collections.emptyList();
+            return new SchematicVolume(0);
         }
-
-        return positions;
     }
 
     public static List<BlockCount> parseBlockCounts(File litematicFile) {
-        Map<String, Integer> blockCounts = new HashMap<>();
-
-        try (FileInputStream fis = new FileInputStream(litematicFile)) {
-
-            CompoundTag root = NbtIo.readCompressed(fis, NbtAccounter.unlimitedHeap());
-
-            if (!root.contains("Regions")) {
-                return Collections.emptyList();
-            }
-
-            CompoundTag regions = root.getCompound("Regions").orElse(new CompoundTag());
-
-            for (String regionName : regions.keySet()) {
-                CompoundTag region = regions.getCompound(regionName).orElse(new CompoundTag());
-
-                if (!region.contains("BlockStatePalette")) {
-                    continue;
-                }
-
-                ListTag palette = region.getList("BlockStatePalette").orElse(new ListTag());
-                Map<Integer, String> indexToBlockId = new HashMap<>();
-
-                for (int i = 0; i < palette.size(); i++) {
-                    CompoundTag blockState = palette.getCompound(i).orElse(new CompoundTag());
-                    if (blockState.contains("Name")) {
-                        String blockId = blockState.getString("Name").orElse("minecraft:air");
-                        indexToBlockId.put(i, blockId);
-                    }
-                }
-
-                if (!region.contains("BlockStates")) {
-                    continue;
-                }
-
-                long[] blockStates = region.getLongArray("BlockStates").orElse(new long[0]);
-                if (blockStates.length == 0) {
-                    continue;
-                }
-
-                CompoundTag sizeCompound = region.getCompound("Size").orElse(new CompoundTag());
-                int sizeX = sizeCompound.getInt("x").orElse(0);
-                int sizeY = sizeCompound.getInt("y").orElse(0);
-                int sizeZ = sizeCompound.getInt("z").orElse(0);
-
-                int absSizeX = Math.abs(sizeX);
-                int absSizeY = Math.abs(sizeY);
-                int absSizeZ = Math.abs(sizeZ);
-                int totalBlocks = absSizeX * absSizeY * absSizeZ;
-
-                if (totalBlocks == 0) {
-                    continue;
-                }
-
-                int paletteSize = palette.size();
-                if (paletteSize == 0) {
-                    continue;
-                }
-
-                int bitsPerBlock = Math.max(2, (int) Math.ceil(Math.log(paletteSize) / Math.log(2)));
-
-                long maxEntryValue = (1L << bitsPerBlock) - 1L;
-
-                for (int i = 0; i < totalBlocks; i++) {
-                    int bitIndex = i * bitsPerBlock;
-                    int arrayIndex = bitIndex / 64;
-                    int bitOffset = bitIndex % 64;
-
-                    if (arrayIndex >= blockStates.length) {
-                        break;
-                    }
-
-                    long value;
-                    if (bitOffset + bitsPerBlock <= 64) {
-                        value = (blockStates[arrayIndex] >> bitOffset) & maxEntryValue;
-                    } else {
-                        int bitsFromFirst = 64 - bitOffset;
-                        int bitsFromSecond = bitsPerBlock - bitsFromFirst;
-                        long firstPart = (blockStates[arrayIndex] >> bitOffset) & ((1L << bitsFromFirst) - 1L);
-                        long secondPart = (arrayIndex + 1 < blockStates.length)
-                            ? (blockStates[arrayIndex + 1] & ((1L << bitsFromSecond) - 1L))
-                            : 0;
-                        value = firstPart | (secondPart << bitsFromFirst);
-                    }
-
-                    int paletteIndex = (int) value;
-                    if (paletteIndex < 0 || paletteIndex >= indexToBlockId.size()) {
-                        continue;
-                    }
-
-                    String blockId = indexToBlockId.getOrDefault(paletteIndex, "minecraft:air");
-
-                    if (!blockId.equals("minecraft:air") && !blockId.equals("minecraft:cave_air") && !blockId.equals("minecraft:void_air")) {
-                        blockCounts.put(blockId, blockCounts.getOrDefault(blockId, 0) + 1);
-                    }
-                }
-            }
-
+        try {
+            return LitematicAnalysis.analyze(litematicFile).getBlockCounts();
         } catch (Exception e) {
             e.printStackTrace();
             return Collections.emptyList();
         }
-
-        List<BlockCount> result = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : blockCounts.entrySet()) {
-            result.add(new BlockCount(entry.getKey(), entry.getValue()));
-        }
-
-        result.sort((a, b) -> Integer.compare(b.count, a.count));
-
-        return result;
     }
 
     public static String getSimpleBlockName(String blockId) {
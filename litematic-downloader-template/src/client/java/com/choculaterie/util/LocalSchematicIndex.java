@@ -0,0 +1,592 @@
+package com.choculaterie.util;
+
+import com.choculaterie.config.DownloadSettings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class LocalSchematicIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final long SAVE_INTERVAL_MS = 15_000;
+    private static final int MAX_DESCRIPTION_LENGTH = 4096;
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+    private static final Pattern COMPARISON = Pattern.compile("([a-z0-9_:.\\-]+)(>=|<=|!=|>|<|=)(\\d+)");
+    private static final Pattern FIELD = Pattern.compile("([a-z]+):(.+)");
+    private static LocalSchematicIndex INSTANCE;
+
+    public enum State {
+        PENDING, INDEXED, FAILED
+    }
+
+    public static class Entry {
+        public final String relativePath;
+        public final String fileName;
+        public final boolean directory;
+        public final long size;
+        public final long lastModified;
+        public final State state;
+        public final LitematicMetadata metadata;
+        // Sorted ids into the index material table, with parallel counts
+        final int[] materialIds;
+        final int[] materialCounts;
+        final String searchText;
+
+        Entry(String relativePath, boolean directory, long size, long lastModified, State state,
+              LitematicMetadata metadata, int[] materialIds, int[] materialCounts) {
+            this.relativePath = relativePath;
+            this.fileName = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.state = state;
+            this.metadata = metadata;
+            this.materialIds = materialIds;
+            this.materialCounts = materialCounts;
+
+            StringBuilder text = new StringBuilder(fileName);
+            if (metadata != null) {
+                if (metadata.name != null) text.append('\n').append(metadata.name);
+                if (metadata.author != null) text.append('\n').append(metadata.author);
+                if (metadata.description != null) text.append('\n').append(metadata.description);
+            }
+            this.searchText = text.toString().toLowerCase(Locale.ROOT);
+        }
+
+        int getMaterialCount(int materialId) {
+            int index = Arrays.binarySearch(materialIds, materialId);
+            return index >= 0 ? materialCounts[index] : 0;
+        }
+
+        boolean isLitematic() {
+            return !directory && fileName.toLowerCase(Locale.ROOT).endsWith(".litematic");
+        }
+    }
+
+    private final Path cacheDirectory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<String> materials = new ArrayList<>();
+    private final Map<String, Integer> materialIndex = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private Path root;
+    private long rootGeneration = 0;
+    private boolean scanRequested = false;
+    private Thread worker;
+    private volatile boolean scanning = false;
+    private volatile int pendingCount = 0;
+
+    private LocalSchematicIndex(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    public static synchronized LocalSchematicIndex getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LocalSchematicIndex(DownloadSettings.getInstance().getCacheDirectory("local-index"));
+        }
+        return INSTANCE;
+    }
+
+    public synchronized void open(Path directory) {
+        Path normalized = directory.toAbsolutePath().normalize();
+        if (!normalized.equals(root)) {
+            root = normalized;
+            rootGeneration++;
+            entries.clear();
+            synchronized (materials) {
+                materials.clear();
+                materialIndex.clear();
+            }
+            changed();
+        }
+        requestScan();
+    }
+
+    public synchronized void requestScan() {
+        if (root == null) return;
+        scanRequested = true;
+        if (worker == null) {
+            worker = new Thread(this::runWorker, "Litematic-Indexer");
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+        }
+        notifyAll();
+    }
+
+    // Rescans after a file under the indexed folder was written, moved or deleted outside the walk
+    public void fileChanged(Path path) {
+        Path base = getRoot();
+        if (base != null && path.toAbsolutePath().normalize().startsWith(base)) {
+            requestScan();
+        }
+    }
+
+    public synchronized Path getRoot() {
+        return root;
+    }
+
+    public boolean isScanning() {
+        return scanning;
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public Entry get(File file) {
+        Path base = getRoot();
+        if (base == null) return null;
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(base) || path.equals(base)) return null;
+        return entries.get(relativize(base, path));
+    }
+
+    public File resolve(Entry entry) {
+        Path base = getRoot();
+        return base != null ? base.resolve(entry.relativePath).toFile() : new File(entry.relativePath);
+    }
+
+    public List<String> getMaterials(Entry entry) {
+        List<String> names = new ArrayList<>(entry.materialIds.length);
+        synchronized (materials) {
+            for (int id : entry.materialIds) names.add(materials.get(id));
+        }
+        return names;
+    }
+
+    // Whitespace separated terms, all of which must match:
+    //   text            file name, schematic name, author or description contains text
+    //   author:foo      also name:, desc:, path:, file:
+    //   observer>500    material count, ids without a namespace are minecraft:
+    //   size<64         also width, height, length, blocks, volume, regions, mb
+    public List<Entry> search(String query) {
+        List<Predicate<Entry>> terms = parseQuery(query);
+        List<Entry> results = new ArrayList<>();
+        if (terms.isEmpty()) return results;
+
+        outer:
+        for (Entry entry : entries.values()) {
+            for (Predicate<Entry> term : terms) {
+                if (!term.test(entry)) continue outer;
+            }
+            results.add(entry);
+        }
+        return results;
+    }
+
+    private List<Predicate<Entry>> parseQuery(String query) {
+        List<Predicate<Entry>> terms = new ArrayList<>();
+        Matcher tokens = TOKEN.matcher(query.toLowerCase(Locale.ROOT));
+        while (tokens.find()) {
+            String token = tokens.group(1) != null ? tokens.group(1) : tokens.group(2);
+            if (token.isEmpty()) continue;
+            if (tokens.group(1) != null) {
+                terms.add(entry -> entry.searchText.contains(token));
+                continue;
+            }
+
+            Matcher comparison = COMPARISON.matcher(token);
+            if (comparison.matches()) {
+                terms.add(parseComparison(comparison.group(1), comparison.group(2), Long.parseLong(comparison.group(3))));
+                continue;
+            }
+
+            Matcher field = FIELD.matcher(token);
+            Predicate<Entry> fieldTerm = field.matches() ? parseField(field.group(1), field.group(2)) : null;
+            terms.add(fieldTerm != null ? fieldTerm : entry -> entry.searchText.contains(token));
+        }
+        return terms;
+    }
+
+    private Predicate<Entry> parseField(String key, String value) {
+        return switch (key) {
+            case "author" -> entry -> entry.metadata != null && contains(entry.metadata.author, value);
+            case "name" -> entry -> contains(entry.fileName, value)
+                    || (entry.metadata != null && contains(entry.metadata.name, value));
+            case "desc", "description" -> entry -> entry.metadata != null && contains(entry.metadata.description, value);
+            case "path" -> entry -> contains(entry.relativePath, value);
+            case "file" -> entry -> contains(entry.fileName, value);
+            default -> null;
+        };
+    }
+
+    private Predicate<Entry> parseComparison(String key, String operator, long value) {
+        ToLongFunction<Entry> extractor = switch (key) {
+            case "size" -> entry -> entry.metadata.getMaxDimension();
+            case "width" -> entry -> Math.abs(entry.metadata.enclosingSize[0]);
+            case "height" -> entry -> Math.abs(entry.metadata.enclosingSize[1]);
+            case "length" -> entry -> Math.abs(entry.metadata.enclosingSize[2]);
+            case "blocks" -> entry -> entry.metadata.totalBlocks;
+            case "volume" -> entry -> entry.metadata.totalVolume;
+            case "regions" -> entry -> entry.metadata.regionCount;
+            case "mb" -> entry -> entry.size / (1024 * 1024);
+            default -> null;
+        };
+        if (extractor == null) {
+            Integer materialId = lookupMaterial(key.contains(":") ? key : "minecraft:" + key);
+            // A material no indexed file contains still matches "=0" and "<n" style queries
+            extractor = materialId != null ? entry -> entry.getMaterialCount(materialId) : entry -> 0;
+        }
+
+        ToLongFunction<Entry> field = extractor;
+        boolean needsMetadata = !"mb".equals(key);
+        return entry -> {
+            if (entry.directory || (needsMetadata && entry.metadata == null)) return false;
+            long actual = field.applyAsLong(entry);
+            return switch (operator) {
+                case ">" -> actual > value;
+                case "<" -> actual < value;
+                case ">=" -> actual >= value;
+                case "<=" -> actual <= value;
+                case "!=" -> actual != value;
+                default -> actual == value;
+            };
+        };
+    }
+
+    private static boolean contains(String text, String value) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(value);
+    }
+
+    private Integer lookupMaterial(String id) {
+        synchronized (materials) {
+            return materialIndex.get(id);
+        }
+    }
+
+    private int materialId(String id) {
+        synchronized (materials) {
+            Integer existing = materialIndex.get(id);
+            if (existing != null) return existing;
+            materials.add(id);
+            materialIndex.put(id, materials.size() - 1);
+            return materials.size() - 1;
+        }
+    }
+
+    private void runWorker() {
+        Path loadedRoot = null;
+        while (true) {
+            Path scanRoot;
+            long generation;
+            synchronized (this) {
+                while (!scanRequested) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                scanRequested = false;
+                scanRoot = root;
+                generation = rootGeneration;
+            }
+
+            scanning = true;
+            try {
+                if (!scanRoot.equals(loadedRoot)) {
+                    load(scanRoot, generation);
+                    loadedRoot = scanRoot;
+                }
+                scan(scanRoot, generation);
+            } catch (Exception e) {
+                System.err.println("[Index] Scan of " + scanRoot + " failed: " + e.getMessage());
+            } finally {
+                scanning = false;
+                pendingCount = 0;
+                changed();
+            }
+        }
+    }
+
+    private synchronized boolean isCurrent(long generation) {
+        return generation == rootGeneration;
+    }
+
+    private void scan(Path scanRoot, long generation) throws IOException {
+        if (!Files.isDirectory(scanRoot)) return;
+
+        Set<String> seen = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        Files.walkFileTree(scanRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(scanRoot)) return FileVisitResult.CONTINUE;
+                if (dir.getFileName().toString().equals(".trash")) return FileVisitResult.SKIP_SUBTREE;
+                String relative = relativize(scanRoot, dir);
+                seen.add(relative);
+                Entry existing = entries.get(relative);
+                if (existing == null || !existing.directory) {
+                    entries.put(relative, new Entry(relative, true, 0, attrs.lastModifiedTime().toMillis(),
+                            State.INDEXED, null, new int[0], new int[0]));
+                }
+                return isCurrent(generation) ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // Stop putting entries of the old folder into the new one's table after a root switch
+                if (!isCurrent(generation)) return FileVisitResult.TERMINATE;
+                String name = file.getFileName().toString();
+                // Partial downloads and other hidden files are not part of the library
+                if (name.startsWith(".")) return FileVisitResult.CONTINUE;
+                String relative = relativize(scanRoot, file);
+                seen.add(relative);
+
+                long size = attrs.size();
+                long modified = attrs.lastModifiedTime().toMillis();
+                Entry existing = entries.get(relative);
+                if (existing == null || existing.directory || existing.size != size || existing.lastModified != modified) {
+                    existing = new Entry(relative, false, size, modified, State.PENDING, null, new int[0], new int[0]);
+                    entries.put(relative, existing);
+                }
+                if (existing.state == State.PENDING && existing.isLitematic()) {
+                    pending.add(relative);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (!isCurrent(generation)) return;
+
+        entries.keySet().retainAll(seen);
+        pendingCount = pending.size();
+        changed();
+
+        long lastSave = System.currentTimeMillis();
+        boolean dirty = true;
+        for (String relative : pending) {
+            synchronized (this) {
+                // A newer request restarts from a fresh walk, which keeps what was already analyzed
+                if (scanRequested || generation != rootGeneration) break;
+            }
+            Entry current = entries.get(relative);
+            if (current == null || current.state != State.PENDING) continue;
+
+            entries.put(relative, analyze(scanRoot, current));
+            pendingCount--;
+            changed();
+            dirty = true;
+
+            if (System.currentTimeMillis() - lastSave > SAVE_INTERVAL_MS) {
+                save(scanRoot, generation);
+                lastSave = System.currentTimeMillis();
+                dirty = false;
+            }
+        }
+        if (dirty) save(scanRoot, generation);
+    }
+
+    private Entry analyze(Path scanRoot, Entry entry) {
+        File file = scanRoot.resolve(entry.relativePath).toFile();
+        try {
+            LitematicMetadata metadata = new LitematicMetadata();
+            LitematicAnalysis analysis = LitematicAnalysis.analyze(file, false, metadata.visitor());
+            if (metadata.regionCount == 0) metadata.regionCount = analysis.getRegions().size();
+            if (metadata.totalBlocks == 0) metadata.totalBlocks = analysis.getTotalBlocks();
+            if (metadata.getMaxDimension() == 0) {
+                System.arraycopy(analysis.getEnclosingSize(), 0, metadata.enclosingSize, 0, 3);
+            }
+            if (metadata.description != null && metadata.description.length() > MAX_DESCRIPTION_LENGTH) {
+                metadata.description = metadata.description.substring(0, MAX_DESCRIPTION_LENGTH);
+            }
+
+            List<LitematicParser.BlockCount> counts = analysis.getBlockCounts();
+            int[][] pairs = new int[counts.size()][];
+            for (int i = 0; i < counts.size(); i++) {
+                pairs[i] = new int[]{materialId(counts.get(i).blockId), counts.get(i).count};
+            }
+            Arrays.sort(pairs, Comparator.comparingInt(pair -> pair[0]));
+            int[] ids = new int[pairs.length];
+            int[] values = new int[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                ids[i] = pairs[i][0];
+                values[i] = pairs[i][1];
+            }
+            return new Entry(entry.relativePath, false, entry.size, entry.lastModified, State.INDEXED, metadata, ids, values);
+        } catch (Exception e) {
+            System.err.println("[Index] Could not index " + entry.relativePath + ": " + e.getMessage());
+            return new Entry(entry.relativePath, false, entry.size, entry.lastModified, State.FAILED, null, new int[0], new int[0]);
+        }
+    }
+
+    private void changed() {
+        version.incrementAndGet();
+    }
+
+    private static String relativize(Path base, Path path) {
+        return base.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private Path indexFile(Path scanRoot) {
+        return cacheDirectory.resolve("index-" + shortHash(scanRoot.toString()) + ".bin");
+    }
+
+    private void load(Path scanRoot, long generation) {
+        Path file = indexFile(scanRoot);
+        if (!Files.isRegularFile(file)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(scanRoot.toString())) return;
+
+            int materialCount = in.readInt();
+            int[] remap = new int[materialCount];
+            for (int i = 0; i < materialCount; i++) {
+                remap[i] = materialId(in.readUTF());
+            }
+
+            int entryCount = in.readInt();
+            Map<String, Entry> loaded = new HashMap<>(entryCount * 2);
+            for (int i = 0; i < entryCount; i++) {
+                String relative = in.readUTF();
+                boolean directory = in.readBoolean();
+                long size = in.readLong();
+                long modified = in.readLong();
+                State state = State.values()[in.readByte()];
+                LitematicMetadata metadata = null;
+                int[] ids = new int[0];
+                int[] counts = new int[0];
+                if (state == State.INDEXED && !directory) {
+                    metadata = readMetadata(in);
+                    int materialEntries = in.readInt();
+                    int[][] pairs = new int[materialEntries][];
+                    for (int m = 0; m < materialEntries; m++) {
+                        pairs[m] = new int[]{remap[in.readInt()], in.readInt()};
+                    }
+                    Arrays.sort(pairs, Comparator.comparingInt(pair -> pair[0]));
+                    ids = new int[materialEntries];
+                    counts = new int[materialEntries];
+                    for (int m = 0; m < materialEntries; m++) {
+                        ids[m] = pairs[m][0];
+                        counts[m] = pairs[m][1];
+                    }
+                }
+                loaded.put(relative, new Entry(relative, directory, size, modified, state, metadata, ids, counts));
+            }
+
+            if (isCurrent(generation)) {
+                entries.putAll(loaded);
+                changed();
+            }
+        } catch (Exception e) {
+            System.err.println("[Index] Discarding unreadable index: " + e.getMessage());
+        }
+    }
+
+    private void save(Path scanRoot, long generation) {
+        if (!isCurrent(generation)) return;
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path temp = Files.createTempFile(cacheDirectory, "index", ".tmp");
+            try {
+                List<Entry> snapshot = new ArrayList<>(entries.values());
+                List<String> materialSnapshot;
+                synchronized (materials) {
+                    materialSnapshot = new ArrayList<>(materials);
+                }
+
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(scanRoot.toString());
+                    out.writeInt(materialSnapshot.size());
+                    for (String material : materialSnapshot) out.writeUTF(material);
+
+                    out.writeInt(snapshot.size());
+                    for (Entry entry : snapshot) {
+                        out.writeUTF(entry.relativePath);
+                        out.writeBoolean(entry.directory);
+                        out.writeLong(entry.size);
+                        out.writeLong(entry.lastModified);
+                        out.writeByte(entry.state.ordinal());
+                        if (entry.state == State.INDEXED && !entry.directory) {
+                            writeMetadata(out, entry.metadata);
+                            out.writeInt(entry.materialIds.length);
+                            for (int m = 0; m < entry.materialIds.length; m++) {
+                                out.writeInt(entry.materialIds[m]);
+                                out.writeInt(entry.materialCounts[m]);
+                            }
+                        }
+                    }
+                }
+                try {
+                    Files.move(temp, indexFile(scanRoot), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, indexFile(scanRoot), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("[Index] Failed to save index: " + e.getMessage());
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, LitematicMetadata metadata) throws IOException {
+        writeNullable(out, metadata.name);
+        writeNullable(out, metadata.author);
+        writeNullable(out, metadata.description);
+        for (int dimension : metadata.enclosingSize) out.writeInt(dimension);
+        out.writeLong(metadata.totalBlocks);
+        out.writeLong(metadata.totalVolume);
+        out.writeInt(metadata.regionCount);
+        out.writeLong(metadata.timeCreated);
+        out.writeLong(metadata.timeModified);
+    }
+
+    private static LitematicMetadata readMetadata(DataInputStream in) throws IOException {
+        LitematicMetadata metadata = new LitematicMetadata();
+        metadata.name = readNullable(in);
+        metadata.author = readNullable(in);
+        metadata.description = readNullable(in);
+        for (int i = 0; i < 3; i++) metadata.enclosingSize[i] = in.readInt();
+        metadata.totalBlocks = in.readLong();
+        metadata.totalVolume = in.readLong();
+        metadata.regionCount = in.readInt();
+        metadata.timeCreated = in.readLong();
+        metadata.timeModified = in.readLong();
+        return metadata;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static String shortHash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8))).substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.choculaterie.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.zip.GZIPInputStream;
+
+public class NbtStreamReader {
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_BYTE = 1;
+    public static final byte TAG_SHORT = 2;
+    public static final byte TAG_INT = 3;
+    public static final byte TAG_LONG = 4;
+    public static final byte TAG_FLOAT = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_BYTE_ARRAY = 7;
+    public static final byte TAG_STRING = 8;
+    public static final byte TAG_LIST = 9;
+    public static final byte TAG_COMPOUND = 10;
+    public static final byte TAG_INT_ARRAY = 11;
+    public static final byte TAG_LONG_ARRAY = 12;
+
+    public static final int LONG_CHUNK_SIZE = 8192;
+    private static final int MAX_DEPTH = 512;
+    // Byte and int arrays are materialised whole, so a corrupt length must not size the allocation
+    public static final int MAX_ARRAY_LENGTH = 16 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public interface Visitor {
+        default boolean accept(byte type, String name) {
+            return false;
+        }
+
+        default Visitor enterCompound(String name) {
+            return null;
+        }
+
+        default Visitor enterList(String name, byte elementType, int length) {
+            return null;
+        }
+
+        default LongArrayVisitor enterLongArray(String name, int length) {
+            return null;
+        }
+
+        // Longest byte or int array this visitor accepts; longer ones fail the read before allocating
+        default int maxArrayLength(String name) {
+            return MAX_ARRAY_LENGTH;
+        }
+
+        default void visitInt(String name, int value) {
+        }
+
+        default void visitLong(String name, long value) {
+        }
+
+        default void visitDouble(String name, double value) {
+        }
+
+        default void visitString(String name, String value) {
+        }
+
+        default void visitByteArray(String name, byte[] value) {
+        }
+
+        default void visitIntArray(String name, int[] value) {
+        }
+
+        default void visitEnd() {
+        }
+    }
+
+    public interface LongArrayVisitor {
+        void visitChunk(long[] words, int count) throws IOException;
+
+        default void visitEnd() throws IOException {
+        }
+    }
+
+    private final DataInputStream in;
+    private final byte[] longBytes = new byte[LONG_CHUNK_SIZE * Long.BYTES];
+    private final long[] longChunk = new long[LONG_CHUNK_SIZE];
+    private boolean halted = false;
+
+    public NbtStreamReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    // Stops the read after the current value, leaving the rest of the stream unread
+    public void halt() {
+        halted = true;
+    }
+
+    public boolean isHalted() {
+        return halted;
+    }
+
+    public static DataInputStream openCompressed(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    public static void readCompressed(File file, Visitor visitor) throws IOException {
+        try (DataInputStream in = openCompressed(file)) {
+            new NbtStreamReader(in).readRoot(visitor);
+        }
+    }
+
+    public void readRoot(Visitor visitor) throws IOException {
+        byte type = in.readByte();
+        if (type == TAG_END) return;
+        if (type != TAG_COMPOUND) throw new IOException("Root tag must be a compound, got type " + type);
+        in.readUTF();
+        readCompound(visitor, 0);
+    }
+
+    private void readCompound(Visitor visitor, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw new IOException("NBT nested too deeply");
+        byte type;
+        while ((type = in.readByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (visitor != null && visitor.accept(type, name)) {
+                readValue(visitor, type, name, depth);
+                if (halted) return;
+            } else {
+                skipValue(in, type);
+            }
+        }
+        if (visitor != null) visitor.visitEnd();
+    }
+
+    private void readList(Visitor visitor, byte elementType, int length, int depth) throws IOException {
+        if (depth > MAX_DEPTH) throw new IOException("NBT nested too deeply");
+        for (int i = 0; i < length; i++) {
+            if (visitor != null && visitor.accept(elementType, null)) {
+                readValue(visitor, elementType, null, depth);
+                if (halted) return;
+            } else {
+                skipValue(in, elementType);
+            }
+        }
+        if (visitor != null) visitor.visitEnd();
+    }
+
+    private void readValue(Visitor visitor, byte type, String name, int depth) throws IOException {
+        switch (type) {
+            case TAG_BYTE -> visitor.visitInt(name, in.readByte());
+            case TAG_SHORT -> visitor.visitInt(name, in.readShort());
+            case TAG_INT -> visitor.visitInt(name, in.readInt());
+            case TAG_LONG -> visitor.visitLong(name, in.readLong());
+            case TAG_FLOAT -> visitor.visitDouble(name, in.readFloat());
+            case TAG_DOUBLE -> visitor.visitDouble(name, in.readDouble());
+            case TAG_STRING -> visitor.visitString(name, in.readUTF());
+            case TAG_BYTE_ARRAY -> {
+                byte[] value = new byte[readArrayLength(visitor, name)];
+                in.readFully(value);
+                visitor.visitByteArray(name, value);
+            }
+            case TAG_INT_ARRAY -> {
+                int[] value = new int[readArrayLength(visitor, name)];
+                for (int i = 0; i < value.length; i++) value[i] = in.readInt();
+                visitor.visitIntArray(name, value);
+            }
+            case TAG_LONG_ARRAY -> {
+                int length = readLength();
+                LongArrayVisitor arrayVisitor = visitor.enterLongArray(name, length);
+                if (arrayVisitor == null) {
+                    skipFully(in, (long) length * Long.BYTES);
+                } else {
+                    readLongArray(arrayVisitor, length);
+                }
+            }
+            case TAG_LIST -> {
+                byte elementType = in.readByte();
+                int length = readLength();
+                readList(visitor.enterList(name, elementType, length), elementType, length, depth + 1);
+            }
+            case TAG_COMPOUND -> readCompound(visitor.enterCompound(name), depth + 1);
+            default -> throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private void readLongArray(LongArrayVisitor visitor, int length) throws IOException {
+        int remaining = length;
+        LongBuffer view = ByteBuffer.wrap(longBytes).asLongBuffer();
+        while (remaining > 0) {
+            int count = Math.min(remaining, LONG_CHUNK_SIZE);
+            in.readFully(longBytes, 0, count * Long.BYTES);
+            view.clear();
+            view.get(longChunk, 0, count);
+            visitor.visitChunk(longChunk, count);
+            remaining -= count;
+        }
+        visitor.visitEnd();
+    }
+
+    private int readArrayLength(Visitor visitor, String name) throws IOException {
+        int length = readLength();
+        int max = visitor.maxArrayLength(name);
+        if (length > max) throw new IOException("NBT array " + name + " has " + length + " entries, limit is " + max);
+        return length;
+    }
+
+    private int readLength() throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Negative NBT array length " + length);
+        return length;
+    }
+
+    public static void skipValue(DataInput in, byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE -> skipFully(in, 1);
+            case TAG_SHORT -> skipFully(in, 2);
+            case TAG_INT, TAG_FLOAT -> skipFully(in, 4);
+            case TAG_LONG, TAG_DOUBLE -> skipFully(in, 8);
+            case TAG_BYTE_ARRAY -> skipFully(in, in.readInt());
+            case TAG_STRING -> skipFully(in, in.readUnsignedShort());
+            case TAG_INT_ARRAY -> skipFully(in, (long) in.readInt() * Integer.BYTES);
+            case TAG_LONG_ARRAY -> skipFully(in, (long) in.readInt() * Long.BYTES);
+            case TAG_LIST -> {
+                byte elementType = in.readByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) skipValue(in, elementType);
+            }
+            case TAG_COMPOUND -> {
+                byte entryType;
+                while ((entryType = in.readByte()) != TAG_END) {
+                    skipFully(in, in.readUnsignedShort());
+                    skipValue(in, entryType);
+                }
+            }
+            default -> throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    public static void copyValue(DataInput in, DataOutput out, byte type) throws IOException {
+        switch (type) {
+            case TAG_BYTE -> out.writeByte(in.readByte());
+            case TAG_SHORT -> out.writeShort(in.readShort());
+            case TAG_INT, TAG_FLOAT -> out.writeInt(in.readInt());
+            case TAG_LONG, TAG_DOUBLE -> out.writeLong(in.readLong());
+            case TAG_STRING -> out.writeUTF(in.readUTF());
+            case TAG_BYTE_ARRAY -> copyArray(in, out, 1);
+            case TAG_INT_ARRAY -> copyArray(in, out, Integer.BYTES);
+            case TAG_LONG_ARRAY -> copyArray(in, out, Long.BYTES);
+            case TAG_LIST -> {
+                byte elementType = in.readByte();
+                int length = in.readInt();
+                out.writeByte(elementType);
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) copyValue(in, out, elementType);
+            }
+            case TAG_COMPOUND -> {
+                byte entryType;
+                while ((entryType = in.readByte()) != TAG_END) {
+                    out.writeByte(entryType);
+                    out.writeUTF(in.readUTF());
+                    copyValue(in, out, entryType);
+                }
+                out.writeByte(TAG_END);
+            }
+            default -> throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static void copyArray(DataInput in, DataOutput out, int elementSize) throws IOException {
+        int length = in.readInt();
+        out.writeInt(length);
+        byte[] buffer = new byte[8192];
+        long remaining = (long) length * elementSize;
+        while (remaining > 0) {
+            int count = (int) Math.min(remaining, buffer.length);
+            in.readFully(buffer, 0, count);
+            out.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static void skipFully(DataInput in, long bytes) throws IOException {
+        if (bytes < 0) throw new IOException("Negative NBT length " + bytes);
+        while (bytes > 0) {
+            int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                in.readByte();
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
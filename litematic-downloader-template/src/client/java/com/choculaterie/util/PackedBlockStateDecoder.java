@@ -0,0 +1,126 @@
+package com.choculaterie.util;
+
+public class PackedBlockStateDecoder {
+
+    public interface BlockSink {
+        boolean accept(long index, int paletteIndex);
+    }
+
+    private final int bitsPerBlock;
+    private final long mask;
+    private final int paletteSize;
+    private final long[] airMask;
+    private final int[] histogram;
+
+    private BlockSink sink;
+    private long index = 0;
+    private long remaining;
+    private long carry = 0;
+    private int carryBits = 0;
+    private int skipBits = 0;
+
+    public PackedBlockStateDecoder(boolean[] paletteAir, long totalEntries, BlockSink sink) {
+        this(paletteAir, 0, totalEntries, sink);
+    }
+
+    public PackedBlockStateDecoder(boolean[] paletteAir, long firstIndex, long entryCount, BlockSink sink) {
+        this.paletteSize = paletteAir.length;
+        this.bitsPerBlock = bitsPerBlock(paletteSize);
+        this.mask = (1L << bitsPerBlock) - 1L;
+        this.airMask = buildAirMask(paletteAir, 1 << bitsPerBlock);
+        // Sized to every encodable value so out-of-palette garbage needs no bounds check in the hot loop
+        this.histogram = new int[1 << bitsPerBlock];
+        this.index = firstIndex;
+        this.remaining = entryCount;
+        this.skipBits = (int) ((firstIndex * bitsPerBlock) & 63);
+        this.sink = sink;
+    }
+
+    public static int bitsPerBlock(int paletteSize) {
+        return Math.max(2, 32 - Integer.numberOfLeadingZeros(Math.max(1, paletteSize) - 1));
+    }
+
+    private static long[] buildAirMask(boolean[] paletteAir, int valueCount) {
+        long[] mask = new long[(valueCount + 63) >>> 6];
+        for (int i = 0; i < valueCount; i++) {
+            if (i >= paletteAir.length || paletteAir[i]) {
+                mask[i >>> 6] |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    public static long firstWord(long firstIndex, int bitsPerBlock) {
+        return (firstIndex * bitsPerBlock) >>> 6;
+    }
+
+    public int getBitsPerBlock() {
+        return bitsPerBlock;
+    }
+
+    public boolean isDone() {
+        return remaining <= 0;
+    }
+
+    public void decode(long[] words, int offset, int count) {
+        final int bits = bitsPerBlock;
+        final long m = mask;
+        final int[] counts = histogram;
+
+        for (int w = offset, end = offset + count; w < end && remaining > 0; w++) {
+            long word = words[w];
+            int bit = 0;
+
+            if (carryBits > 0) {
+                int value = (int) ((carry | (word << carryBits)) & m);
+                counts[value]++;
+                if (sink != null) emit(value);
+                index++;
+                remaining--;
+                bit = bits - carryBits;
+                carryBits = 0;
+            } else if (skipBits > 0) {
+                bit = skipBits;
+                skipBits = 0;
+            }
+
+            int n = (int) Math.min((64 - bit) / bits, remaining);
+            if (sink == null) {
+                for (int k = 0; k < n; k++, bit += bits) {
+                    counts[(int) ((word >>> bit) & m)]++;
+                }
+                index += n;
+            } else {
+                for (int k = 0; k < n; k++, bit += bits) {
+                    int value = (int) ((word >>> bit) & m);
+                    counts[value]++;
+                    if (sink != null) emit(value);
+                    index++;
+                }
+            }
+            remaining -= n;
+
+            if (remaining > 0 && bit < 64) {
+                carry = word >>> bit;
+                carryBits = 64 - bit;
+            }
+        }
+    }
+
+    private void emit(int value) {
+        if ((airMask[value >>> 6] & (1L << value)) != 0) return;
+        if (!sink.accept(index, value)) {
+            sink = null;
+        }
+    }
+
+    public int[] getPaletteCounts() {
+        int[] counts = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            if ((airMask[i >>> 6] & (1L << i)) == 0) {
+                counts[i] = histogram[i];
+            }
+        }
+        return counts;
+    }
+}
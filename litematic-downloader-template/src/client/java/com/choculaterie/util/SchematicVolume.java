@@ -0,0 +1,143 @@
+package com.choculaterie.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Preview blocks of a schematic, stored column-wise against a palette of distinct block states so each
+// block costs a few primitive array slots rather than an object with its own id and property map
+public class SchematicVolume {
+    // A char per block indexes the palette; Minecraft has far fewer block states than this
+    public static final int MAX_PALETTE_SIZE = Character.MAX_VALUE + 1;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final List<String> blockIds = new ArrayList<>();
+    private final List<Map<String, String>> properties = new ArrayList<>();
+    private final Map<Map.Entry<String, Map<String, String>>, Integer> paletteLookup = new HashMap<>();
+
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private char[] states;
+    private int size;
+
+    public SchematicVolume() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SchematicVolume(int capacity) {
+        xs = new int[capacity];
+        ys = new int[capacity];
+        zs = new int[capacity];
+        states = new char[capacity];
+    }
+
+    // Returns the existing index when the same id and properties are already in the palette
+    public int addPaletteEntry(String blockId, Map<String, String> blockProperties) {
+        Map<String, String> props = blockProperties == null ? Collections.emptyMap() : blockProperties;
+        Map.Entry<String, Map<String, String>> key = new AbstractMap.SimpleImmutableEntry<>(blockId, props);
+        Integer existing = paletteLookup.get(key);
+        if (existing != null) return existing;
+        int index = blockIds.size();
+        if (index >= MAX_PALETTE_SIZE) {
+            throw new IllegalStateException("Palette exceeds " + MAX_PALETTE_SIZE + " entries");
+        }
+        blockIds.add(blockId);
+        properties.add(props);
+        paletteLookup.put(key, index);
+        return index;
+    }
+
+    public void add(int x, int y, int z, int paletteIndex) {
+        if (size == xs.length) grow(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        states[size] = (char) paletteIndex;
+        size++;
+    }
+
+    // Appends up to limit blocks of another volume, mapping its palette onto this one
+    public int addAll(SchematicVolume other, int limit) {
+        int count = Math.min(other.size, Math.max(0, limit));
+        if (count == 0) return 0;
+        int[] remap = new int[other.getPaletteSize()];
+        for (int p = 0; p < remap.length; p++) {
+            remap[p] = addPaletteEntry(other.blockIds.get(p), other.properties.get(p));
+        }
+        if (size + count > xs.length) grow(size + count);
+        System.arraycopy(other.xs, 0, xs, size, count);
+        System.arraycopy(other.ys, 0, ys, size, count);
+        System.arraycopy(other.zs, 0, zs, size, count);
+        for (int i = 0; i < count; i++) {
+            states[size + i] = (char) remap[other.states[i]];
+        }
+        size += count;
+        return count;
+    }
+
+    public void translate(int dx, int dy, int dz) {
+        if (dx == 0 && dy == 0 && dz == 0) return;
+        for (int i = 0; i < size; i++) {
+            xs[i] += dx;
+            ys[i] += dy;
+            zs[i] += dz;
+        }
+    }
+
+    public void trimToSize() {
+        if (xs.length == size) return;
+        xs = Arrays.copyOf(xs, size);
+        ys = Arrays.copyOf(ys, size);
+        zs = Arrays.copyOf(zs, size);
+        states = Arrays.copyOf(states, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    public int getZ(int index) {
+        return zs[index];
+    }
+
+    public int getPaletteIndex(int index) {
+        return states[index];
+    }
+
+    public int getPaletteSize() {
+        return blockIds.size();
+    }
+
+    public String getBlockId(int paletteIndex) {
+        return blockIds.get(paletteIndex);
+    }
+
+    public Map<String, String> getProperties(int paletteIndex) {
+        return properties.get(paletteIndex);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, xs.length + (xs.length >> 1) + 16);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        zs = Arrays.copyOf(zs, capacity);
+        states = Arrays.copyOf(states, capacity);
+    }
+}